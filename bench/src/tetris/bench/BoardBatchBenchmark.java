@@ -0,0 +1,114 @@
+package tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tetris.BitGrid;
+import tetris.Game;
+import tetris.LockedRows;
+import tetris.SplitMix64;
+import tetris.TetrominoType;
+import tetris.sim.BoardBatch;
+
+/**
+ * Checks across a batch of random mid-game boards: one placement test,
+ * full-row counts and col heights, each over every board.
+ *
+ * @author Daniel Rolandi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBatchBenchmark
+{
+  private static final long SEED = 42L;
+  private static final int BOARDS = 4096;
+  private static final int STACK_ROWS = 8;
+
+  private BoardBatch batch;
+  private boolean[] fits;
+  private int[] counts;
+  private int[] heights;
+  private int row;
+
+  /**
+   * Fills the bottom rows of every board with random cells.
+   */
+  @Setup
+  public void setUp()
+  {
+    batch = new BoardBatch(BOARDS);
+    fits = new boolean[BOARDS];
+    counts = new int[BOARDS];
+    heights = new int[BOARDS * Game.WIDTH];
+    SplitMix64 random = new SplitMix64(SEED);
+    final int[] rows = new int[Game.HEIGHT];
+    LockedRows source = new LockedRows()
+    {
+      @Override
+      public int getRowMask(int gridRow)
+      {
+        return rows[gridRow];
+      }
+    };
+    for(int board = 0; board < BOARDS; board++)
+    {
+      for(int stackRow = Game.HEIGHT - STACK_ROWS; stackRow < Game.HEIGHT; stackRow++)
+      {
+        rows[stackRow] = random.nextInt(BitGrid.FULL_ROW + 1);
+      }
+      batch.load(board, source);
+    }
+  }
+
+  /**
+   * One T placement tested on every board, a different row each call.
+   *
+   * @return The fit flags.
+   */
+  @Benchmark
+  public boolean[] fits()
+  {
+    row = (row + 1) % (Game.HEIGHT - 2);
+    batch.fits(TetrominoType.T, 0, 3, row, fits);
+    return fits;
+  }
+
+  /**
+   * Full-row counts of every board.
+   *
+   * @return The counts.
+   */
+  @Benchmark
+  public int[] countFullRows()
+  {
+    batch.countFullRows(counts);
+    return counts;
+  }
+
+  /**
+   * Col heights of every board.
+   *
+   * @return The heights.
+   */
+  @Benchmark
+  public int[] columnHeights()
+  {
+    batch.columnHeights(heights);
+    return heights;
+  }
+
+}
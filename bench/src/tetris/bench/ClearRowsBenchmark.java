@@ -0,0 +1,96 @@
+package tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tetris.Game;
+import tetris.TetrominoType;
+
+/**
+ * Hard drop of a vertical I into the last col of a stack
+ * with 1 to 4 rows missing only that col, so the drop clears that many rows.
+ * Covers locking, row clearing, compaction, scoring and the next spawn.
+ *
+ * @author Daniel Rolandi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClearRowsBenchmark
+{
+  // rows of filler under the rows to clear, so compaction has work to do
+  private static final int FILLER_ROWS = 6;
+
+  @Param({"1", "2", "3", "4"})
+  public int lines;
+
+  private Game game;
+
+  /**
+   * Inits the Game once; each invocation rebuilds the stack.
+   */
+  @Setup(Level.Trial)
+  public void setUpTrial()
+  {
+    game = new Game( new FixedRandomizer(TetrominoType.I) );
+  }
+
+  /**
+   * Rebuilds the stack and puts a vertical I above the gap.
+   */
+  @Setup(Level.Invocation)
+  public void setUp()
+  {
+    game.newGame();
+    game.hardDrop(); // spawns the first I
+    int bottom = Game.HEIGHT - 1;
+    for(int row = bottom; row > bottom - FILLER_ROWS; row--)
+    {
+      // a hole in col 0 keeps the filler from clearing
+      for(int col = 1; col < Game.WIDTH; col++)
+      {
+        game.setCell(row, col, TetrominoType.O);
+      }
+    }
+    for(int row = bottom - FILLER_ROWS; row > bottom - FILLER_ROWS - lines; row--)
+    {
+      for(int col = 0; col < Game.WIDTH - 1; col++)
+      {
+        game.setCell(row, col, TetrominoType.T);
+      }
+    }
+    // the I lands on the filler, beside the rows to clear
+    game.rotateRight();
+    while(game.canMoveRight())
+    {
+      game.moveRight();
+    }
+  }
+
+  /**
+   * Returns the cleared count after the clearing hard drop.
+   * @return Total count of cleared rows.
+   */
+  @Benchmark
+  public int clearRows()
+  {
+    game.hardDrop();
+    return game.getScoreKeeper().getClearedCount();
+  }
+
+}
@@ -0,0 +1,49 @@
+package tetris.bench;
+
+import tetris.Randomizer;
+import tetris.TetrominoType;
+
+/**
+ * Randomizer that always hands out the same type,
+ * so benchmarks can set up an exact stack and piece.
+ *
+ * @author Daniel Rolandi
+ */
+public class FixedRandomizer implements Randomizer
+{
+  private final TetrominoType type;
+
+  /**
+   * Inits a randomizer that only returns that type.
+   *
+   * @param type The only Tetromino type handed out.
+   */
+  public FixedRandomizer(TetrominoType type)
+  {
+    this.type = type;
+  }
+
+  @Override
+  public TetrominoType next()
+  {
+    return type;
+  }
+
+  @Override
+  public TetrominoType peek(int ahead)
+  {
+    return type;
+  }
+
+  @Override
+  public int getPreviewLimit()
+  {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public void clear()
+  {
+  }
+
+}
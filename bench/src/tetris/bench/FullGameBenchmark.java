@@ -0,0 +1,82 @@
+package tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tetris.Game;
+import tetris.SplitMix64;
+
+/**
+ * Whole games, from newGame to defeat, played from a scripted input stream.
+ * The script and the piece sequence are seeded, so every run plays
+ * the same games.
+ *
+ * @author Daniel Rolandi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FullGameBenchmark
+{
+  private static final long SEED = 42L;
+  private static final int SCRIPT_LENGTH = 4096; // power of two
+  private static final int ACTION_COUNT = 8;
+
+  private byte[] script;
+  private Game game;
+
+  /**
+   * Builds the input script and the Game.
+   */
+  @Setup
+  public void setUp()
+  {
+    SplitMix64 random = new SplitMix64(SEED);
+    script = new byte[SCRIPT_LENGTH];
+    for(int index = 0; index < SCRIPT_LENGTH; index++)
+    {
+      script[index] = (byte) random.nextInt(ACTION_COUNT);
+    }
+    game = new Game(SEED);
+  }
+
+  /**
+   * Returns the final score of one whole game.
+   * @return The final score.
+   */
+  @Benchmark
+  public float playGame()
+  {
+    game.newGame();
+    int cursor = 0;
+    while( !game.isDefeat() )
+    {
+      switch( script[cursor] )
+      {
+        case 0: game.moveLeft(); break;
+        case 1: game.moveRight(); break;
+        case 2: game.rotateLeft(); break;
+        case 3: game.rotateRight(); break;
+        case 4: game.moveDown(); break;
+        case 5: game.hardDrop(); break;
+        default: game.update(Game.MIN_LOCK_DELAY); break;
+      }
+      cursor = (cursor + 1) & (SCRIPT_LENGTH - 1);
+    }
+    return game.getScoreKeeper().getScore();
+  }
+
+}
@@ -0,0 +1,87 @@
+package tetris.bench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tetris.Game;
+
+/**
+ * Saving and restoring a whole mid-game state through a direct buffer,
+ * as Board does into its state file every frame.
+ *
+ * @author Daniel Rolandi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark
+{
+  private static final long SEED = 42L;
+  private static final int SETUP_DROPS = 12;
+
+  private Game game;
+  private ByteBuffer buffer;
+
+  /**
+   * Builds a few rows of stack with alternating hard drops, then saves it once.
+   */
+  @Setup
+  public void setUp()
+  {
+    game = new Game(SEED);
+    game.hardDrop(); // spawns the first Tetromino
+    for(int drop = 0; drop < SETUP_DROPS; drop++)
+    {
+      if(drop % 2 == 0)
+      {
+        game.moveLeft();
+      }
+      else
+      {
+        game.moveRight();
+      }
+      game.hardDrop();
+    }
+    buffer = ByteBuffer.allocateDirect(Game.STATE_SIZE);
+    game.saveState(buffer);
+  }
+
+  /**
+   * Returns the bytes written by one save.
+   * @return Count of bytes written.
+   */
+  @Benchmark
+  public int save()
+  {
+    buffer.clear();
+    game.saveState(buffer);
+    return buffer.position();
+  }
+
+  /**
+   * Returns the hash after one restore of the saved state.
+   * @return Zobrist hash of the restored state.
+   */
+  @Benchmark
+  public long restore()
+  {
+    buffer.clear();
+    game.restoreState(buffer);
+    return game.getHash();
+  }
+
+}
@@ -0,0 +1,139 @@
+package tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tetris.Game;
+import tetris.Tetromino;
+
+/**
+ * Single moves of the falling Tetromino on a mid-game stack.
+ * Moves come in undoing pairs so the state stays the same between calls.
+ *
+ * @author Daniel Rolandi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark
+{
+  private static final long SEED = 42L;
+  private static final int SETUP_DROPS = 12;
+
+  private Game game;
+
+  /**
+   * Builds a few rows of stack with alternating hard drops,
+   * then leaves a fresh Tetromino at the spawn point.
+   */
+  @Setup
+  public void setUp()
+  {
+    game = new Game(SEED);
+    game.hardDrop(); // spawns the first Tetromino
+    for(int drop = 0; drop < SETUP_DROPS; drop++)
+    {
+      if(drop % 2 == 0)
+      {
+        game.moveLeft();
+        game.moveLeft();
+      }
+      else
+      {
+        game.moveRight();
+        game.moveRight();
+      }
+      game.hardDrop();
+    }
+  }
+
+  /**
+   * Returns the column after one move left and one move right.
+   * @return Column of the falling Tetromino.
+   */
+  @Benchmark
+  public int moveLeftRight()
+  {
+    game.moveLeft();
+    game.moveRight();
+    return game.getCurrentTetro().getGridX();
+  }
+
+  /**
+   * Returns the state after one rotation each way.
+   * @return Orientation state of the falling Tetromino.
+   */
+  @Benchmark
+  public int rotateLeftRight()
+  {
+    game.rotateLeft();
+    game.rotateRight();
+    return game.getCurrentTetro().getState();
+  }
+
+  /**
+   * Returns the row after one soft drop; a landed Tetromino
+   * is hard dropped instead, and a lost game restarts.
+   * @return Row of the falling Tetromino.
+   */
+  @Benchmark
+  public int moveDown()
+  {
+    Tetromino tetro = game.getCurrentTetro();
+    if(tetro.getGridY() == game.getGhostRow())
+    {
+      dropOrRestart();
+    }
+    else
+    {
+      game.moveDown();
+    }
+    return game.getCurrentTetro().getGridY();
+  }
+
+  /**
+   * Returns the row of the next Tetromino after one hard drop,
+   * restarting a lost game.
+   * @return Row of the falling Tetromino.
+   */
+  @Benchmark
+  public int hardDrop()
+  {
+    dropOrRestart();
+    return game.getCurrentTetro().getGridY();
+  }
+
+  /**
+   * Returns the landing row of the falling Tetromino.
+   * @return The ghost row.
+   */
+  @Benchmark
+  public int ghostRow()
+  {
+    return game.getGhostRow();
+  }
+
+  private void dropOrRestart()
+  {
+    game.hardDrop();
+    if(game.isDefeat())
+    {
+      game.newGame();
+      game.hardDrop();
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+package tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tetris.bot.Perft;
+
+/**
+ * Single-threaded perft from a fixed seed: placement search, locking and
+ * row clears on every reachable board. Divide the nodes of PerftMain by the
+ * time per call for nodes per second.
+ *
+ * @author Daniel Rolandi
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerftBenchmark
+{
+  private static final long SEED = 1L;
+
+  @Param({"3", "4"})
+  private int depth;
+
+  private Perft perft;
+
+  /**
+   * Starts a one-thread counter.
+   */
+  @Setup
+  public void setUp()
+  {
+    perft = new Perft(1, depth);
+  }
+
+  /**
+   * Stops its thread.
+   */
+  @TearDown
+  public void tearDown()
+  {
+    perft.shutdown();
+  }
+
+  /**
+   * One full count; the checksum keeps the JIT from dropping the work.
+   *
+   * @return Checksum of the final boards.
+   */
+  @Benchmark
+  public long perft()
+  {
+    return perft.run(SEED, depth).getChecksum();
+  }
+
+}
@@ -0,0 +1,13 @@
+package tetris;
+
+/**
+ * Moves a player can make with the falling Tetromino.
+ * Same set as the movement Commands, without Slick,
+ * so scripts, bots and replays can drive a headless Game.
+ *
+ * @author Daniel Rolandi
+ */
+public enum Action
+{
+  MOVE_LEFT, MOVE_RIGHT, MOVE_DOWN, HARD_DROP, ROTATE_LEFT, ROTATE_RIGHT;
+}
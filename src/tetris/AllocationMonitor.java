@@ -0,0 +1,111 @@
+package tetris;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Test mode that asserts a steady-state game loop allocates nothing.
+ * Measures the bytes allocated by the current thread between begin()
+ * and end(), summed over one update/render cycle. After a warm-up,
+ * endCycle() fails on the first cycle that allocated anything.
+ * Needs a HotSpot JVM with thread allocation accounting. With C2 the JVM
+ * now and then charges a few bytes of its own to the thread; run with
+ * -XX:TieredStopAtLevel=1 for a read that is exact.
+ *
+ * @author Daniel Rolandi
+ */
+public class AllocationMonitor
+{
+  public static final String ENABLE_PROPERTY = "tetris.checkAllocations";
+  public static final int DEFAULT_WARMUP_CYCLES = 600; // about 10 seconds at 60 fps
+
+  private final com.sun.management.ThreadMXBean threadBean;
+  private final long threadId;
+  private final int warmupCycles;
+  private final long overhead; // bytes counted by one begin()/end() pair itself
+  private long startBytes;
+  private long cycleBytes;
+  private int cycleCount;
+
+  /**
+   * Inits a monitor for the current thread.
+   *
+   * @param warmupCycles Cycles to ignore while classes load and caches fill.
+   */
+  public AllocationMonitor(int warmupCycles)
+  {
+    threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if( !threadBean.isThreadAllocatedMemorySupported() )
+    {
+      throw new IllegalStateException("Thread allocation accounting is not supported.");
+    }
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    threadId = Thread.currentThread().getId();
+    this.warmupCycles = warmupCycles;
+
+    long calibration = 0;
+    for(int run = 0; run < 2; run++)
+    {
+      begin();
+      calibration = end();
+    }
+    overhead = calibration;
+    cycleBytes = 0;
+  }
+
+  /**
+   * Returns true if the test mode was requested on the command line.
+   * @return True if ENABLE_PROPERTY is set to true.
+   */
+  public static boolean isRequested()
+  {
+    return Boolean.getBoolean(ENABLE_PROPERTY);
+  }
+
+  /**
+   * Starts measuring a section of the cycle.
+   */
+  public void begin()
+  {
+    startBytes = threadBean.getThreadAllocatedBytes(threadId);
+  }
+
+  /**
+   * Stops measuring a section and adds it to the current cycle.
+   * @return Bytes allocated by that section.
+   */
+  public long end()
+  {
+    long sectionBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes - overhead;
+    if(sectionBytes < 0)
+    {
+      sectionBytes = 0;
+    }
+    cycleBytes += sectionBytes;
+    return sectionBytes;
+  }
+
+  /**
+   * Closes the current cycle.
+   * @throws IllegalStateException if a cycle after the warm-up allocated.
+   */
+  public void endCycle()
+  {
+    long bytes = cycleBytes;
+    cycleBytes = 0;
+    cycleCount++;
+    if(cycleCount > warmupCycles && bytes > 0)
+    {
+      throw new IllegalStateException("Cycle " + cycleCount + " allocated " + bytes + " bytes.");
+    }
+  }
+
+  /**
+   * Returns the count of closed cycles.
+   * @return The count of closed cycles.
+   */
+  public int getCycleCount()
+  {
+    return cycleCount;
+  }
+
+}
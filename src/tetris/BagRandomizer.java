@@ -0,0 +1,197 @@
+package tetris;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The 7-bag: each run of TYPE_COUNT pieces holds every type once.
+ * Queued types are kept as ordinals in a byte ring buffer, and bags are
+ * shuffled in place, so handing out pieces never allocates.
+ *
+ * @author Daniel Rolandi
+ */
+public class BagRandomizer implements Randomizer
+{
+  private static final TetrominoType[] TYPES = TetrominoType.values();
+  // power of two holding a partial bag plus a whole new one
+  private static final int RING_SIZE = Integer.highestOneBit(2 * TetrominoInfo.TYPE_COUNT - 1) << 1;
+  private static final int RING_MASK = RING_SIZE - 1;
+  public static final int STATE_SIZE = 8 + 1 + RING_SIZE; // generator, queued count, queue
+
+  private final SplitMix64 random;
+  private final byte[] ring;
+  private final byte[] bag;
+  private int head;
+  private int count;
+
+  /**
+   * Inits a bag randomizer seeded with that value.
+   *
+   * @param seed Seed of the piece sequence.
+   */
+  public BagRandomizer(long seed)
+  {
+    this(new SplitMix64(seed));
+  }
+
+  /**
+   * Inits a bag randomizer drawing from that generator.
+   *
+   * @param random Generator owned by this randomizer from now on.
+   */
+  public BagRandomizer(SplitMix64 random)
+  {
+    this.random = random;
+    ring = new byte[RING_SIZE];
+    bag = new byte[TetrominoInfo.TYPE_COUNT];
+    clear();
+  }
+
+  @Override
+  public TetrominoType next()
+  {
+    fill(1);
+    byte ordinal = ring[head];
+    head = (head + 1) & RING_MASK;
+    count--;
+    return TYPES[ordinal];
+  }
+
+  @Override
+  public TetrominoType peek(int ahead)
+  {
+    if(ahead < 0 || ahead >= getPreviewLimit())
+    {
+      throw new IllegalArgumentException("BagRandomizer: cannot peek " + ahead + " ahead");
+    }
+    fill(ahead + 1);
+    return TYPES[ ring[(head + ahead) & RING_MASK] ];
+  }
+
+  @Override
+  public int getPreviewLimit()
+  {
+    return TetrominoInfo.TYPE_COUNT;
+  }
+
+  /**
+   * Takes over source's place in the 7-bag but not its order: the types left
+   * in source's current bag come out in a fresh order from this randomizer's
+   * generator, then whole new bags follow. Gives a future that is as likely
+   * as the real one to a player who cannot see source's queue.
+   *
+   * @param source Randomizer whose bag to continue; not changed.
+   */
+  public void copyFrom(BagRandomizer source)
+  {
+    int left = source.count % TetrominoInfo.TYPE_COUNT;
+    head = 0;
+    count = left;
+    for(int index = 0; index < left; index++)
+    {
+      ring[index] = source.ring[(source.head + index) & RING_MASK];
+    }
+    // Fisher-Yates over what is left
+    for(int index = left; index > 1; index--)
+    {
+      int swapIndex = random.nextInt(index);
+      byte swapOrdinal = ring[index - 1];
+      ring[index - 1] = ring[swapIndex];
+      ring[swapIndex] = swapOrdinal;
+    }
+  }
+
+  /**
+   * Writes the generator state and the queued types, STATE_SIZE bytes.
+   *
+   * @param target Buffer to write to at its position.
+   */
+  public void saveState(ByteBuffer target)
+  {
+    target.putLong( random.getState() );
+    target.put( (byte)count );
+    for(int index = 0; index < RING_SIZE; index++)
+    {
+      target.put( ring[(head + index) & RING_MASK] );
+    }
+  }
+
+  /**
+   * Checks a saved state without reading it in: the queued count and every queued type in range.
+   *
+   * @param source Buffer holding a state.
+   * @param offset Index of the state in the buffer.
+   * @throws IllegalArgumentException if the buffer holds no state saveState() could have written.
+   */
+  public static void checkState(ByteBuffer source, int offset)
+  {
+    int queued = source.get(offset + 8);
+    if(queued < 0 || queued > RING_SIZE)
+    {
+      throw new IllegalArgumentException("BagRandomizer: bad queued count " + queued);
+    }
+    for(int index = 0; index < queued; index++)
+    {
+      int ordinal = source.get(offset + 9 + index);
+      if(ordinal < 0 || ordinal >= TYPES.length)
+      {
+        throw new IllegalArgumentException("BagRandomizer: bad queued type " + ordinal);
+      }
+    }
+  }
+
+  /**
+   * Reads back what saveState() wrote, so the same pieces come next.
+   * The generator must be made the same way as the saved one's, e.g. both by BagRandomizer(long).
+   *
+   * @param source Buffer to read from at its position.
+   */
+  public void restoreState(ByteBuffer source)
+  {
+    random.reseed( source.getLong() );
+    int queued = source.get();
+    if(queued < 0 || queued > RING_SIZE)
+    {
+      throw new IllegalArgumentException("BagRandomizer: bad queued count " + queued);
+    }
+    source.get(ring, 0, RING_SIZE);
+    head = 0;
+    count = queued;
+  }
+
+  @Override
+  public final void clear()
+  {
+    head = 0;
+    count = 0;
+  }
+
+  private void fill(int wanted)
+  {
+    while(count < wanted)
+    {
+      refill();
+    }
+  }
+
+  private void refill()
+  {
+    for(int index = 0; index < bag.length; index++)
+    {
+      bag[index] = (byte) index;
+    }
+    // Fisher-Yates
+    for(int index = bag.length; index > 1; index--)
+    {
+      int swapIndex = random.nextInt(index);
+      byte swapOrdinal = bag[index - 1];
+      bag[index - 1] = bag[swapIndex];
+      bag[swapIndex] = swapOrdinal;
+    }
+    for(int index = 0; index < bag.length; index++)
+    {
+      ring[(head + count) & RING_MASK] = bag[index];
+      count++;
+    }
+  }
+
+}
@@ -0,0 +1,272 @@
+package tetris;
+
+/**
+ * Grid of locked cells, stored as one bitmask per row.
+ * Bit c of a row is set if col c is occupied.
+ * Collision checks, full-row checks and row clears are bitwise operations
+ * instead of walking Block references.
+ * The same cells are also kept per col (bit r set if row r is occupied)
+ * so that drop distances come from a trailing-zero count.
+ * The stack top (highest row holding a locked cell) is tracked as cells
+ * are set and rows are cleared, so row scans stop there.
+ *
+ * @author Daniel Rolandi
+ */
+public class BitGrid
+{
+  public static final int EMPTY_ROW = 0;
+  public static final int FULL_ROW = (1 << Game.WIDTH) - 1;
+
+  private final int[] rows;
+  private final int[] cols;
+  private int stackTop; // Game.HEIGHT if empty
+  private final int[] clearedRows; // bottom-up, from the last clearFullRows
+  private int clearedCount;
+
+  /**
+   * Inits an empty BitGrid of Game.HEIGHT rows.
+   */
+  public BitGrid()
+  {
+    rows = new int[Game.HEIGHT];
+    cols = new int[Game.WIDTH];
+    clearedRows = new int[TetrominoInfo.BLOCK_COUNT];
+    stackTop = Game.HEIGHT;
+  }
+
+  /**
+   * Empties every row.
+   */
+  public void clear()
+  {
+    for(int row = 0; row < Game.HEIGHT; row++)
+    {
+      rows[row] = EMPTY_ROW;
+    }
+    for(int col = 0; col < Game.WIDTH; col++)
+    {
+      cols[col] = 0;
+    }
+    stackTop = Game.HEIGHT;
+    clearedCount = 0;
+  }
+
+  /**
+   * Returns the bitmask of that row.
+   *
+   * @param row Row in the grid.
+   * @return The bitmask of that row.
+   */
+  public int getRow(int row)
+  {
+    return rows[row];
+  }
+
+  /**
+   * Returns true if that cell is occupied.
+   *
+   * @param row Row in the grid.
+   * @param col Col in the grid.
+   * @return True if that cell is occupied.
+   */
+  public boolean isOccupied(int row, int col)
+  {
+    return (rows[row] & (1 << col)) != 0;
+  }
+
+  /**
+   * Returns true if that cell is outside the grid or occupied.
+   *
+   * @param row Row in the grid.
+   * @param col Col in the grid.
+   * @return True if that cell is outside the grid or occupied.
+   */
+  public boolean isBlocked(int row, int col)
+  {
+    if(col < 0 || col >= Game.WIDTH || row < 0 || row >= Game.HEIGHT)
+    {
+      return true;
+    }
+    return isOccupied(row, col);
+  }
+
+  /**
+   * Returns true if any cell of rowMask is occupied in that row.
+   *
+   * @param row Row in the grid.
+   * @param rowMask Bitmask of the cells to test.
+   * @return True if any cell of rowMask is occupied in that row.
+   */
+  public boolean collides(int row, int rowMask)
+  {
+    return (rows[row] & rowMask) != 0;
+  }
+
+  /**
+   * Marks that cell as occupied.
+   *
+   * @param row Row in the grid.
+   * @param col Col in the grid.
+   */
+  public void set(int row, int col)
+  {
+    rows[row] |= 1 << col;
+    cols[col] |= 1 << row;
+    stackTop = Math.min(stackTop, row);
+  }
+
+  /**
+   * Returns the highest row holding a locked cell, or Game.HEIGHT if empty.
+   * @return The highest row holding a locked cell.
+   */
+  public int getStackTop()
+  {
+    return stackTop;
+  }
+
+  /**
+   * Returns true if every cell of that row is occupied.
+   *
+   * @param row Row in the grid.
+   * @return True if every cell of that row is occupied.
+   */
+  public boolean isRowFull(int row)
+  {
+    return rows[row] == FULL_ROW;
+  }
+
+  /**
+   * Returns true if no cell of that row is occupied.
+   *
+   * @param row Row in the grid.
+   * @return True if no cell of that row is occupied.
+   */
+  public boolean isRowEmpty(int row)
+  {
+    return rows[row] == EMPTY_ROW;
+  }
+
+  /**
+   * Removes every full row in a single bottom-up pass.
+   * Each surviving row moves at most once, and only rows
+   * down from the stack top are touched.
+   *
+   * @return Count of cleared rows.
+   */
+  public int clearFullRows()
+  {
+    clearedCount = 0;
+    int writeRow = Game.HEIGHT - 1;
+    for(int readRow = Game.HEIGHT - 1; readRow >= stackTop; readRow--)
+    {
+      if(rows[readRow] == FULL_ROW)
+      {
+        clearedRows[clearedCount++] = readRow;
+        continue;
+      }
+      rows[writeRow--] = rows[readRow];
+    }
+    if(clearedCount == 0)
+    {
+      return 0;
+    }
+    for(int row = writeRow; row >= stackTop; row--)
+    {
+      rows[row] = EMPTY_ROW;
+    }
+
+    // top-down, so the rows still to remove have not moved yet
+    for(int index = clearedCount - 1; index >= 0; index--)
+    {
+      int clearedRow = clearedRows[index];
+      // rows above clearedRow are the low bits: shift them up by 1, keep the rest
+      int aboveMask = (1 << clearedRow) - 1;
+      int belowMask = ~((1 << (clearedRow + 1)) - 1);
+      for(int col = 0; col < Game.WIDTH; col++)
+      {
+        cols[col] = ((cols[col] & aboveMask) << 1) | (cols[col] & belowMask);
+      }
+    }
+
+    stackTop += clearedCount;
+    while(stackTop < Game.HEIGHT && rows[stackTop] == EMPTY_ROW)
+    {
+      stackTop++;
+    }
+    return clearedCount;
+  }
+
+  /**
+   * Returns the index-th row removed by the last clearFullRows, bottom-up.
+   *
+   * @param index 0 for the lowest cleared row.
+   * @return Row (before clearing) that was removed.
+   */
+  public int getClearedRow(int index)
+  {
+    return clearedRows[index];
+  }
+
+  /**
+   * Returns true if that Tetromino layout can be placed with its
+   * reference point at (row, col) without hitting walls, floor or locked cells.
+   *
+   * @param type Tetromino type.
+   * @param state Orientation state.
+   * @param row Row of the reference point.
+   * @param col Col of the reference point.
+   * @return True if that placement is legal.
+   */
+  public boolean fits(TetrominoType type, int state, int row, int col)
+  {
+    if( !TetrominoInfo.isInBounds(type, state, col) )
+    {
+      return false;
+    }
+    for(int dy = 0; dy < TetrominoInfo.LAYOUT_SIZE; dy++)
+    {
+      int rowMask = TetrominoInfo.getRowMask(type, state, col, dy);
+      if(rowMask == 0)
+      {
+        continue;
+      }
+      int gridY = row + dy;
+      if(gridY < 0 || gridY >= Game.HEIGHT || (rows[gridY] & rowMask) != 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns how many rows that Tetromino can fall from (row, col)
+   * before it rests on the floor or on locked cells.
+   * Precondition: fits(type, state, row, col).
+   *
+   * @param type Tetromino type.
+   * @param state Orientation state.
+   * @param row Row of the reference point.
+   * @param col Col of the reference point.
+   * @return Count of free rows below the Tetromino.
+   */
+  public int dropDistance(TetrominoType type, int state, int row, int col)
+  {
+    int distance = Game.HEIGHT;
+    for(int x = 0; x < TetrominoInfo.LAYOUT_SIZE; x++)
+    {
+      int bottom = TetrominoInfo.getBottom(type, state, x);
+      if(bottom == TetrominoInfo.NO_CELL)
+      {
+        continue;
+      }
+      // every layout col is contiguous, so only its lowest Block can land
+      int bottomRow = row + bottom;
+      int below = cols[col + x] & (-1 << (bottomRow + 1));
+      int landingRow = Math.min(Integer.numberOfTrailingZeros(below), Game.HEIGHT);
+      distance = Math.min(distance, landingRow - bottomRow - 1);
+    }
+    return distance;
+  }
+
+}
@@ -1,73 +1,27 @@
 package tetris;
 
-import org.newdawn.slick.Color;
-import org.newdawn.slick.GameContainer;
-import org.newdawn.slick.Graphics;
-
 /**
- * Represents the atomic 1x1 cell, aka Block.
- * Contains the actual rendering.
+ * Represents the atomic 1x1 cell, aka Block, of a moving Tetromino.
+ * The type is shared through the owning Tetromino;
+ * locked Blocks are kept by the Game as compact type codes.
+ * The actual rendering is done by Board.
  * 
  * @author Daniel Rolandi
  */
 public class Block
 {
-  public static final int PREFERRED_BLOCK_SIZE = 20;
-  public static final Color BORDER_COLOR = new Color(255, 255, 255);  
-  
-  protected TetrominoType type;
-  public float x;
-  public float y;
-  
-  /**
-   * Sets the Block based on the type.
-   * @param type Tetromino type.
-   * @param x X coordinate of topleft oorner.
-   * @param y Y coordinate of topleft corner.
-   */
-  public Block(TetrominoType type, float x, float y)
-  {
-    this.type = type;
-    this.x = x;
-    this.y = y;
-  }
-  
-  /**
-   * Draws the Block onto the GameContainer.
-   * 
-   * @param gameContainer Game Container.
-   * @param graphics Graphics context.
-   */
-  public void render(GameContainer gameContainer, Graphics graphics)
-  {
-    if(Board.BLOCK_SIZE != PREFERRED_BLOCK_SIZE)
-    {
-      graphics.setColor( TetrominoInfo.getColor(type) );
-      graphics.fillRect(x, y, Board.BLOCK_SIZE, Board.BLOCK_SIZE);
-      graphics.setColor( BORDER_COLOR );
-      graphics.drawRect(x, y, Board.BLOCK_SIZE, Board.BLOCK_SIZE);
-    }
-    else{
-      graphics.drawImage(TetrominoInfo.getImage(type), x, y);
-    }    
-  }
-  
-  /**
-   * Returns X coordinate of topleft corner.
-   * @return X coordinate of topleft corner.
-   */
-  public float getX()
-  {
-    return x;
-  }
+  private int gridX;
+  private int gridY;
   
   /**
-   * Returns Y coordinate of topleft corner.
-   * @return Y coordinate of topleft corner.
+   * Sets the Block at that grid cell.
+   * @param gridX Col position in the grid.
+   * @param gridY Row position in the grid.
    */
-  public float getY()
+  public Block(int gridX, int gridY)
   {
-    return y;
+    this.gridX = gridX;
+    this.gridY = gridY;
   }
   
   /**
@@ -76,7 +30,7 @@ public class Block
    */
   public int getGridX()
   {
-    return (int)( (x - Offsets.GAME_X) / Board.BLOCK_SIZE);
+    return gridX;
   }
   
   /**
@@ -85,20 +39,20 @@ public class Block
    */
   public int getGridY()
   {
-//    return (int)( (y - Offsets.GAME_Y + Board.HEIGHT_WAITING*Board.BLOCK_SIZE) / Board.BLOCK_SIZE);
-    return (int)( (y - Offsets.GAME_Y) / Board.BLOCK_SIZE + Board.HEIGHT_WAITING);
+    return gridY;
   }
   
   /**
-   * Sets topleft corner into the given (x,y) coordinate.
+   * Sets the Block into the given (col,row) grid cell.
+   * Pixel positions are derived only when rendering.
    * 
-   * @param x X coordinate of topleft corner.
-   * @param y Y coordinate of topleft corner.
+   * @param gridX Col position in the grid.
+   * @param gridY Row position in the grid.
    */
-  public void setPosition(float x, float y)
+  public void setPosition(int gridX, int gridY)
   {
-    this.x = x;
-    this.y = y;
+    this.gridX = gridX;
+    this.gridY = gridY;
   }
   
 }
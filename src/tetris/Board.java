@@ -4,38 +4,73 @@ import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.Input;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Color;
+import org.newdawn.slick.Font;
 import org.newdawn.slick.Music;
 import org.newdawn.slick.command.InputProvider;
-import org.newdawn.slick.geom.Point;
 import org.newdawn.slick.SlickException;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import tetris.log.EventLog;
+import tetris.replay.ReplayRecorder;
 
 /**
  * Defines the board area where Blocks are contained.
+ * This is the Slick view (rendering, music, controls) on top of a Game,
+ * which holds the actual rules.
  *
  * @author Daniel Rolandi
  */
 public class Board 
 {
-  public static final int WIDTH = 10;
-  public static final int HEIGHT = 26; // includes Waiting Room
-  public static final int HEIGHT_WAITING = 6; // Waiting Room height
-  private static final int HEIGHT_GAME = HEIGHT - HEIGHT_WAITING;
+  private static final int WIDTH = Game.WIDTH;
+  private static final int HEIGHT = Game.HEIGHT;
+  private static final int HEIGHT_WAITING = Game.HEIGHT_WAITING;
+  private static final int HEIGHT_GAME = Game.HEIGHT_GAME;
 
   private static final Color GAME_BACKGROUND = new Color(0, 0, 0);
   private static final Color GAME_BORDER = new Color(255, 255, 255);
   public static final Color WIRE_COLOR = new Color(30, 30, 30);
 
-  public static final int BLOCK_SIZE = Block.PREFERRED_BLOCK_SIZE; // pixels
+  public static final int BLOCK_SIZE = TetrominoSkin.PREFERRED_BLOCK_SIZE; // pixels
   private static final int NEXT_TETRO_PIXELS = 6;
   public static final float NEXT_TETRO_SIZE = NEXT_TETRO_PIXELS * BLOCK_SIZE;
   private static final Color NEXT_TETRO_BACKGROUND = GAME_BACKGROUND;
   private static final Color NEXT_TETRO_BORDER = GAME_BORDER;  
+  private static final Color BLOCK_BORDER = new Color(255, 255, 255);
+  private static final Color GHOST_COLOR = WIRE_COLOR;
+
+  private static final Color TEXT_COLOR = new Color(255, 255, 255);
+  private static final String LEVEL_TEXT_DEFAULT = "Level: "; 
+  private static final String CLEARED_TEXT_DEFAULT = "Cleared: ";
+  private static final String SCORE_TEXT_DEFAULT = "Score: ";
+  
+  private static final int LEVEL_TEXT_PADDING = 7;
+  private static final int CLEARED_TEXT_PADDING = 5;
+  private static final int SCORE_TEXT_PADDING = 7;
+  private static final String MOUSE_TEXT_DEFAULT = "Mouse: ";
+  private static final String MOUSE_TEXT_SEPARATOR = ", ";
+  private static final String LOCK_DELAY_TEXT_DEFAULT = "Lock Delay: ";
+  private static final int MOUSE_TEXT_PADDING = 4;
+  private static final int LOCK_DELAY_TEXT_PADDING = 4;
+  private static final String WIDEST_DIGIT = "0"; // digit cell width
   
+  // directory to record every game to, e.g. -Dtetris.replayDir=replays; unset records nothing
+  public static final String REPLAY_DIR_PROPERTY = "tetris.replayDir";
+  private static final String REPLAY_EXTENSION = ".replay";
+  private static final long REPLAY_CLOSE_MILLIS = 1000;
+  // file to keep the state in for resuming after a suspend or crash, e.g. -Dtetris.stateFile=tetris.state
+  public static final String STATE_FILE_PROPERTY = "tetris.stateFile";
+  private static final int STATE_MAGIC = 0x54425244; // "TBRD"
+  // magic, rules version, music volume, debug mode, then the Game
+  public static final int STATE_SIZE = 4 + 2 + 1 + 1 + Game.STATE_SIZE;
+  // file to log gameplay events to, e.g. -Dtetris.eventLog=tetris.events; read it with tetris.log.EventLogMain
+  public static final String EVENT_LOG_PROPERTY = "tetris.eventLog";
+
   private static final Music bgm;
   private static final int DEFAULT_MUSIC_VOLUME = 0; // should be 0 or 1
   static
@@ -50,25 +85,20 @@ public class Board
     }
   }
   
-  private static final int BASE_LOCK_DELAY = 1000;
-  private static final int MIN_LOCK_DELAY = 100;
-  private static final int LOCK_DELAY_DECREMENT_PER_LEVEL = 80;
-  private static final int CLEARS_PER_LEVEL = 4;
-
-  private static int lockDelay; // milliseconds
-  private int lockCounter; // milliseconds  
-
-  public boolean debugMode = false;
-  
-  private Block[][] grid;
-  private Tetromino currentTetro;
-  private Tetromino nextTetro;
-  private Tetromino ghostTetro;
-  private ArrayDeque<TetrominoType> nextTypes;
-  private ScoreKeeper scoreKeeper;
-  private boolean isDefeat;
-  private int clearCounter;
+  private Game game;
   private int musicVolume;
+  private final Path replayDir; // null unless recording
+  private ReplayRecorder recorder; // null unless a game is being recorded
+  private StateFile stateFile; // null unless resuming is on
+  private EventLog eventLog; // null unless logging events
+
+  // numbers are drawn digit by digit from shared Strings, so a new value allocates nothing
+  private final NumberText levelNumber;
+  private final NumberText clearedNumber;
+  private final NumberText scoreNumber;
+  private final NumberText mouseXNumber;
+  private final NumberText mouseYNumber;
+  private final NumberText lockDelayNumber;
 
 
   /**
@@ -83,239 +113,231 @@ public class Board
     musicVolume = DEFAULT_MUSIC_VOLUME;
     bgm.setVolume( DEFAULT_MUSIC_VOLUME );
     setupControl(gameContainer);
-    newGame();
-    defeat();
+    levelNumber = new NumberText(LEVEL_TEXT_PADDING);
+    clearedNumber = new NumberText(CLEARED_TEXT_PADDING);
+    scoreNumber = new NumberText(SCORE_TEXT_PADDING);
+    mouseXNumber = new NumberText(MOUSE_TEXT_PADDING);
+    mouseYNumber = new NumberText(MOUSE_TEXT_PADDING);
+    lockDelayNumber = new NumberText(LOCK_DELAY_TEXT_PADDING);
+    String replayPath = System.getProperty(REPLAY_DIR_PROPERTY);
+    replayDir = (replayPath != null) ? Paths.get(replayPath) : null;
+    game = new Game();
+    game.endGame();
+    openStateFile();
+    openEventLog();
   }
 
   /**
-   * Forces game over at this exact movement.
+   * Writes the Board state, STATE_SIZE bytes in a fixed layout:
+   * music volume, debug mode and the whole Game state (Game.saveState()).
+   * Allocates nothing.
+   *
+   * @param target Buffer to write to at its position.
    */
-  public void endGame()
+  public void saveState(ByteBuffer target)
   {
-    defeat();
-  }
-
-  private void setupControl(GameContainer gameContainer)
-  {
-    Input input = gameContainer.getInput();
-    input.enableKeyRepeat();
-    InputProvider provider = new InputProvider( input );
-    provider.addListener( new Control(this) );
-
-    provider.bindCommand( Commands.MOVE_LEFT_KEY, Commands.MOVE_LEFT);
-    provider.bindCommand( Commands.MOVE_RIGHT_KEY, Commands.MOVE_RIGHT);
-    provider.bindCommand( Commands.MOVE_DOWN_KEY, Commands.MOVE_DOWN);
-
-    provider.bindCommand( Commands.HARD_DROP_KEY, Commands.HARD_DROP);
-    provider.bindCommand( Commands.ROTATE_LEFT_KEY, Commands.ROTATE_LEFT);
-    provider.bindCommand( Commands.ROTATE_RIGHT_KEY1, Commands.ROTATE_RIGHT);
-    provider.bindCommand( Commands.ROTATE_RIGHT_KEY2, Commands.ROTATE_RIGHT);
-
-    provider.bindCommand( Commands.NEW_GAME_KEY, Commands.NEW_GAME);
-    provider.bindCommand( Commands.END_GAME_KEY, Commands.END_GAME);
-    provider.bindCommand( Commands.DEBUG_MODE_KEY, Commands.DEBUG_MODE);
-    provider.bindCommand( Commands.DUMP_GRID_KEY, Commands.DUMP_GRID);
-    provider.bindCommand( Commands.TOGGLE_MUSIC_KEY, Commands.TOGGLE_MUSIC );
+    target.putInt(STATE_MAGIC);
+    target.putShort( (short)Game.RULES_VERSION );
+    target.put( (byte)musicVolume );
+    target.put( (byte)(game.debugMode ? 1 : 0) );
+    game.saveState(target);
   }
 
   /**
-   * Starts a fresh, new game.
+   * Reads back what saveState() wrote and carries on from there.
+   * A game being recorded stops recording; the restored one is not recorded,
+   * since its replay would not start from a seed. A state that does not
+   * check out (Game.checkState()) changes nothing.
+   *
+   * @param source Buffer to read from at its position.
+   * @throws IllegalArgumentException if the buffer holds no Board state of these rules.
    */
-  public final void newGame()
-  {
-    grid = new Block[HEIGHT][WIDTH];
-    lockDelay = BASE_LOCK_DELAY;
-    lockCounter = 0;    
-    currentTetro = null;
-    ghostTetro = null;
-    nextTypes = new ArrayDeque<>(TetrominoInfo.TYPE_COUNT);
-    scoreKeeper = new ScoreKeeper();
-    clearCounter = 0;
-    isDefeat = false;
-    selectNextTetro();
-  }
-
-  private void spawnTetromino()
+  public void restoreState(ByteBuffer source)
   {
-    currentTetro = nextTetro;
-    moveNewTetromino();
-    summonGhostTetromino(Tetromino.DEFAULT_INIT_STATE);
-    selectNextTetro();
+    if(source.remaining() < STATE_SIZE || source.getInt() != STATE_MAGIC || source.getShort() != Game.RULES_VERSION)
+    {
+      throw new IllegalArgumentException("Board: not a saved state of these rules");
+    }
+    int savedVolume = source.get();
+    boolean savedDebugMode = (source.get() != 0);
+    if(savedVolume < 0 || savedVolume > 1)
+    {
+      throw new IllegalArgumentException("Board: bad music volume " + savedVolume);
+    }
+    Game.checkState(source);
+    stopRecording();
+    musicVolume = savedVolume;
+    bgm.setVolume(musicVolume);
+    game.debugMode = savedDebugMode;
+    game.restoreState(source);
+    listenToGame();
   }
 
-  /**
-   * Wipes all Blocks at Ghost Tetro's position.
-   */
-  public void killGhostTetro()
+  // resumes the state saved by the last run, if any; saving goes on every frame from here
+  private void openStateFile()
   {
-    if(ghostTetro != null)
+    String statePath = System.getProperty(STATE_FILE_PROPERTY);
+    if(statePath == null)
     {
-      ghostTetro.kill(grid);
-      ghostTetro = null;
+      return;
+    }
+    try
+    {
+      stateFile = new StateFile(Paths.get(statePath), STATE_SIZE);
+      ByteBuffer saved = stateFile.load();
+      if(saved != null)
+      {
+        restoreState(saved);
+      }
+    }
+    catch(IOException | IllegalArgumentException e)
+    {
+      System.err.println("Could not resume saved state: " + e);
     }
   }
 
-  // PRECONDITION: currentTetro pointing to new Tetromino
-  private void moveNewTetromino()
+  private void saveToStateFile()
   {
-    currentTetro.moveToSpawn(grid);
+    saveState( stateFile.startSave() );
+    stateFile.finishSave();
   }
 
   /**
-   * Creates a Ghost Tetromino under the current Tetromino.
-   * 
-   * @param Staring orientation state.
+   * Forces game over at this exact movement; does nothing once the game is lost.
    */
-  public void summonGhostTetromino(int state)
-  {
-    ghostTetro = new Tetromino( currentTetro.getType(),
-            currentTetro.getX(),
-            currentTetro.getY(),
-            true,
-            state);
-    hardDropGhost();
-  }
-
-  private void selectNextTetro()
-  {
-    TetrominoType type = getNextTetroType();
-    Point spawnPoint = TetrominoInfo.getSpawnPoint( type );
-    float spawnX = spawnPoint.getX();
-    float spawnY = spawnPoint.getY();
-
-    nextTetro = new Tetromino( type,
-            Offsets.NEXT_TETRO_X + (spawnX-Offsets.SPAWN_X)*BLOCK_SIZE,
-            Offsets.NEXT_TETRO_Y + (spawnY-Offsets.SPAWN_Y)*BLOCK_SIZE,
-            false);
-  }
-
-  private TetrominoType getNextTetroType()
+  public void endGame()
   {
-    if( nextTypes.isEmpty() )
+    if(game.isDefeat())
     {
-      refillNextTypes();
+      return;
     }
-    return nextTypes.removeLast();
-  }
-
-  private void refillNextTypes()
-  {
-    ArrayList<TetrominoType> newBag = new ArrayList<>(7);
-    newBag.addAll(Arrays.asList(TetrominoType.values()));
-    Collections.shuffle(newBag);
-    for(TetrominoType type : newBag)
+    game.endGame();
+    if(recorder != null)
     {
-      nextTypes.addLast(type);
+      recorder.recordEndGame( game.getStepCount() );
+      stopRecording();
     }
   }
 
-  // current playing Tetromino reaches stop
-  private void tetroReachesFloor()
+  /**
+   * Saves the state for the next run and finishes the replay being recorded
+   * and the event log, if any; call before the window closes.
+   */
+  public void close()
   {
-    checkDefeat();
-    if(isDefeat)
+    if(stateFile != null)
     {
-      return;
+      saveToStateFile();
+      stateFile.force();
     }
-    attemptClearRows();
-    spawnTetromino();
-  }
-
-  private void checkDefeat()
-  {    
-    // defeat happens if any non-ghost Block crosses into the Waiting Room
-    for(int col = 0; col < WIDTH; col++)
+    ReplayRecorder lastRecorder = recorder;
+    stopRecording();
+    if(eventLog != null)
     {
-      Block testBlock = grid[HEIGHT_WAITING - 1][col];
-      if(testBlock != null && !(testBlock instanceof GhostBlock) )
+      eventLog.close();
+    }
+    try
+    {
+      if(lastRecorder != null)
+      {
+        lastRecorder.await(REPLAY_CLOSE_MILLIS);
+      }
+      if(eventLog != null)
       {
-        defeat();
-        break;
+        eventLog.await(REPLAY_CLOSE_MILLIS);
       }
     }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
   }
 
-  private void defeat()
+  // opens the file on the game thread, once per run; logging itself never touches I/O
+  private void openEventLog()
   {
-    isDefeat = true;
-    disableTetroControl();
+    String logPath = System.getProperty(EVENT_LOG_PROPERTY);
+    if(logPath == null)
+    {
+      return;
+    }
+    try
+    {
+      eventLog = EventLog.open( Paths.get(logPath) );
+      listenToGame();
+    }
+    catch(IOException e)
+    {
+      System.err.println("Could not log events: " + e);
+    }
   }
-  
-  private void disableTetroControl()
+
+  // after every new or restored Game, so the log's steps start over with it
+  private void listenToGame()
   {
-    currentTetro = null;
+    if(eventLog != null)
+    {
+      game.setListener(eventLog);
+      eventLog.gameStarted(game);
+    }
   }
 
-  private void attemptClearRows()
+  // opens the file on the game thread, once per game; recording itself never touches I/O
+  private void startRecording(long seed)
   {
-    ArrayDeque<Integer> clearedRows = new ArrayDeque<>(TetrominoInfo.BLOCK_COUNT);
-    boolean didClearRow;    
-    
-    int row = HEIGHT-1;
-    while(row >= HEIGHT_WAITING)
+    if(replayDir == null)
     {
-      didClearRow = true;
-      for(int col = 0; col < WIDTH; col++)
-      {
-        if(grid[row][col] == null)
-        {
-          didClearRow = false;
-          break;
-        }
-      }
-      if(didClearRow)
-      {
-        clearedRows.addFirst(row);
-      }
-      row--;
+      return;
     }
-
-    if(clearedRows.size() > 0)
+    try
+    {
+      Files.createDirectories(replayDir);
+      recorder = ReplayRecorder.open(replayDir.resolve(Long.toHexString(seed) + REPLAY_EXTENSION), seed);
+    }
+    catch(IOException e)
     {
-      clearRows( clearedRows );      
+      System.err.println("Could not record replay: " + e);
     }
   }
 
-  private void clearRows(ArrayDeque<Integer> clearedRows)
+  private void stopRecording()
   {
-    // Blocks far above can get removed several times
-    // but the optimal algorithm is not worth the time right now
-    for(Integer row : clearedRows)
+    if(recorder != null)
     {
-      dropDownRowsAt(row);
+      recorder.stop( game.getStepCount() );
+      recorder = null;
     }
-    
-    scoreKeeper.clearedRows( clearedRows.size() );
-    clearCounter += clearedRows.size();
-    if(clearCounter >= CLEARS_PER_LEVEL)
+  }
+
+  private void record(Action action)
+  {
+    if(recorder != null)
     {
-      int levelIncrease = clearCounter/CLEARS_PER_LEVEL;
-      scoreKeeper.levelUp( levelIncrease );
-      lockDelay = Math.max(MIN_LOCK_DELAY, lockDelay - LOCK_DELAY_DECREMENT_PER_LEVEL * levelIncrease);
-      clearCounter %= CLEARS_PER_LEVEL;
+      recorder.record(game.getStepCount(), action);
     }
   }
 
-  private void dropDownRowsAt(int startRow)
+  private void setupControl(GameContainer gameContainer)
   {
-    /*
-    would be much more efficient if we could
-    store the max height of the Tetris tower
-    and only loop that much    
-    */
-    for(int row = startRow; row >= 1; row--)
-    {
-      for(int col = 0; col < WIDTH; col++)
-      {
-        grid[row][col] = grid[row - 1][col];
+    Input input = gameContainer.getInput();
+    input.enableKeyRepeat();
+    InputProvider provider = new InputProvider( input );
+    provider.addListener( new Control(this) );
 
-        Block movedBlock = grid[row][col];
-        if(movedBlock != null)
-        {
-          movedBlock.setPosition( movedBlock.getX(), movedBlock.getY() + Board.BLOCK_SIZE );
-        }
-      }
-    }
+    provider.bindCommand( Commands.MOVE_LEFT_KEY, Commands.MOVE_LEFT);
+    provider.bindCommand( Commands.MOVE_RIGHT_KEY, Commands.MOVE_RIGHT);
+    provider.bindCommand( Commands.MOVE_DOWN_KEY, Commands.MOVE_DOWN);
+
+    provider.bindCommand( Commands.HARD_DROP_KEY, Commands.HARD_DROP);
+    provider.bindCommand( Commands.ROTATE_LEFT_KEY, Commands.ROTATE_LEFT);
+    provider.bindCommand( Commands.ROTATE_RIGHT_KEY1, Commands.ROTATE_RIGHT);
+    provider.bindCommand( Commands.ROTATE_RIGHT_KEY2, Commands.ROTATE_RIGHT);
+
+    provider.bindCommand( Commands.NEW_GAME_KEY, Commands.NEW_GAME);
+    provider.bindCommand( Commands.END_GAME_KEY, Commands.END_GAME);
+    provider.bindCommand( Commands.DEBUG_MODE_KEY, Commands.DEBUG_MODE);
+    provider.bindCommand( Commands.DUMP_GRID_KEY, Commands.DUMP_GRID);
+    provider.bindCommand( Commands.TOGGLE_MUSIC_KEY, Commands.TOGGLE_MUSIC );
   }
 
   /**
@@ -326,41 +348,15 @@ public class Board
    */
   public void update(GameContainer gameContainer, int deltaTime)
   {
-    updateTicker(gameContainer, deltaTime);
-  }
-
-  private void updateTicker(GameContainer gameContainer, int deltaTime)
-  {
-    lockCounter += deltaTime;
-    if(lockCounter >= lockDelay)
-    {
-      lockCounter = 0;
-      tick(gameContainer);
-    }    
-  }
-    
-  private void tick(GameContainer gameContainer)
-  {
-    if(debugMode)
-    {
-      System.out.println("Tick!");
-    }
-    if(isDefeat)
-    {
-      return;
-    }
-    if(currentTetro == null)
+    game.update(deltaTime);
+    if(recorder != null && game.isDefeat())
     {
-      spawnTetromino();
+      stopRecording();
     }
-    else if( canMoveDown() )
+    if(stateFile != null)
     {
-      moveDownWithoutCheck();
+      saveToStateFile(); // a crash loses at most this frame
     }
-    else
-    {
-      tetroReachesFloor();
-    }    
   }
     
   /**
@@ -374,13 +370,13 @@ public class Board
     renderNextTetroField(gameContainer, graphics);
     renderTetromino(gameContainer, graphics);
     renderGameFieldBorder(gameContainer, graphics);
-    scoreKeeper.render(gameContainer, graphics);
+    renderScore(gameContainer, graphics);
 
-    if(isDefeat)
+    if(game.isDefeat())
     {
       renderGameOver(gameContainer, graphics);
     }
-    if(debugMode)
+    if(game.debugMode)
     {
       renderMouse(gameContainer, graphics);
       renderLockDelay(gameContainer, graphics);
@@ -441,155 +437,160 @@ public class Board
 
   private void renderTetromino(GameContainer gameContainer, Graphics graphics)
   {
-    nextTetro.render(gameContainer, graphics);
+    Tetromino nextTetro = game.getNextTetro();
+    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
+    {
+      Block nextBlock = nextTetro.getBlock(blockIndex);
+      renderBlock(nextTetro.getType(),
+              Offsets.NEXT_TETRO_X + (nextBlock.getGridX() - Offsets.SPAWN_X) * BLOCK_SIZE,
+              Offsets.NEXT_TETRO_Y + (nextBlock.getGridY() - Offsets.SPAWN_Y) * BLOCK_SIZE,
+              graphics);
+    }
 
+    renderGhostTetro(graphics);
     for(int row = HEIGHT_WAITING; row < HEIGHT; row++)
     {
       for(int col = 0; col < WIDTH; col++)
       {
-        Block blockToRender = grid[row][col];
-        if(blockToRender != null)
+        TetrominoType typeToRender = game.getCell(row, col);
+        if(typeToRender != null)
         {
-          blockToRender.render(gameContainer, graphics);
+          renderBlock(typeToRender, gridToPixelX(col), gridToPixelY(row), graphics);
         }
       }
     }
 
-  }
-
-  private void renderGameOver(GameContainer gameContainer, Graphics graphics)
-  {
-    graphics.setColor( Color.white);
-    graphics.drawString("GAME OVER !", Offsets.GAMEOVER_X, Offsets.GAMEOVER_Y);
-  }
-
-  private void renderMouse(GameContainer gameContainer, Graphics graphics)
-  {
-    Input input = gameContainer.getInput();
-    graphics.setColor( Color.white );
-    graphics.drawString("Mouse: " + input.getMouseX() + ", " + input.getMouseY(), Offsets.MOUSE_X, Offsets.MOUSE_Y);
-  }
+    Tetromino currentTetro = game.getCurrentTetro();
+    if(currentTetro != null)
+    {
+      for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
+      {
+        Block currentBlock = currentTetro.getBlock(blockIndex);
+        if(currentBlock.getGridY() >= HEIGHT_WAITING)
+        {
+          renderBlock(currentTetro.getType(), gridToPixelX(currentBlock.getGridX()), gridToPixelY(currentBlock.getGridY()), graphics);
+        }
+      }
+    }
 
-  private void renderLockDelay(GameContainer gameContainer, Graphics graphics)
-  {
-    graphics.setColor( Color.white );
-    graphics.drawString("Lock Delay: " + lockDelay, Offsets.MOUSE_X, Offsets.MOUSE_Y + Offsets.NEWLINE);
   }
 
-  /**
-   * Move the Tetromino to the down.
-   */
-  public void moveDown()
+  // drawn before the current Tetromino so that it covers the ghost
+  private void renderGhostTetro(Graphics graphics)
   {
-    if(! canMoveDown())
+    Tetromino currentTetro = game.getCurrentTetro();
+    if(currentTetro == null)
     {
       return;
     }
-    moveDownWithoutCheck();
+    int ghostCol = currentTetro.getGridX();
+    int ghostRow = game.getGhostRow();
+    graphics.setColor( GHOST_COLOR );
+    for(Point point : TetrominoInfo.getPoints(currentTetro.getType())[currentTetro.getState()])
+    {
+      int row = ghostRow + point.getY();
+      if(row < HEIGHT_WAITING)
+      {
+        continue;
+      }
+      graphics.fillRect(gridToPixelX(ghostCol + point.getX()), gridToPixelY(row), BLOCK_SIZE, BLOCK_SIZE);
+    }
   }
 
-  private void moveDownWithoutCheck()
+  private float gridToPixelX(int col)
   {
-    moveDownWithoutCheck(currentTetro);
+    return Offsets.GAME_X + col * BLOCK_SIZE;
   }
 
-  private void moveDownWithoutCheck(Tetromino tetromino)
+  private float gridToPixelY(int row)
   {
-    
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
+    return Offsets.GAME_Y + (row - HEIGHT_WAITING) * BLOCK_SIZE;
+  }
+
+  private void renderBlock(TetrominoType type, float x, float y, Graphics graphics)
+  {
+    if(BLOCK_SIZE != TetrominoSkin.PREFERRED_BLOCK_SIZE)
     {
-      Block oldBlock = tetromino.getBlock( blockIndex );
-      grid[ (int)oldBlock.getGridY() ][ (int)oldBlock.getGridX() ] = null;
+      graphics.setColor( TetrominoSkin.getColor(type) );
+      graphics.fillRect(x, y, BLOCK_SIZE, BLOCK_SIZE);
+      graphics.setColor( BLOCK_BORDER );
+      graphics.drawRect(x, y, BLOCK_SIZE, BLOCK_SIZE);
     }
-    
-    // NOTE: This separation of loops is intentional, to prevent overwriting.
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block moveBlock = tetromino.getBlock( blockIndex );
-      grid[ (int)moveBlock.getGridY() +1 ][ (int)moveBlock.getGridX() ] = moveBlock;
+    else{
+      graphics.drawImage(TetrominoSkin.getImage(type), x, y);
     }
-
-    tetromino.moveDown();
   }
 
-  /**
-   * While can still move down, do move down.
-   */
-  public void hardDrop()
+  private void renderScore(GameContainer gameContainer, Graphics graphics)
   {
-    while(canMoveDown())
-    {
-      moveDownWithoutCheck();
-    }
-    lockCounter = 0;
-    tetroReachesFloor();
+    ScoreKeeper scoreKeeper = game.getScoreKeeper();
+    levelNumber.set( scoreKeeper.getLevel() );
+    clearedNumber.set( scoreKeeper.getClearedCount() );
+    scoreNumber.set( Math.round(scoreKeeper.getScore()) );
+    graphics.setColor( TEXT_COLOR );
+    renderNumber(graphics, LEVEL_TEXT_DEFAULT, levelNumber, Offsets.SCORE_X, Offsets.SCORE_Y);
+    renderNumber(graphics, CLEARED_TEXT_DEFAULT, clearedNumber, Offsets.SCORE_X, Offsets.SCORE_Y + Offsets.NEWLINE);
+    renderNumber(graphics, SCORE_TEXT_DEFAULT, scoreNumber, Offsets.SCORE_X, Offsets.SCORE_Y + 2*Offsets.NEWLINE);
   }
 
-  private void hardDropGhost()
+  // the label, then each digit right-aligned in a cell of its own; returns the x after the number
+  private float renderNumber(Graphics graphics, String label, NumberText number, float x, float y)
   {
-    while(canMoveDown(ghostTetro))
+    Font font = graphics.getFont();
+    graphics.drawString(label, x, y);
+    float cellX = x + font.getWidth(label);
+    int cellWidth = font.getWidth(WIDEST_DIGIT);
+    for(int slot = 0; slot < number.getWidth(); slot++)
     {
-      moveDownWithoutCheck(ghostTetro);
+      String glyph = number.getGlyph(slot);
+      if(glyph != null)
+      {
+        graphics.drawString(glyph, cellX + cellWidth - font.getWidth(glyph), y);
+      }
+      cellX += cellWidth;
     }
+    return cellX;
   }
 
-  private void moveTetroOverGhost()
+  private void renderGameOver(GameContainer gameContainer, Graphics graphics)
   {
-    currentTetro.syncGrid(grid);
+    graphics.setColor( Color.white);
+    graphics.drawString("GAME OVER !", Offsets.GAMEOVER_X, Offsets.GAMEOVER_Y);
   }
 
-  private boolean canMoveDown()
+  private void renderMouse(GameContainer gameContainer, Graphics graphics)
   {
-    return canMoveDown(currentTetro);
+    Input input = gameContainer.getInput();
+    graphics.setColor( Color.white );
+    mouseXNumber.set( input.getMouseX() );
+    mouseYNumber.set( input.getMouseY() );
+    float x = renderNumber(graphics, MOUSE_TEXT_DEFAULT, mouseXNumber, Offsets.MOUSE_X, Offsets.MOUSE_Y);
+    renderNumber(graphics, MOUSE_TEXT_SEPARATOR, mouseYNumber, x, Offsets.MOUSE_Y);
   }
 
-  private boolean canMoveDown(Tetromino tetromino)
+  private void renderLockDelay(GameContainer gameContainer, Graphics graphics)
   {
-    if(tetromino == null)
-    {
-      return false;
-    }
-
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block moveBlock = tetromino.getBlock(blockIndex);
-      int targetRow = (int)moveBlock.getGridY() +1;
-      if(targetRow >= HEIGHT)
-      {
-        return false;
-      }
-      Block targetBlock = grid[ (int)moveBlock.getGridY() +1 ][ (int)moveBlock.getGridX() ];
-      if( unpathableBlock(targetBlock) )
-      {
-        return false;
-      }
-    }    
-
-    return true;
+    graphics.setColor( Color.white );
+    lockDelayNumber.set( game.getLockDelay() );
+    renderNumber(graphics, LOCK_DELAY_TEXT_DEFAULT, lockDelayNumber, Offsets.MOUSE_X, Offsets.MOUSE_Y + Offsets.NEWLINE);
   }
 
   /**
-   * Returns true if that Block cannot be overwritten.
-   *
-   * @param targetBlock Target Block.
-   * @param movingTetro Non-ghost Tetromino trying to move.
-   * @return True if that Block cannot be overwritten.
+   * Move the Tetromino to the down.
    */
-  public boolean unpathableBlock(Block targetBlock)
+  public void moveDown()
   {
-    return unpathableBlock(targetBlock, currentTetro);
+    game.moveDown();
+    record(Action.MOVE_DOWN);
   }
 
   /**
-   * Returns true if that Block cannot be overwritten.
-   *
-   * @param targetBlock Target Block.
-   * @param movingTetro Non-ghost Tetromino trying to move.
-   * @return True if that Block cannot be overwritten.
+   * While can still move down, do move down.
    */
-  public boolean unpathableBlock(Block targetBlock, Tetromino movingTetro)
+  public void hardDrop()
   {
-    return targetBlock != null && !(targetBlock instanceof GhostBlock) && !movingTetro.hasBlock(targetBlock);
+    game.hardDrop();
+    record(Action.HARD_DROP);
   }
 
   /**
@@ -597,155 +598,75 @@ public class Board
    */
   public void moveLeft()
   {
-    if(! canMoveLeft())
-    {
-      return;
-    }
-
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block oldBlock = currentTetro.getBlock( blockIndex );
-      grid[ (int)oldBlock.getGridY() ][ (int)oldBlock.getGridX() ] = null;
-    }
-    
-    // NOTE: This separation of loops is intentional, to prevent overwriting.
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block moveBlock = currentTetro.getBlock( blockIndex );
-      grid[ (int)moveBlock.getGridY() ][ (int)moveBlock.getGridX() -1 ] = moveBlock;
-    }
-
-    currentTetro.moveLeft();
-    killGhostTetro();
-    summonGhostTetromino(currentTetro.getState());
-    moveTetroOverGhost();
+    game.moveLeft();
+    record(Action.MOVE_LEFT);
   }
 
   /**
-   * Returns true if current Tetromino can move left by 1 step.
-   * @return True if current Tetromino can move left by 1 step.
+   * Move the Tetromino to the right.
    */
-  public boolean canMoveLeft()
+  public void moveRight()
   {
-    if(currentTetro == null)
-    {
-      return false;
-    }
-
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block moveBlock = currentTetro.getBlock(blockIndex);
-      int targetCol = (int)moveBlock.getGridX() -1;
-      if(targetCol < 0)
-      {
-        return false;
-      }
-      Block targetBlock = grid[ (int)moveBlock.getGridY() ][ (int)moveBlock.getGridX() -1 ];
-      if( unpathableBlock(targetBlock) )
-      {
-        return false;
-      }
-    }    
-
-    return true;
+    game.moveRight();
+    record(Action.MOVE_RIGHT);
   }
 
   /**
-   * Move the Tetromino to the right.
+   * Rotates the Tetromino counter-clockwise.
    */
-  public void moveRight()
+  public void rotateLeft()
   {
-    if(! canMoveRight())
-    {
-      return;
-    }
-
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block oldBlock = currentTetro.getBlock( blockIndex );
-      grid[ (int)oldBlock.getGridY() ][ (int)oldBlock.getGridX() ] = null;
-    }
-    
-    // NOTE: This separation of loops is intentional, to prevent overwriting.
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block moveBlock = currentTetro.getBlock( blockIndex );
-      grid[ (int)moveBlock.getGridY() ][ (int)moveBlock.getGridX() +1 ] = moveBlock;
-    }
-      
-    currentTetro.moveRight();
-    killGhostTetro();
-    summonGhostTetromino(currentTetro.getState());
-    moveTetroOverGhost();
+    game.rotateLeft();
+    record(Action.ROTATE_LEFT);
   }
 
   /**
-   * Returns true if current Tetromino can move right by 1 step.
-   * @return True if current Tetromino can move right by 1 step.
+   * Rotates the Tetromino clockwise.
    */
-  public boolean canMoveRight()
+  public void rotateRight()
   {
-    if(currentTetro == null)
-    {
-      return false;
-    }
-        
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block moveBlock = currentTetro.getBlock(blockIndex);
-      int targetCol = (int)moveBlock.getGridX() +1;
-      if(targetCol >= WIDTH)
-      {
-        return false;
-      }
-      Block targetBlock = grid[ (int)moveBlock.getGridY() ][ (int)moveBlock.getGridX() +1 ];
-      if( unpathableBlock(targetBlock) )
-      {
-        return false;
-      }
-    }
+    game.rotateRight();
+    record(Action.ROTATE_RIGHT);
+  }
 
-    return true;
+  /**
+   * Starts a fresh, new game.
+   */
+  public void newGame()
+  {
+    stopRecording();
+    // a fresh Game per game, so each replay starts from its own seed
+    long seed = System.nanoTime();
+    boolean debugMode = game.debugMode;
+    game = new Game(seed);
+    game.debugMode = debugMode;
+    startRecording(seed);
+    listenToGame();
   }
 
   /**
-   * Rotates the Tetromino counter-clockwise.
-   * Tetromino deals with the collision checking.
+   * Dumps the contents of the grid for debugging.
    */
-  public void rotateLeft()
+  public void dumpGrid()
   {
-    if(currentTetro != null)
-    {
-      currentTetro.rotateLeft(grid, this);
-    }
+    game.dumpGrid();
   }
 
   /**
-   * Rotates the Tetromino clockwise.
-   * Tetromino deals with the collision checking.
+   * Returns true if debug mode is on.
+   * @return True if debug mode is on.
    */
-  public void rotateRight()
+  public boolean isDebugMode()
   {
-    if(currentTetro != null)
-    {
-      currentTetro.rotateRight(grid, this);
-    }
+    return game.debugMode;
   }
 
   /**
-   * Dumps the contents of the grid for debugging.
+   * Toggles debug mode on/off.
    */
-  public void dumpGrid()
+  public void toggleDebugMode()
   {
-    for(int row = 0; row < HEIGHT; row++)
-    {
-      System.out.print(row + "\t");
-      for(int col= 0; col < WIDTH;col++)
-      {
-        System.out.print( ( grid[row][col] == null) ? "0" : "#" );
-      }
-      System.out.println();
-    }
+    game.debugMode = !game.debugMode;
   }
 
   /**
@@ -26,7 +26,7 @@ public class Control implements InputProviderListener
   {
     if( command.equals(Commands.DEBUG_MODE) )
     {
-      board.debugMode = !board.debugMode;
+      board.toggleDebugMode();
     }
     else if( command.equals(Commands.MOVE_DOWN) )
     {
@@ -65,7 +65,7 @@ public class Control implements InputProviderListener
       board.toggleMusic();
     }
     
-    if(board.debugMode)
+    if(board.isDebugMode())
     {      
       if( command.equals(Commands.DUMP_GRID) )
       {
@@ -0,0 +1,98 @@
+package tetris;
+
+/**
+ * Turns variable frame times into a count of fixed logic steps.
+ * Leftover time stays in the accumulator for the next frame, so a long
+ * frame catches up on every step it missed and a short one may run none.
+ * The clock never reads the wall clock itself; whoever owns it feeds
+ * it time, or skips it entirely and steps the Game by hand.
+ *
+ * @author Daniel Rolandi
+ */
+public class FixedStepClock
+{
+  private final int stepMillis;
+  private final int maxStepsPerAdvance;
+  private int accumulator; // milliseconds not yet turned into steps
+
+  /**
+   * Inits an empty clock.
+   *
+   * @param stepMillis Length of one logic step in milliseconds.
+   * @param maxStepsPerAdvance Cap on the steps one advance() may return;
+   * time beyond it (e.g. after the window was dragged) is dropped.
+   */
+  public FixedStepClock(int stepMillis, int maxStepsPerAdvance)
+  {
+    if(stepMillis <= 0 || maxStepsPerAdvance <= 0)
+    {
+      throw new IllegalArgumentException("FixedStepClock: step and cap must be positive");
+    }
+    this.stepMillis = stepMillis;
+    this.maxStepsPerAdvance = maxStepsPerAdvance;
+    accumulator = 0;
+  }
+
+  /**
+   * Adds elapsed time and returns how many logic steps are now due.
+   *
+   * @param deltaTime Elapsed time in milliseconds.
+   * @return Count of steps to run now.
+   */
+  public int advance(int deltaTime)
+  {
+    accumulator += Math.max(0, deltaTime);
+    int steps = accumulator / stepMillis;
+    if(steps > maxStepsPerAdvance)
+    {
+      steps = maxStepsPerAdvance;
+      accumulator %= stepMillis;
+    }
+    else
+    {
+      accumulator -= steps * stepMillis;
+    }
+    return steps;
+  }
+
+  /**
+   * Drops any accumulated time.
+   */
+  public void reset()
+  {
+    accumulator = 0;
+  }
+
+  /**
+   * Puts back saved time waiting for the next step.
+   *
+   * @param accumulator Time in milliseconds, less than one step.
+   */
+  public void setAccumulator(int accumulator)
+  {
+    if(accumulator < 0 || accumulator >= stepMillis)
+    {
+      throw new IllegalArgumentException("FixedStepClock: accumulator must be in [0, stepMillis)");
+    }
+    this.accumulator = accumulator;
+  }
+
+  /**
+   * Returns the length of one logic step.
+   * @return The length of one logic step in milliseconds.
+   */
+  public int getStepMillis()
+  {
+    return stepMillis;
+  }
+
+  /**
+   * Returns the time waiting for the next step.
+   * @return The accumulated time in milliseconds, less than one step.
+   */
+  public int getAccumulator()
+  {
+    return accumulator;
+  }
+
+}
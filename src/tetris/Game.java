@@ -0,0 +1,1055 @@
+package tetris;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Contains the game rules: the grid, the falling Tetromino,
+ * row clearing, scoring and the 7-bag.
+ * Does not depend on Slick, so it can run headless; Board is the view on top.
+ *
+ * @author Daniel Rolandi
+ */
+public class Game implements LockedRows
+{
+  public static final int WIDTH = 10;
+  public static final int HEIGHT = 26; // includes Waiting Room
+  public static final int HEIGHT_WAITING = 6; // Waiting Room height
+  public static final int HEIGHT_GAME = HEIGHT - HEIGHT_WAITING;
+  // bump whenever a rule change makes the same seed and inputs play out differently, e.g. old replays
+  public static final int RULES_VERSION = 1;
+
+  private static final int BASE_LOCK_DELAY = 1000;
+  public static final int MIN_LOCK_DELAY = 100;
+  private static final int LOCK_DELAY_DECREMENT_PER_LEVEL = 80;
+  public static final int CLEARS_PER_LEVEL = 4;
+  public static final int STEP_MILLIS = 10; // one logic step; divides every lock delay
+  private static final int MAX_STEPS_PER_UPDATE = 500;
+
+  private static final byte EMPTY_CELL = 0;
+  private static final int CELL_BITS = 3; // a cell code per 3 bits, a row per int
+  private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+  private static final int DEFEAT_FLAG = 1;
+  private static final int FALLING_FLAG = 2;
+  private static final int NO_TYPE = -1;
+  // see saveState() for the layout
+  public static final int STATE_SIZE = 8 + 5 * 4 + 3 * 4 + 1 + 4 + 1 + BagRandomizer.STATE_SIZE + HEIGHT * 4;
+  private static final TetrominoType[] TYPES = TetrominoType.values();
+  static
+  {
+    if(WIDTH * CELL_BITS > Integer.SIZE || TYPES.length > CELL_MASK)
+    {
+      throw new IllegalStateException("Game: a row of cell codes must fit in an int");
+    }
+  }
+
+  private int lockDelay; // milliseconds
+  private int lockCounter; // milliseconds
+  private final FixedStepClock clock;
+  private long stepCount;
+
+  public boolean debugMode = false;
+
+  // locked cells only; the current Tetromino is drawn from its own Blocks
+  private final byte[] cells; // row-major, type ordinal + 1, or EMPTY_CELL
+  private final BitGrid lockedGrid; // same cells as bitmasks, for collisions
+  private long gridHash; // Zobrist hash of the locked cells, kept in step with cells
+  private Tetromino currentTetro;
+  private Tetromino nextTetro;
+  private final Tetromino[] tetroPool; // current and next take turns
+  private final Randomizer randomizer;
+  private final ScoreKeeper scoreKeeper;
+  private boolean isDefeat;
+  private int clearCounter;
+  private int piecesPlaced;
+  private GameListener listener; // null unless someone listens
+
+
+  /**
+   * Inits the Game with a time-based seed and starts a fresh, new game.
+   */
+  public Game()
+  {
+    this( System.nanoTime() );
+  }
+
+  /**
+   * Inits the Game with a 7-bag seeded with that value
+   * and starts a fresh, new game.
+   * Games built with the same seed and fed the same inputs play out the same.
+   *
+   * @param seed Seed of the piece sequence.
+   */
+  public Game(long seed)
+  {
+    this( new BagRandomizer(seed) );
+  }
+
+  /**
+   * Inits the Game with that piece source and starts a fresh, new game.
+   *
+   * @param randomizer Piece source, owned by this Game from now on.
+   */
+  public Game(Randomizer randomizer)
+  {
+    this.randomizer = randomizer;
+    cells = new byte[HEIGHT * WIDTH];
+    lockedGrid = new BitGrid();
+    tetroPool = new Tetromino[2];
+    for(int index = 0; index < tetroPool.length; index++)
+    {
+      tetroPool[index] = new Tetromino(TYPES[0], 0, 0);
+    }
+    scoreKeeper = new ScoreKeeper();
+    clock = new FixedStepClock(STEP_MILLIS, MAX_STEPS_PER_UPDATE);
+    newGame();
+  }
+
+  /**
+   * Forces game over at this exact movement; does nothing once the game is lost.
+   */
+  public void endGame()
+  {
+    defeat();
+  }
+
+  /**
+   * Starts a fresh, new game.
+   */
+  public final void newGame()
+  {
+    Arrays.fill(cells, EMPTY_CELL);
+    lockedGrid.clear();
+    gridHash = 0;
+    lockDelay = BASE_LOCK_DELAY;
+    lockCounter = 0;
+    clock.reset();
+    stepCount = 0;
+    currentTetro = null;
+    randomizer.clear();
+    scoreKeeper.reset();
+    clearCounter = 0;
+    piecesPlaced = 0;
+    isDefeat = false;
+    selectNextTetro();
+  }
+
+  private void spawnTetromino()
+  {
+    currentTetro = nextTetro;
+    moveNewTetromino();
+    selectNextTetro();
+    if(listener != null)
+    {
+      listener.tetrominoSpawned(this, currentTetro);
+    }
+  }
+
+  // PRECONDITION: currentTetro pointing to new Tetromino
+  private void moveNewTetromino()
+  {
+    currentTetro.moveToSpawn();
+  }
+
+  private void selectNextTetro()
+  {
+    TetrominoType type = randomizer.next();
+    Point spawnPoint = TetrominoInfo.getSpawnPoint( type );
+
+    // reuse whichever pooled Tetromino is not falling right now
+    nextTetro = (currentTetro == tetroPool[0]) ? tetroPool[1] : tetroPool[0];
+    // Board draws it in the Next-Tetromino field, relative to the spawn point
+    nextTetro.reset( type, spawnPoint.getX(), spawnPoint.getY() );
+  }
+
+  // current playing Tetromino reaches stop
+  private void tetroReachesFloor()
+  {
+    lockTetromino();
+    checkDefeat();
+    if(isDefeat)
+    {
+      return;
+    }
+    attemptClearRows();
+    spawnTetromino();
+  }
+
+  private void lockTetromino()
+  {
+    if(currentTetro == null)
+    {
+      return;
+    }
+    TetrominoType type = currentTetro.getType();
+    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
+    {
+      Block lockBlock = currentTetro.getBlock( blockIndex );
+      lockedGrid.set( lockBlock.getGridY(), lockBlock.getGridX() );
+      cells[ lockBlock.getGridY() * WIDTH + lockBlock.getGridX() ] = (byte)(type.ordinal() + 1);
+      gridHash ^= Zobrist.cellKey( lockBlock.getGridY(), lockBlock.getGridX(), type );
+    }
+    piecesPlaced++;
+    if(listener != null)
+    {
+      listener.tetrominoLocked(this, currentTetro);
+    }
+  }
+
+  private void checkDefeat()
+  {
+    // defeat happens if any locked Block crosses into the Waiting Room
+    if( !lockedGrid.isRowEmpty(HEIGHT_WAITING - 1) )
+    {
+      defeat();
+    }
+  }
+
+  private void defeat()
+  {
+    if(isDefeat)
+    {
+      return; // a lost game is not lost again, e.g. by a hard drop or endGame() after game over
+    }
+    isDefeat = true;
+    disableTetroControl();
+    if(listener != null)
+    {
+      listener.defeat(this);
+    }
+  }
+
+  private void disableTetroControl()
+  {
+    currentTetro = null;
+  }
+
+  private void attemptClearRows()
+  {
+    int stackTop = lockedGrid.getStackTop();
+    int clearedCount = lockedGrid.clearFullRows();
+    if(clearedCount > 0)
+    {
+      dropDownRows(stackTop, clearedCount);
+      clearRows( clearedCount );
+    }
+  }
+
+  private void clearRows(int clearedCount)
+  {
+    scoreKeeper.clearedRows( clearedCount );
+    clearCounter += clearedCount;
+    if(listener != null)
+    {
+      listener.rowsCleared(this, clearedCount);
+    }
+    if(clearCounter >= CLEARS_PER_LEVEL)
+    {
+      int levelIncrease = clearCounter/CLEARS_PER_LEVEL;
+      scoreKeeper.levelUp( levelIncrease );
+      lockDelay = Math.max(MIN_LOCK_DELAY, lockDelay - LOCK_DELAY_DECREMENT_PER_LEVEL * levelIncrease);
+      clearCounter %= CLEARS_PER_LEVEL;
+      if(listener != null)
+      {
+        listener.levelUp(this, scoreKeeper.getLevel());
+      }
+    }
+  }
+
+  // mirrors BitGrid.clearFullRows on the cell types:
+  // one bottom-up pass, each surviving row moves at most once
+  private void dropDownRows(int stackTop, int clearedCount)
+  {
+    int clearedIndex = 0;
+    int writeRow = HEIGHT - 1;
+    for(int readRow = HEIGHT - 1; readRow >= stackTop; readRow--)
+    {
+      if(clearedIndex < clearedCount && lockedGrid.getClearedRow(clearedIndex) == readRow)
+      {
+        clearedIndex++;
+        unhashRow(readRow, readRow);
+        continue;
+      }
+      if(writeRow != readRow)
+      {
+        unhashRow(readRow, writeRow);
+        System.arraycopy(cells, readRow * WIDTH, cells, writeRow * WIDTH, WIDTH);
+      }
+      writeRow--;
+    }
+    Arrays.fill(cells, stackTop * WIDTH, (writeRow + 1) * WIDTH, EMPTY_CELL);
+  }
+
+  // takes the cells of readRow out of gridHash, and puts them back at writeRow unless it is the same row
+  private void unhashRow(int readRow, int writeRow)
+  {
+    for(int col = 0; col < WIDTH; col++)
+    {
+      byte cell = cells[readRow * WIDTH + col];
+      if(cell == EMPTY_CELL)
+      {
+        continue;
+      }
+      TetrominoType type = TYPES[cell - 1];
+      gridHash ^= Zobrist.cellKey(readRow, col, type);
+      if(writeRow != readRow)
+      {
+        gridHash ^= Zobrist.cellKey(writeRow, col, type);
+      }
+    }
+  }
+
+  /**
+   * Advances the clock by a frame time and runs every logic step now due.
+   *
+   * @param deltaTime Time interval in milliseconds.
+   * @return Count of logic steps that ran.
+   */
+  public int update(int deltaTime)
+  {
+    int steps = clock.advance(deltaTime);
+    step(steps);
+    return steps;
+  }
+
+  /**
+   * Runs exactly one logic step of STEP_MILLIS, with no wall clock involved.
+   * Replays and headless runs call this directly.
+   */
+  public void step()
+  {
+    stepCount++;
+    lockCounter += STEP_MILLIS;
+    if(lockCounter >= lockDelay)
+    {
+      // keep the remainder so the tick rate does not drift
+      lockCounter -= lockDelay;
+      tick();
+    }
+  }
+
+  /**
+   * Runs that many logic steps back to back.
+   *
+   * @param steps Count of logic steps.
+   */
+  public void step(int steps)
+  {
+    for(int index = 0; index < steps; index++)
+    {
+      step();
+    }
+  }
+
+  /**
+   * Sets who is told about spawns, moves, locks, clears and defeat from now on.
+   * Not part of the state; restoreState() tells it nothing.
+   *
+   * @param listener Listener, or null for none.
+   */
+  public void setListener(GameListener listener)
+  {
+    this.listener = listener;
+  }
+
+  /**
+   * Returns who is told about what happens in this Game.
+   * @return The listener, or null if there is none.
+   */
+  public GameListener getListener()
+  {
+    return listener;
+  }
+
+  /**
+   * Returns the count of logic steps since the game started.
+   * @return The count of logic steps since the game started.
+   */
+  public long getStepCount()
+  {
+    return stepCount;
+  }
+
+  private void tick()
+  {
+    if(isDefeat)
+    {
+      return;
+    }
+    if(currentTetro == null)
+    {
+      spawnTetromino();
+    }
+    else if( canMoveDown() )
+    {
+      moveDownWithoutCheck();
+      tetroMoved();
+    }
+    else
+    {
+      tetroReachesFloor();
+    }
+  }
+
+  /**
+   * Move the Tetromino to the down.
+   */
+  public void moveDown()
+  {
+    if(! canMoveDown())
+    {
+      return;
+    }
+    moveDownWithoutCheck();
+    tetroMoved();
+  }
+
+  private void moveDownWithoutCheck()
+  {
+    currentTetro.moveDown();
+  }
+
+  private void tetroMoved()
+  {
+    if(listener != null)
+    {
+      listener.tetrominoMoved(this, currentTetro);
+    }
+  }
+
+  private void tetroRotated(int oldState)
+  {
+    if(listener != null && currentTetro.getState() != oldState)
+    {
+      listener.tetrominoRotated(this, currentTetro);
+    }
+  }
+
+  /**
+   * While can still move down, do move down.
+   */
+  public void hardDrop()
+  {
+    int distance = dropDistance(currentTetro);
+    for(int step = 0; step < distance; step++)
+    {
+      moveDownWithoutCheck();
+    }
+    if(distance > 0)
+    {
+      tetroMoved();
+    }
+    lockCounter = 0;
+    tetroReachesFloor();
+  }
+
+  /**
+   * Locks the falling Tetromino straight at a resting position,
+   * as if it had been moved there and hard dropped.
+   * Bots use this instead of replaying the moves one by one.
+   *
+   * @param state Orientation state.
+   * @param col Col of the reference point.
+   * @param row Row of the reference point.
+   * @throws IllegalStateException if there is no falling Tetromino.
+   * @throws IllegalArgumentException if the Tetromino does not fit there or would still fall.
+   */
+  public void applyPlacement(int state, int col, int row)
+  {
+    if(currentTetro == null)
+    {
+      throw new IllegalStateException("Game: no falling Tetromino");
+    }
+    TetrominoType type = currentTetro.getType();
+    if( !fits(type, state, row, col) || fits(type, state, row + 1, col) )
+    {
+      throw new IllegalArgumentException("Game: not a resting placement: state " + state + ", col " + col + ", row " + row);
+    }
+    currentTetro.moveTo(state, col, row);
+    tetroMoved();
+    lockCounter = 0;
+    tetroReachesFloor();
+  }
+
+  private int dropDistance(Tetromino tetromino)
+  {
+    if(tetromino == null)
+    {
+      return 0;
+    }
+    return lockedGrid.dropDistance(tetromino.getType(), tetromino.getState(), tetromino.getGridY(), tetromino.getGridX());
+  }
+
+  private boolean canMoveDown()
+  {
+    return canMoveDown(currentTetro);
+  }
+
+  private boolean canMoveDown(Tetromino tetromino)
+  {
+    if(tetromino == null)
+    {
+      return false;
+    }
+
+    return fits(tetromino.getType(), tetromino.getState(), tetromino.getGridY() +1, tetromino.getGridX());
+  }
+
+  /**
+   * Returns true if a Tetromino of that type and state can sit with its
+   * reference point at (row, col). Only locked Blocks and the walls block;
+   * the moving Tetromino never does.
+   *
+   * @param type Tetromino type.
+   * @param state Orientation state.
+   * @param row Row of the reference point.
+   * @param col Col of the reference point.
+   * @return True if that placement is legal.
+   */
+  public boolean fits(TetrominoType type, int state, int row, int col)
+  {
+    return lockedGrid.fits(type, state, row, col);
+  }
+
+  /**
+   * Move the Tetromino to the left.
+   */
+  public void moveLeft()
+  {
+    if(! canMoveLeft())
+    {
+      return;
+    }
+
+    currentTetro.moveLeft();
+    tetroMoved();
+  }
+
+  /**
+   * Returns true if current Tetromino can move left by 1 step.
+   * @return True if current Tetromino can move left by 1 step.
+   */
+  public boolean canMoveLeft()
+  {
+    if(currentTetro == null)
+    {
+      return false;
+    }
+
+    return fits(currentTetro.getType(), currentTetro.getState(), currentTetro.getGridY(), currentTetro.getGridX() -1);
+  }
+
+  /**
+   * Move the Tetromino to the right.
+   */
+  public void moveRight()
+  {
+    if(! canMoveRight())
+    {
+      return;
+    }
+
+    currentTetro.moveRight();
+    tetroMoved();
+  }
+
+  /**
+   * Returns true if current Tetromino can move right by 1 step.
+   * @return True if current Tetromino can move right by 1 step.
+   */
+  public boolean canMoveRight()
+  {
+    if(currentTetro == null)
+    {
+      return false;
+    }
+
+    return fits(currentTetro.getType(), currentTetro.getState(), currentTetro.getGridY(), currentTetro.getGridX() +1);
+  }
+
+  /**
+   * Rotates the Tetromino counter-clockwise.
+   * Tetromino deals with the collision checking.
+   */
+  public void rotateLeft()
+  {
+    if(currentTetro != null)
+    {
+      int oldState = currentTetro.getState();
+      currentTetro.rotateLeft(this);
+      tetroRotated(oldState);
+    }
+  }
+
+  /**
+   * Rotates the Tetromino clockwise.
+   * Tetromino deals with the collision checking.
+   */
+  public void rotateRight()
+  {
+    if(currentTetro != null)
+    {
+      int oldState = currentTetro.getState();
+      currentTetro.rotateRight(this);
+      tetroRotated(oldState);
+    }
+  }
+
+  /**
+   * Makes that move with the falling Tetromino.
+   *
+   * @param action Move to make.
+   */
+  public void perform(Action action)
+  {
+    switch(action)
+    {
+      case MOVE_LEFT: moveLeft(); break;
+      case MOVE_RIGHT: moveRight(); break;
+      case MOVE_DOWN: moveDown(); break;
+      case HARD_DROP: hardDrop(); break;
+      case ROTATE_LEFT: rotateLeft(); break;
+      case ROTATE_RIGHT: rotateRight(); break;
+      default: throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * Returns the type of the locked Block at that grid cell, or null if empty.
+   * The falling Tetromino is not part of the locked cells.
+   *
+   * @param row Row in the grid.
+   * @param col Col in the grid.
+   * @return The type of the locked Block at that grid cell, or null if empty.
+   */
+  public TetrominoType getCell(int row, int col)
+  {
+    byte cell = cells[row * WIDTH + col];
+    return (cell == EMPTY_CELL) ? null : TYPES[cell - 1];
+  }
+
+  @Override
+  public int getRowMask(int row)
+  {
+    return lockedGrid.getRow(row);
+  }
+
+  /**
+   * Locks a Block of that type at that grid cell, as if a Tetromino had left it.
+   * Lets tools and benchmarks build a stack without playing it out;
+   * full rows are only cleared when the next Tetromino locks.
+   *
+   * @param row Row in the grid.
+   * @param col Col in the grid.
+   * @param type Type of the locked Block.
+   */
+  public void setCell(int row, int col, TetrominoType type)
+  {
+    TetrominoType oldType = getCell(row, col);
+    if(oldType != null)
+    {
+      gridHash ^= Zobrist.cellKey(row, col, oldType);
+    }
+    lockedGrid.set(row, col);
+    cells[row * WIDTH + col] = (byte)(type.ordinal() + 1);
+    gridHash ^= Zobrist.cellKey(row, col, type);
+  }
+
+  /**
+   * Returns the Zobrist hash of the locked cells only.
+   * Equal stacks hash equal whatever the falling Tetromino,
+   * which suits caching evaluations of a surface.
+   *
+   * @return The Zobrist hash of the locked cells.
+   */
+  public long getGridHash()
+  {
+    return gridHash;
+  }
+
+  /**
+   * Returns the Zobrist hash of the whole state: locked cells,
+   * falling Tetromino (type, state, position), next type and the types
+   * queued after it, up to Zobrist.QUEUE_LENGTH of them.
+   * The cell part is kept up to date as cells lock and rows clear;
+   * the Tetromino and queue parts are one table lookup each.
+   *
+   * @return The Zobrist hash of the game state.
+   */
+  public long getHash()
+  {
+    long hash = gridHash;
+    if(currentTetro != null)
+    {
+      hash ^= Zobrist.pieceKey( currentTetro.getType(), currentTetro.getState(), currentTetro.getGridX(), currentTetro.getGridY() );
+    }
+    if(nextTetro != null)
+    {
+      hash ^= Zobrist.nextKey( nextTetro.getType() );
+      int queued = Math.min(getPreviewLength() - 1, Zobrist.QUEUE_LENGTH);
+      for(int position = 0; position < queued; position++)
+      {
+        hash ^= Zobrist.queueKey( position, getPreviewType(position + 1) );
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the count of Tetrominos locked since the game started.
+   * @return The count of locked Tetrominos.
+   */
+  public int getPiecesPlaced()
+  {
+    return piecesPlaced;
+  }
+
+  /**
+   * Returns the falling Tetromino, or null if there is none.
+   * @return The falling Tetromino, or null.
+   */
+  public Tetromino getCurrentTetro()
+  {
+    return currentTetro;
+  }
+
+  /**
+   * Returns the row the current Tetromino would land on if hard dropped,
+   * which is where the Ghost Tetromino is drawn.
+   * Computed from the col masks; nothing is allocated or written to the grid.
+   * Precondition: getCurrentTetro() is not null.
+   *
+   * @return Row of the Ghost Tetromino's reference point.
+   */
+  public int getGhostRow()
+  {
+    return currentTetro.getGridY() + dropDistance(currentTetro);
+  }
+
+  /**
+   * Returns the Next-Tetromino (not yet in the grid).
+   * @return The Next-Tetromino.
+   */
+  public Tetromino getNextTetro()
+  {
+    return nextTetro;
+  }
+
+  /**
+   * Returns how many upcoming types getPreviewType can return.
+   * @return The length of the piece preview.
+   */
+  public int getPreviewLength()
+  {
+    return (int) Math.min(Integer.MAX_VALUE, 1L + randomizer.getPreviewLimit());
+  }
+
+  /**
+   * Returns an upcoming Tetromino type: 0 is the next Tetromino,
+   * 1 the one after it, and so on.
+   *
+   * @param index Position in the preview, 0 to getPreviewLength()-1.
+   * @return That upcoming Tetromino type.
+   */
+  public TetrominoType getPreviewType(int index)
+  {
+    return (index == 0) ? nextTetro.getType() : randomizer.peek(index - 1);
+  }
+
+  /**
+   * Returns the ScoreKeeper of this game.
+   * @return The ScoreKeeper of this game.
+   */
+  public ScoreKeeper getScoreKeeper()
+  {
+    return scoreKeeper;
+  }
+
+  /**
+   * Returns true if this game is over.
+   * @return True if this game is over.
+   */
+  public boolean isDefeat()
+  {
+    return isDefeat;
+  }
+
+  /**
+   * Returns the piece source of this Game, for tools that sample possible futures.
+   * Drawing from it changes the Game's pieces; only read it.
+   *
+   * @return The piece source.
+   */
+  public Randomizer getRandomizer()
+  {
+    return randomizer;
+  }
+
+  /**
+   * Returns the current lock delay in milliseconds.
+   * @return The current lock delay in milliseconds.
+   */
+  public int getLockDelay()
+  {
+    return lockDelay;
+  }
+
+  /**
+   * Returns the wall-clock time update() still needs before the next gravity tick.
+   * Hosts that block between frames can sleep that long.
+   *
+   * @return Milliseconds until the next tick, 0 if it is due.
+   */
+  public int getMillisUntilTick()
+  {
+    // the tick runs on a whole logic step, so round up to the step that reaches lockDelay
+    int stepsUntilTick = (lockDelay - lockCounter + STEP_MILLIS - 1) / STEP_MILLIS;
+    return Math.max(0, stepsUntilTick * STEP_MILLIS - clock.getAccumulator());
+  }
+
+  /**
+   * Checks a saved state without reading it in: every count and code in range,
+   * every row of the grid made of known cell codes, and the falling Tetromino
+   * fitting in that grid. Allocates nothing and leaves the buffer as it is.
+   *
+   * @param source Buffer holding a state at its position.
+   * @throws IllegalArgumentException if the buffer holds no state saveState() could have written.
+   */
+  public static void checkState(ByteBuffer source)
+  {
+    int start = source.position();
+    if(source.remaining() < STATE_SIZE)
+    {
+      throw new IllegalArgumentException("Game: saved state cut short");
+    }
+    int lockCounter = source.getInt(start + 8);
+    int lockDelay = source.getInt(start + 12);
+    int accumulator = source.getInt(start + 16);
+    int clearCounter = source.getInt(start + 20);
+    float score = source.getFloat(start + 36);
+    if(source.getLong(start) < 0 || source.getInt(start + 24) < 0
+        || source.getInt(start + 28) < 0 || source.getInt(start + 32) < 0 || !(score >= 0))
+    {
+      throw new IllegalArgumentException("Game: negative count in saved state");
+    }
+    if(lockDelay < MIN_LOCK_DELAY || lockDelay > BASE_LOCK_DELAY || lockCounter < 0 || lockCounter >= lockDelay
+        || accumulator < 0 || accumulator >= STEP_MILLIS || clearCounter < 0 || clearCounter >= CLEARS_PER_LEVEL)
+    {
+      throw new IllegalArgumentException("Game: timer or counter out of range in saved state");
+    }
+    int flags = source.get(start + 40);
+    int nextType = source.get(start + 45);
+    // a game always has its next type drawn, from newGame() on
+    if( (flags & ~(DEFEAT_FLAG | FALLING_FLAG)) != 0 || nextType < 0 || nextType >= TYPES.length )
+    {
+      throw new IllegalArgumentException("Game: bad flags or next type in saved state");
+    }
+    BagRandomizer.checkState(source, start + 46);
+    int rowsStart = start + 46 + BagRandomizer.STATE_SIZE;
+    for(int row = 0; row < HEIGHT; row++)
+    {
+      int packedRow = source.getInt(rowsStart + row * 4);
+      if( (packedRow >>> (WIDTH * CELL_BITS)) != 0 )
+      {
+        throw new IllegalArgumentException("Game: bad row " + row + " in saved state");
+      }
+      for(int col = 0; col < WIDTH; col++)
+      {
+        if( ((packedRow >>> (col * CELL_BITS)) & CELL_MASK) > TYPES.length )
+        {
+          throw new IllegalArgumentException("Game: bad cell in row " + row + " of saved state");
+        }
+      }
+    }
+    if( (flags & FALLING_FLAG) != 0 )
+    {
+      int type = source.get(start + 41);
+      int state = source.get(start + 42);
+      if(type < 0 || type >= TYPES.length || state < 0 || state >= TetrominoInfo.STATE_COUNT
+          || !savedFits(source, rowsStart, TYPES[type], state, source.get(start + 44), source.get(start + 43)))
+      {
+        throw new IllegalArgumentException("Game: falling Tetromino does not fit in saved state");
+      }
+    }
+  }
+
+  // BitGrid.fits() against the packed rows of a saved state
+  private static boolean savedFits(ByteBuffer source, int rowsStart, TetrominoType type, int state, int row, int col)
+  {
+    if( !TetrominoInfo.isInBounds(type, state, col) )
+    {
+      return false;
+    }
+    for(int dy = 0; dy < TetrominoInfo.LAYOUT_SIZE; dy++)
+    {
+      int rowMask = TetrominoInfo.getRowMask(type, state, col, dy);
+      if(rowMask == 0)
+      {
+        continue;
+      }
+      int gridY = row + dy;
+      if(gridY < 0 || gridY >= HEIGHT)
+      {
+        return false;
+      }
+      int packedRow = source.getInt(rowsStart + gridY * 4);
+      for(int cellCol = 0; cellCol < WIDTH; cellCol++)
+      {
+        if( (rowMask & (1 << cellCol)) != 0 && ((packedRow >>> (cellCol * CELL_BITS)) & CELL_MASK) != EMPTY_CELL )
+        {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes the whole game state, STATE_SIZE bytes in a fixed layout:
+   * step count, lock counter, lock delay, clock time, clear counter, pieces placed,
+   * level, cleared count, score, flags, the falling Tetromino (type, state, col, row),
+   * the next type, the 7-bag, then each grid row as 3-bit cell codes in an int.
+   * Allocates nothing. debugMode is not part of the state.
+   *
+   * @param target Buffer to write to at its position.
+   * @throws IllegalStateException if the pieces do not come from a BagRandomizer.
+   */
+  public void saveState(ByteBuffer target)
+  {
+    if( !(randomizer instanceof BagRandomizer) )
+    {
+      throw new IllegalStateException("Game: only a BagRandomizer can be saved");
+    }
+    target.putLong(stepCount);
+    target.putInt(lockCounter);
+    target.putInt(lockDelay);
+    target.putInt( clock.getAccumulator() );
+    target.putInt(clearCounter);
+    target.putInt(piecesPlaced);
+    target.putInt( scoreKeeper.getLevel() );
+    target.putInt( scoreKeeper.getClearedCount() );
+    target.putFloat( scoreKeeper.getScore() );
+    target.put( (byte)((isDefeat ? DEFEAT_FLAG : 0) | (currentTetro != null ? FALLING_FLAG : 0)) );
+    if(currentTetro != null)
+    {
+      target.put( (byte)currentTetro.getType().ordinal() );
+      target.put( (byte)currentTetro.getState() );
+      target.put( (byte)currentTetro.getGridX() );
+      target.put( (byte)currentTetro.getGridY() );
+    }
+    else
+    {
+      target.putInt(0);
+    }
+    target.put( (byte)(nextTetro != null ? nextTetro.getType().ordinal() : NO_TYPE) );
+    ((BagRandomizer)randomizer).saveState(target);
+    for(int row = 0; row < HEIGHT; row++)
+    {
+      int packedRow = 0;
+      for(int col = 0; col < WIDTH; col++)
+      {
+        packedRow |= cells[row * WIDTH + col] << (col * CELL_BITS);
+      }
+      target.putInt(packedRow);
+    }
+  }
+
+  /**
+   * Reads back what saveState() wrote; this Game then plays on exactly as the saved one would.
+   * Its BagRandomizer must be made the same way as the saved Game's, e.g. both by Game(long).
+   * Allocates nothing. A state that fails checkState() changes nothing.
+   *
+   * @param source Buffer to read from at its position.
+   * @throws IllegalStateException if the pieces do not come from a BagRandomizer.
+   * @throws IllegalArgumentException if the buffer holds no state saveState() could have written.
+   */
+  public void restoreState(ByteBuffer source)
+  {
+    if( !(randomizer instanceof BagRandomizer) )
+    {
+      throw new IllegalStateException("Game: only a BagRandomizer can be restored");
+    }
+    checkState(source);
+    stepCount = source.getLong();
+    lockCounter = source.getInt();
+    lockDelay = source.getInt();
+    clock.setAccumulator( source.getInt() );
+    clearCounter = source.getInt();
+    piecesPlaced = source.getInt();
+    int level = source.getInt();
+    int clearedCount = source.getInt();
+    scoreKeeper.restore(level, clearedCount, source.getFloat());
+    int flags = source.get();
+    isDefeat = (flags & DEFEAT_FLAG) != 0;
+    int currentType = source.get();
+    int currentState = source.get();
+    int currentCol = source.get();
+    int currentRow = source.get();
+    int nextType = source.get();
+    currentTetro = null;
+    nextTetro = null;
+    if( (flags & FALLING_FLAG) != 0 )
+    {
+      currentTetro = tetroPool[0];
+      currentTetro.reset(TYPES[currentType], currentCol, currentRow);
+      currentTetro.moveTo(currentState, currentCol, currentRow);
+    }
+    if(nextType != NO_TYPE)
+    {
+      Point spawnPoint = TetrominoInfo.getSpawnPoint( TYPES[nextType] );
+      nextTetro = tetroPool[1];
+      nextTetro.reset( TYPES[nextType], spawnPoint.getX(), spawnPoint.getY() );
+    }
+    ((BagRandomizer)randomizer).restoreState(source);
+    lockedGrid.clear();
+    gridHash = 0;
+    for(int row = 0; row < HEIGHT; row++)
+    {
+      int packedRow = source.getInt();
+      for(int col = 0; col < WIDTH; col++)
+      {
+        byte cell = (byte)((packedRow >>> (col * CELL_BITS)) & CELL_MASK);
+        cells[row * WIDTH + col] = cell;
+        if(cell != EMPTY_CELL)
+        {
+          lockedGrid.set(row, col);
+          gridHash ^= Zobrist.cellKey(row, col, TYPES[cell - 1]);
+        }
+      }
+    }
+  }
+
+  private boolean isCurrentTetroAt(int row, int col)
+  {
+    if(currentTetro == null)
+    {
+      return false;
+    }
+    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
+    {
+      Block block = currentTetro.getBlock(blockIndex);
+      if(block.getGridY() == row && block.getGridX() == col)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Dumps the contents of the grid for debugging.
+   */
+  public void dumpGrid()
+  {
+    for(int row = 0; row < HEIGHT; row++)
+    {
+      System.out.print(row + "\t");
+      for(int col= 0; col < WIDTH;col++)
+      {
+        System.out.print( ( cells[row * WIDTH + col] == EMPTY_CELL && !isCurrentTetroAt(row, col) ) ? "0" : "#" );
+      }
+      System.out.println();
+    }
+  }
+
+}
@@ -0,0 +1,67 @@
+package tetris;
+
+/**
+ * Told what happens in a Game, on the thread driving it, as it happens.
+ * Implementations must be quick, must not change the Game and must not
+ * keep the Tetromino past the call: it is pooled and reused.
+ *
+ * @author Daniel Rolandi
+ */
+public interface GameListener
+{
+  /**
+   * Called when a new Tetromino enters at its spawn point.
+   *
+   * @param game Game it happened in.
+   * @param tetromino The new falling Tetromino.
+   */
+  void tetrominoSpawned(Game game, Tetromino tetromino);
+
+  /**
+   * Called after the falling Tetromino moved, by an input or by gravity.
+   * A hard drop is one move, straight to where it lands.
+   *
+   * @param game Game it happened in.
+   * @param tetromino The falling Tetromino, at its new place.
+   */
+  void tetrominoMoved(Game game, Tetromino tetromino);
+
+  /**
+   * Called after the falling Tetromino rotated.
+   *
+   * @param game Game it happened in.
+   * @param tetromino The falling Tetromino, in its new state.
+   */
+  void tetrominoRotated(Game game, Tetromino tetromino);
+
+  /**
+   * Called when the falling Tetromino locks into the grid.
+   *
+   * @param game Game it happened in.
+   * @param tetromino The Tetromino, where it locked.
+   */
+  void tetrominoLocked(Game game, Tetromino tetromino);
+
+  /**
+   * Called after full rows were cleared.
+   *
+   * @param game Game it happened in.
+   * @param count Count of rows cleared at once.
+   */
+  void rowsCleared(Game game, int count);
+
+  /**
+   * Called after the level went up.
+   *
+   * @param game Game it happened in.
+   * @param level The new level.
+   */
+  void levelUp(Game game, int level);
+
+  /**
+   * Called when the game is lost, or ended by Game.endGame().
+   *
+   * @param game Game it happened in.
+   */
+  void defeat(Game game);
+}
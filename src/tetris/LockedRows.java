@@ -0,0 +1,18 @@
+package tetris;
+
+/**
+ * Read-only view of a grid of locked cells, one bitmask per row.
+ * Lets placement searches run on the Game and on scratch copies alike.
+ *
+ * @author Daniel Rolandi
+ */
+public interface LockedRows
+{
+  /**
+   * Returns the locked cells of that row as a bitmask, bit c set if col c is occupied.
+   *
+   * @param row Row in the grid, 0 to Game.HEIGHT-1.
+   * @return The bitmask of that row.
+   */
+  int getRowMask(int row);
+}
@@ -0,0 +1,109 @@
+package tetris;
+
+/**
+ * A number shown as a fixed-width, right-aligned row of digits, each one of
+ * a few shared single-character Strings. Fonts that cache what they draw by
+ * String (Slick's AngelCodeFont keeps a display list per String) then draw a
+ * changing number without a new String, so showing a new value allocates nothing.
+ *
+ * @author Daniel Rolandi
+ */
+public class NumberText
+{
+  private static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"};
+  private static final String MINUS = "-";
+  private static final int RADIX = 10;
+
+  private final String[] glyphs; // one per slot, left to right; null where blank
+  private final long maxValue; // largest magnitude that fits
+  private long value;
+  private boolean isSet;
+
+  /**
+   * Inits an empty text.
+   *
+   * @param width Count of slots, a minus sign included.
+   */
+  public NumberText(int width)
+  {
+    if(width <= 0 || width > 18)
+    {
+      throw new IllegalArgumentException("NumberText: width must be in [1, 18]");
+    }
+    glyphs = new String[width];
+    long max = 1;
+    for(int slot = 0; slot < width; slot++)
+    {
+      max *= RADIX;
+    }
+    maxValue = max - 1;
+  }
+
+  /**
+   * Shows that value. A value too wide for the slots shows as all nines,
+   * keeping its sign when there is room for it.
+   *
+   * @param newValue Value to show.
+   */
+  public void set(long newValue)
+  {
+    if(isSet && newValue == value)
+    {
+      return;
+    }
+    value = newValue;
+    isSet = true;
+    boolean negative = newValue < 0;
+    long limit = negative ? maxValue / RADIX : maxValue;
+    long rest = Math.min( Math.abs(newValue), limit );
+    if(newValue == Long.MIN_VALUE)
+    {
+      rest = limit; // has no positive counterpart
+    }
+    int slot = glyphs.length;
+    do
+    {
+      glyphs[--slot] = DIGITS[ (int)(rest % RADIX) ];
+      rest /= RADIX;
+    }
+    while(rest != 0);
+    if(negative && slot > 0)
+    {
+      glyphs[--slot] = MINUS;
+    }
+    while(slot > 0)
+    {
+      glyphs[--slot] = null;
+    }
+  }
+
+  /**
+   * Returns the count of slots.
+   * @return The width in slots.
+   */
+  public int getWidth()
+  {
+    return glyphs.length;
+  }
+
+  /**
+   * Returns what to draw in that slot.
+   *
+   * @param slot Slot, 0 for the leftmost.
+   * @return A shared single-character String, or null if the slot is blank.
+   */
+  public String getGlyph(int slot)
+  {
+    return glyphs[slot];
+  }
+
+  /**
+   * Returns the value shown.
+   * @return The value given to the last set(), 0 before that.
+   */
+  public long getValue()
+  {
+    return value;
+  }
+
+}
@@ -11,7 +11,7 @@ public class Offsets
   public static final float GAME_X = 40.0f;
   public static final float GAME_Y = 40.0f;
   
-  public static final float NEXT_TETRO_X = GAME_X*2 + Board.WIDTH*Board.BLOCK_SIZE;
+  public static final float NEXT_TETRO_X = GAME_X*2 + Game.WIDTH*Board.BLOCK_SIZE;
   public static final float NEXT_TETRO_Y = GAME_Y;
   
   public static final int SPAWN_X = 2;
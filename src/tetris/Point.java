@@ -0,0 +1,43 @@
+package tetris;
+
+/**
+ * Immutable (x,y) pair of grid units used by the Tetromino layouts.
+ * Kept free of Slick so that the game rules can run headless.
+ *
+ * @author Daniel Rolandi
+ */
+public class Point
+{
+  private final int x;
+  private final int y;
+
+  /**
+   * Sets the Point at (x,y).
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   */
+  public Point(int x, int y)
+  {
+    this.x = x;
+    this.y = y;
+  }
+
+  /**
+   * Returns X coordinate.
+   * @return X coordinate.
+   */
+  public int getX()
+  {
+    return x;
+  }
+
+  /**
+   * Returns Y coordinate.
+   * @return Y coordinate.
+   */
+  public int getY()
+  {
+    return y;
+  }
+
+}
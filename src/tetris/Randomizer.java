@@ -0,0 +1,37 @@
+package tetris;
+
+/**
+ * Source of the Tetromino types handed out by a Game.
+ * Implementations must be deterministic for a given seed,
+ * so that replays and benchmarks see the same piece sequence.
+ *
+ * @author Daniel Rolandi
+ */
+public interface Randomizer
+{
+  /**
+   * Removes and returns the next Tetromino type.
+   * @return The next Tetromino type.
+   */
+  TetrominoType next();
+
+  /**
+   * Returns an upcoming Tetromino type without removing it.
+   *
+   * @param ahead 0 for the type next() would return, up to getPreviewLimit()-1.
+   * @return That upcoming Tetromino type.
+   */
+  TetrominoType peek(int ahead);
+
+  /**
+   * Returns how far ahead peek() can look.
+   * @return Count of upcoming types peek() can return.
+   */
+  int getPreviewLimit();
+
+  /**
+   * Drops any queued types, so the next one starts a fresh sequence.
+   * The underlying random stream carries on.
+   */
+  void clear();
+}
@@ -1,26 +1,14 @@
 package tetris;
 
-import org.newdawn.slick.GameContainer;
-import org.newdawn.slick.Graphics;
-import org.newdawn.slick.Color;
-
 /**
- * Deals with Scorekeeping and rendering.
+ * Deals with Scorekeeping.
+ * The score text is rendered by Board.
  * 
  * @author Daniel Rolandi
  */
 public class ScoreKeeper
 {  
-    
-  private static final Color TEXT_COLOR = new Color(255, 255, 255);
-  private static final String LEVEL_TEXT_DEFAULT = "Level: "; 
-  private static final String CLEARED_TEXT_DEFAULT = "Cleared: ";
-  private static final String SCORE_TEXT_DEFAULT = "Score: ";
-  
-  private static final int LEVEL_TEXT_PADDING = 7;
-  private static final int CLEARED_TEXT_PADDING = 5;
-  private static final int SCORE_TEXT_PADDING = 7;
-  
+
   private static final float BASE_SCORE = 100.0f;
   // NOTE: ROW_MULTIPLIER must scale with BLOCK_COUNT
   private static final float[] ROW_MULTIPLIER = {1.0f, 1.5f, 2.0f, 2.5f};
@@ -38,12 +26,34 @@ public class ScoreKeeper
   private float score;
   
   public ScoreKeeper()
+  {
+    reset();
+  }
+  
+  /**
+   * Clears level, cleared count and score for a new game.
+   */
+  public final void reset()
   {
     level = 0;
     clearedCount = 0;
     score = 0.0f;    
   }
   
+  /**
+   * Puts back a saved level, cleared count and score.
+   *
+   * @param level Level.
+   * @param clearedCount Count of cleared rows.
+   * @param score Score.
+   */
+  public void restore(int level, int clearedCount, float score)
+  {
+    this.level = level;
+    this.clearedCount = clearedCount;
+    this.score = score;
+  }
+
   /**
    * Adds score based on how many rows were cleared using a Tetromino.
    * 
@@ -66,19 +76,30 @@ public class ScoreKeeper
   }
   
   /**
-   * Renders the score text.
-   * 
-   * @param gameContainer Game Container.
-   * @param graphics Graphics context.
-   */  
-  public void render(GameContainer gameContainer, Graphics graphics)
+   * Returns the current level.
+   * @return The current level.
+   */
+  public int getLevel()
+  {
+    return level;
+  }
+  
+  /**
+   * Returns the total count of cleared rows.
+   * @return The total count of cleared rows.
+   */
+  public int getClearedCount()
   {
-    graphics.setColor( TEXT_COLOR );
-    graphics.drawString( LEVEL_TEXT_DEFAULT + String.format("%"+LEVEL_TEXT_PADDING+"d", level), Offsets.SCORE_X, Offsets.SCORE_Y);
-    graphics.drawString( CLEARED_TEXT_DEFAULT + String.format("%"+CLEARED_TEXT_PADDING+"d", clearedCount),
-            Offsets.SCORE_X, Offsets.SCORE_Y + Offsets.NEWLINE);
-    graphics.drawString( SCORE_TEXT_DEFAULT + String.format("%"+SCORE_TEXT_PADDING+".0f", score),
-            Offsets.SCORE_X, Offsets.SCORE_Y + 2*Offsets.NEWLINE );    
-  }    
+    return clearedCount;
+  }
+  
+  /**
+   * Returns the current score.
+   * @return The current score.
+   */
+  public float getScore()
+  {
+    return score;
+  }
   
 }
@@ -0,0 +1,122 @@
+package tetris;
+
+/**
+ * Small seedable, splittable PRNG (the SplitMix64 generator).
+ * The same seed always gives the same stream. split() hands out an
+ * independent generator, so parallel games never share or lock one
+ * instance. An instance is not thread-safe; give each thread its own.
+ *
+ * @author Daniel Rolandi
+ */
+public class SplitMix64
+{
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private long seed;
+  private final long gamma; // odd
+
+  /**
+   * Inits a generator from that seed.
+   *
+   * @param seed Any value; equal seeds give equal streams.
+   */
+  public SplitMix64(long seed)
+  {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  private SplitMix64(long seed, long gamma)
+  {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  /**
+   * Returns the next pseudorandom long.
+   * @return The next pseudorandom long.
+   */
+  public long nextLong()
+  {
+    return mix64(nextSeed());
+  }
+
+  /**
+   * Returns a pseudorandom int, uniform in [0, bound).
+   *
+   * @param bound Exclusive upper bound, must be positive.
+   * @return A pseudorandom int in [0, bound).
+   */
+  public int nextInt(int bound)
+  {
+    if(bound <= 0)
+    {
+      throw new IllegalArgumentException("SplitMix64: bound must be positive");
+    }
+    int bits;
+    int value;
+    do
+    {
+      // reject the top partial range so every value is equally likely
+      bits = (int)(nextLong() >>> 33);
+      value = bits % bound;
+    } while(bits - value + (bound - 1) < 0);
+    return value;
+  }
+
+  /**
+   * Restarts this generator at that seed, keeping its gamma, so a worker can
+   * reuse one instance for many seeded runs. On a generator made with
+   * SplitMix64(long) this gives the stream of new SplitMix64(seed).
+   *
+   * @param seed Any value; equal seeds give equal streams.
+   */
+  public void reseed(long seed)
+  {
+    this.seed = seed;
+  }
+
+  /**
+   * Returns where this generator is in its stream;
+   * reseed() with it carries on from here, e.g. after a saved game is restored.
+   *
+   * @return The current state.
+   */
+  public long getState()
+  {
+    return seed;
+  }
+
+  /**
+   * Returns a new generator whose stream is independent of this one.
+   * Advances this generator.
+   *
+   * @return A new, independent generator.
+   */
+  public SplitMix64 split()
+  {
+    return new SplitMix64(nextLong(), mixGamma(nextSeed()));
+  }
+
+  private long nextSeed()
+  {
+    return seed += gamma;
+  }
+
+  private static long mix64(long z)
+  {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static long mixGamma(long z)
+  {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    // gammas with too few bit flips give poorly mixed streams
+    int flips = Long.bitCount(z ^ (z >>> 1));
+    return (flips < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+
+}
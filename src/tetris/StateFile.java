@@ -0,0 +1,160 @@
+package tetris;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Small memory-mapped file holding the last saved state, to resume after a
+ * suspend or a crash. Saving is a copy into mapped memory, with no system call
+ * and no allocation, so it can run every frame; the OS writes the pages back
+ * on its own, and force() waits for the disk, e.g. before a planned shutdown.
+ *
+ * Two slots take turns. Each is stamped with a sequence number and a checksum
+ * of that number and the payload. The OS may write the pages of a slot back in
+ * any order, so after a crash or power loss the newest slot can be torn; its
+ * checksum then fails and the other slot is loaded.
+ *
+ * @author Daniel Rolandi
+ */
+public class StateFile
+{
+  private static final int MAGIC = 0x54535446; // "TSTF"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16; // magic, payload size, version, reserved
+  private static final int SLOT_HEADER_SIZE = 16; // sequence, checksum
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  private static final int SLOT_COUNT = 2;
+  private static final long EMPTY_SEQUENCE = 0;
+
+  private final MappedByteBuffer buffer;
+  private final int payloadSize;
+  private final ByteBuffer[] payloads; // per slot, sharing the mapped pages
+  private long sequence; // of the latest intact save
+  private int latestSlot;
+
+  /**
+   * Opens the file, creating it if needed. A file of another payload size or version is started over.
+   *
+   * @param file File to map.
+   * @param payloadSize Size of one saved state in bytes.
+   * @throws IOException if the file cannot be opened or mapped.
+   */
+  public StateFile(Path file, int payloadSize) throws IOException
+  {
+    this.payloadSize = payloadSize;
+    int slotSize = SLOT_HEADER_SIZE + payloadSize;
+    try(FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+    {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + SLOT_COUNT * slotSize);
+    }
+    if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != payloadSize || buffer.getInt(8) != VERSION)
+    {
+      for(int slot = 0; slot < SLOT_COUNT; slot++)
+      {
+        buffer.putLong(slotStart(slot), EMPTY_SEQUENCE);
+      }
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, payloadSize);
+      buffer.putInt(8, VERSION);
+    }
+    payloads = new ByteBuffer[SLOT_COUNT];
+    for(int slot = 0; slot < SLOT_COUNT; slot++)
+    {
+      ByteBuffer view = buffer.duplicate();
+      view.position( slotStart(slot) + SLOT_HEADER_SIZE );
+      view.limit( slotStart(slot) + SLOT_HEADER_SIZE + payloadSize );
+      payloads[slot] = view.slice();
+    }
+    for(int slot = 0; slot < SLOT_COUNT; slot++)
+    {
+      long slotSequence = buffer.getLong( slotStart(slot) );
+      if(slotSequence > sequence && buffer.getLong( slotStart(slot) + 8 ) == checksum(slot, slotSequence))
+      {
+        sequence = slotSequence;
+        latestSlot = slot;
+      }
+    }
+  }
+
+  /**
+   * Returns the last intact saved state, or null if there is none.
+   * @return The payload from position 0, shared with the file; valid until the next save.
+   */
+  public ByteBuffer load()
+  {
+    if(sequence == EMPTY_SEQUENCE)
+    {
+      return null;
+    }
+    ByteBuffer payload = payloads[latestSlot];
+    payload.clear();
+    return payload;
+  }
+
+  /**
+   * Returns the buffer to write the next state into; finishSave() makes it the one load() returns.
+   * @return The payload of the older slot, from position 0, payloadSize long.
+   */
+  public ByteBuffer startSave()
+  {
+    ByteBuffer payload = payloads[ (latestSlot + 1) % SLOT_COUNT ];
+    payload.clear();
+    return payload;
+  }
+
+  /**
+   * Stamps the state written since startSave() as the latest.
+   */
+  public void finishSave()
+  {
+    latestSlot = (latestSlot + 1) % SLOT_COUNT;
+    sequence++;
+    buffer.putLong(slotStart(latestSlot) + 8, checksum(latestSlot, sequence));
+    buffer.putLong(slotStart(latestSlot), sequence);
+  }
+
+  /**
+   * Waits until the saved state is on disk.
+   */
+  public void force()
+  {
+    buffer.force();
+  }
+
+  /**
+   * Returns the size of one saved state.
+   * @return The payload size in bytes.
+   */
+  public int getPayloadSize()
+  {
+    return payloadSize;
+  }
+
+  private int slotStart(int slot)
+  {
+    return HEADER_SIZE + slot * (SLOT_HEADER_SIZE + payloadSize);
+  }
+
+  // FNV-1a over the sequence and the payload, read in place
+  private long checksum(int slot, long slotSequence)
+  {
+    long hash = FNV_OFFSET_BASIS;
+    for(int shift = 0; shift < Long.SIZE; shift += Byte.SIZE)
+    {
+      hash = (hash ^ ((slotSequence >>> shift) & 0xff)) * FNV_PRIME;
+    }
+    int payloadStart = slotStart(slot) + SLOT_HEADER_SIZE;
+    for(int index = payloadStart; index < payloadStart + payloadSize; index++)
+    {
+      hash = (hash ^ (buffer.get(index) & 0xff)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+}
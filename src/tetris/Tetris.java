@@ -23,6 +23,7 @@ public class Tetris extends BasicGame
   private static final Color BACKGROUND = new Color(112, 48, 160);    
   
   private Board board;
+  private AllocationMonitor allocationMonitor; // null unless the test mode is on
   
   /**
    * Call BasicGame's constructor.
@@ -43,6 +44,10 @@ public class Tetris extends BasicGame
   {
     gameContainer.setShowFPS(false);
     board = new Board(gameContainer);    
+    if(AllocationMonitor.isRequested())
+    {
+      allocationMonitor = new AllocationMonitor(AllocationMonitor.DEFAULT_WARMUP_CYCLES);
+    }
   }
   
   /**
@@ -55,7 +60,15 @@ public class Tetris extends BasicGame
   @Override
   public void update(GameContainer gameContainer, int deltaTime) throws SlickException
   {    
+    if(allocationMonitor != null)
+    {
+      allocationMonitor.begin();
+    }
     board.update(gameContainer, deltaTime);    
+    if(allocationMonitor != null)
+    {
+      allocationMonitor.end();
+    }
   }  
   
   /**
@@ -68,11 +81,36 @@ public class Tetris extends BasicGame
   @Override
   public void render(GameContainer gameContainer, Graphics graphics) throws SlickException
   {
+    if(allocationMonitor != null)
+    {
+      allocationMonitor.begin();
+    }
     graphics.setBackground(BACKGROUND);
     board.render(gameContainer, graphics);
     renderHelp(gameContainer, graphics);
+    if(allocationMonitor != null)
+    {
+      allocationMonitor.end();
+      allocationMonitor.endCycle();
+    }
   }
   
+  /**
+   * Finishes the replay being recorded, saves the state file to disk
+   * and closes the event log before the window closes.
+   *
+   * @return True, the window may close.
+   */
+  @Override
+  public boolean closeRequested()
+  {
+    if(board != null)
+    {
+      board.close();
+    }
+    return true;
+  }
+
   private void renderHelp(GameContainer gameContainer, Graphics graphics)
   {
     graphics.setColor( Color.white );
@@ -4,15 +4,11 @@
  */
 package tetris;
 
-import org.newdawn.slick.GameContainer;
-import org.newdawn.slick.Graphics;
-import org.newdawn.slick.geom.Point;
-
 /**
  * Represents a Collection (array) of Blocks.
- * Does not contain the actual rendering.
- * Once a Tetromino hits a floor, they become independent Blocks.
- * At that point, this class loses control over those Blocks.
+ * Does not contain the actual rendering (see Board).
+ * Once a Tetromino hits a floor, its cells are copied into the Game's
+ * locked cells and this Tetromino is reset for reuse.
  * 
  * @author Daniel Rolandi
  */
@@ -22,30 +18,22 @@ public class Tetromino
   
   private TetrominoType type;
   private Block[] blocks;
-  private float refX;
-  private float refY;
+  private int refGridX;
+  private int refGridY;
   private int state;
-  private boolean ghost;
   
-  public Tetromino(TetrominoType type, float x, float y, boolean ghost)
+  public Tetromino(TetrominoType type, int gridX, int gridY)
   {
-    this(type, x, y, ghost, DEFAULT_INIT_STATE);
+    this(type, gridX, gridY, DEFAULT_INIT_STATE);
   }
   
-  public Tetromino(TetrominoType type, float x, float y, boolean ghost, int state)
+  public Tetromino(TetrominoType type, int gridX, int gridY, int state)
   {
     this.type = type;
-    refX = x;
-    refY = y;    
+    refGridX = gridX;
+    refGridY = gridY;
     this.state = state;
-    this.ghost = ghost;
-    if(ghost)
-    {
-      createGhostBlocks();
-    }
-    else{
-      createBlocks();
-    }    
+    createBlocks();
     syncBlocks();
   }
   
@@ -54,97 +42,81 @@ public class Tetromino
     blocks = new Block[TetrominoInfo.BLOCK_COUNT];
     for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
     {
-      blocks[blockIndex] = new Block(type, refX, refY);
-    }    
-    // notice that the blocks are not at their proper positions yet
-  }
-  
-  private void createGhostBlocks()
-  {
-    blocks = new Block[TetrominoInfo.BLOCK_COUNT];
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      blocks[blockIndex] = new GhostBlock(type, refX, refY);
+      blocks[blockIndex] = new Block(refGridX, refGridY);
     }    
     // notice that the blocks are not at their proper positions yet
   }
   
   /**
-   * Renders all Blocks in this Tetromino.
-   * Tetrominos in game are rendered by Board.
-   * This method is to intended to be used for Next-Tetromino.
-   * 
-   * @param gameContainer Game Container.
-   * @param graphics Graphics context.
+   * Returns col of the reference point in the grid.
+   * @return Col of the reference point in the grid.
    */
-  public void render(GameContainer gameContainer, Graphics graphics)
+  public int getGridX()
   {
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      blocks[blockIndex].render(gameContainer, graphics);
-    }    
+    return refGridX;
   }
   
   /**
-   * Returns reference X coordinate.
-   * @return Reference X coordinate.
+   * Returns row of the reference point in the grid.
+   * @return Row of the reference point in the grid.
    */
-  public float getX()
+  public int getGridY()
   {
-    return refX;
+    return refGridY;
   }
   
   /**
-   * Returns reference Y coordinate.
-   * @return Reference Y coordinate.
+   * Returns reference to Block by index.
+   * @return Reference to Block by index.
    */
-  public float getY()
+  public Block getBlock(int index)
   {
-    return refY;
+    return blocks[index];
   }
   
   /**
-   * Returns reference to Block by index.
-   * @return Reference to Block by index.
+   * Turns this Tetromino into a fresh one of another type,
+   * reusing its Blocks.
+   *
+   * @param type New Tetromino type.
+   * @param gridX Col of the reference point.
+   * @param gridY Row of the reference point.
    */
-  public Block getBlock(int index)
+  public void reset(TetrominoType type, int gridX, int gridY)
   {
-    return blocks[index];
+    this.type = type;
+    refGridX = gridX;
+    refGridY = gridY;
+    state = DEFAULT_INIT_STATE;
+    syncBlocks();
   }
   
   /**
-   * Returns true if that Block is a part of this Tetromino.
-   * 
-   * @param block Block in question.
-   * @return True if that Block is a part of this Tetromino.
+   * Puts this Tetromino straight at that position and orientation.
+   * Precondition: Game already checked for empty spaces.
+   *
+   * @param state Orientation state.
+   * @param gridX Col of the reference point.
+   * @param gridY Row of the reference point.
    */
-  public boolean hasBlock(Block block)
+  public void moveTo(int state, int gridX, int gridY)
   {
-    // just test by reference is sufficient
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      if(block == blocks[blockIndex])
-      {
-        return true;
-      }
-    }
-    return false;
+    this.state = state;
+    refGridX = gridX;
+    refGridY = gridY;
+    syncBlocks();
   }
   
   /**
    * Moves this Tetromino to the SpawnPoint in Waiting Room (above Game).
    */
-  public void moveToSpawn(Block[][] grid)
+  public void moveToSpawn()
   {
     Point spawnPoint = TetrominoInfo.getSpawnPoint(type);
-    float spawnX = spawnPoint.getX();
-    float spawnY = spawnPoint.getY();
-    
-    refX = Offsets.GAME_X + spawnX*Board.BLOCK_SIZE;
-    refY = Offsets.GAME_Y + (spawnY - Board.HEIGHT_WAITING)*Board.BLOCK_SIZE;    
+    refGridX = spawnPoint.getX();
+    refGridY = spawnPoint.getY();
     
     syncBlocks();
-    syncGrid(grid);
   }
   
   private void syncBlocks()
@@ -152,153 +124,96 @@ public class Tetromino
     Point[] points = TetrominoInfo.getPoints(type)[state];        
     for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
     {
-      blocks[blockIndex].setPosition(refX + points[blockIndex].getX() * Board.BLOCK_SIZE,
-                        refY + points[blockIndex].getY() * Board.BLOCK_SIZE);
+      blocks[blockIndex].setPosition(refGridX + points[blockIndex].getX(),
+                        refGridY + points[blockIndex].getY());
     }
   }  
   
-  /**
-   * Plugs this Block into the Grid.
-   * Expected to be called only during move-to-spawn
-   * or when rotating or when moving currentRetro over ghostRetro.
-   * 
-   * @param grid Grid of Blocks from the Board.
-   */  
-  public void syncGrid(Block[][] grid)
-  {        
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block syncBlock = blocks[blockIndex];
-      grid[ (int)syncBlock.getGridY() ][ (int)syncBlock.getGridX() ] = syncBlock;
-    }
-  }
-  
-  // expected to be called only during rotating
-  // or when killing Tetromino
-  private void unsyncGrid(Block[][] grid){
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      Block syncBlock = blocks[blockIndex];
-      grid[ (int)syncBlock.getGridY() ][ (int)syncBlock.getGridX() ] = null;
-    }
-  }
-  
   /**
    * Move the Tetromino to the down.
-   * Precondition: Board already checked for empty spaces.
+   * Precondition: Game already checked for empty spaces.
    */
   public void moveDown()
   {
-    refY += Board.BLOCK_SIZE;
+    refGridY++;
     syncBlocks();
   }
   
   /**
    * Move the Tetromino to the left.
-   * Precondition: Board already checked for empty spaces.
+   * Precondition: Game already checked for empty spaces.
    */
   public void moveLeft()
   {
-    refX -= Board.BLOCK_SIZE;
+    refGridX--;
     syncBlocks();
   }
   
   /**
    * Move the Tetromino to the right.
-   * Precondition: Board already checked for empty spaces.
+   * Precondition: Game already checked for empty spaces.
    */
   public void moveRight()
   {
-    refX += Board.BLOCK_SIZE;
+    refGridX++;
     syncBlocks();
   }
   
   /**
    * Rotates the Tetromino counter-clockwise.
    * 
-   * @param grid Grid of Blocks from the Board.
-   * @param board Connection to Board.
+   * @param game Connection to the Game.
    */
-  public void rotateLeft(Block[][] grid, Board board)
+  public void rotateLeft(Game game)
   {
-    unsyncGrid(grid);    
-    if( canRotateLeft(grid, board))
+    if( canRotateLeft(game))
     {    
       state = (state + 3)%4;
-      board.killGhostTetro();
-      board.summonGhostTetromino(state);
       syncBlocks();      
     }
-    syncGrid(grid);
   }
   
   /**
    * Returns true if this Tetromino can rotate counter-clockwise.
    * 
-   * @param grid Grid of Blocks from the Board.
-   * @param board Connection to Board.
+   * @param game Connection to the Game.
    * @return True if this Tetromino can rotate counter-clockwise.
    */
-  public boolean canRotateLeft(Block[][] grid, Board board)
+  public boolean canRotateLeft(Game game)
   {
     int futureState = (state + 3)%4;
-    return canRotate(grid, futureState, board);
+    return canRotate(futureState, game);
   }
   
-  private boolean canRotate(Block[][] grid, int futureState, Board board)
+  private boolean canRotate(int futureState, Game game)
   {
-    Point[] points = TetrominoInfo.getPoints(type)[futureState];    
-    
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      int gridX = (int)( (refX - Offsets.GAME_X)/Board.BLOCK_SIZE + points[blockIndex].getX() );
-      int gridY = (int)( (refY - Offsets.GAME_Y)/Board.BLOCK_SIZE + points[blockIndex].getY() + Board.HEIGHT_WAITING );
-      if( outOfBounds(gridX, gridY) ){
-        return false;
-      }
-      Block targetBlock = grid[gridY][gridX];
-      if( board.unpathableBlock(targetBlock) ){
-        return false;
-      }
-    }        
-    return true;
+    return game.fits(type, futureState, getGridY(), getGridX());
   }
   
-  private boolean outOfBounds(int gridX, int gridY)
-  {
-    return gridX < 0 || gridX >= Board.WIDTH || gridY < 0 || gridY >= Board.HEIGHT;
-  }    
-  
   /**
    * Rotates the Tetromino clockwise.
    * 
-   * @param grid Grid of Blocks from the Board.
-   * @param board Connection to Board.
+   * @param game Connection to the Game.
    */
-  public void rotateRight(Block[][] grid, Board board)
+  public void rotateRight(Game game)
   {
-    unsyncGrid(grid);
-    if( canRotateRight(grid, board))
+    if( canRotateRight(game))
     {
       state = (state + 1)%4;
-      board.killGhostTetro();
-      board.summonGhostTetromino(state);
       syncBlocks();      
     }
-    syncGrid(grid);    
   }
   
   /**
    * Returns true if this Tetromino can rotate clockwise.
    * 
-   * @param grid Grid of Blocks from the Board.
-   * @param board Connection to Board.
+   * @param game Connection to the Game.
    * @return True if this Tetromino can rotate clockwise.
    */
-  public boolean canRotateRight(Block[][] grid, Board board)
+  public boolean canRotateRight(Game game)
   {
     int futureState = (state + 1)%4;
-    return canRotate(grid, futureState, board);
+    return canRotate(futureState, game);
   }
   
   /**
@@ -321,22 +236,6 @@ public class Tetromino
     return type;
   }
   
-  /**
-   * Kills this Tetromino, removing from Grid permanently.
-   * Expected to be used with only Ghost Tetromino.
-   * 
-   * @param grid Grid of Blocks from the Board.
-   */
-  public void kill(Block[][] grid)
-  {
-    unsyncGrid(grid);
-    for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
-    {
-      blocks[blockIndex] = null;
-    }
-    blocks = null;
-  }
-  
   @Override
   public String toString()
   {
@@ -345,10 +244,10 @@ public class Tetromino
     result.append("Type: ");
     result.append(type);
     
-    result.append("\nrefX: ");
-    result.append(refX);
-    result.append("\nrefY: ");
-    result.append(refY);        
+    result.append("\nrefGridX: ");
+    result.append(refGridX);
+    result.append("\nrefGridY: ");
+    result.append(refGridY);
     
     return result.toString();
   }
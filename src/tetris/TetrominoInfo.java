@@ -1,12 +1,8 @@
 package tetris;
 
-import org.newdawn.slick.Color;
-import org.newdawn.slick.Image;
-import org.newdawn.slick.geom.Point;
-import org.newdawn.slick.SlickException;
-
 /**
  * Contains various data for each Tetromino type.
+ * Rendering data (colors, images) lives in TetrominoSkin.
  * 
  * @author Daniel Rolandi
  */
@@ -15,40 +11,10 @@ public class TetrominoInfo
   
   public static final int BLOCK_COUNT = 4;
   public static final int TYPE_COUNT = TetrominoType.values().length;
+  public static final int STATE_COUNT = 4;
+  public static final int LAYOUT_SIZE = 4; // layouts fit in a 4x4 box
+  public static final int NO_CELL = -1;
   
-  private static final Color I_COLOR = new Color(0, 255, 255);
-  private static final Color Z_COLOR = new Color(255, 0, 0);
-  private static final Color S_COLOR = new Color(0, 255, 0);
-  private static final Color O_COLOR = new Color(255, 255, 0);
-  private static final Color T_COLOR = new Color(255, 0, 255);
-  private static final Color L_COLOR = new Color(255, 127, 0);
-  private static final Color J_COLOR = new Color(0, 0, 255);
-  
-  private static final Image I_IMAGE;
-  private static final Image Z_IMAGE;
-  private static final Image S_IMAGE;
-  private static final Image O_IMAGE;
-  private static final Image T_IMAGE;
-  private static final Image L_IMAGE;
-  private static final Image J_IMAGE;
-  static
-  {
-    try
-    {
-      I_IMAGE = new Image("images/I.png");
-      Z_IMAGE = new Image("images/Z.png");
-      S_IMAGE = new Image("images/S.png");
-      O_IMAGE = new Image("images/O.png");
-      T_IMAGE = new Image("images/T.png");
-      L_IMAGE = new Image("images/L.png");
-      J_IMAGE = new Image("images/J.png");      
-    }
-    catch(SlickException slickException)
-    {
-      throw new IllegalStateException("Could not load images.");
-    }
-  }
-    
   private static final Point point44 = new Point(4, 4);
   private static final Point[][] allPoints;  
   static{
@@ -114,45 +80,62 @@ public class TetrominoInfo
     {allPoints[1][2], allPoints[1][1], allPoints[1][0], allPoints[0][2]}
   };
   
-   /**
-   * Returns Block Color for that Tetromino type
-   * 
-   * @param type Tetromino Type
-   * @return Block Color for that Tetromino type
-   */
-  public static Color getColor(TetrominoType type)
-  {
-    switch(type)
-    {
-      case I: return I_COLOR;
-      case Z: return Z_COLOR;
-      case S: return S_COLOR;
-      case O: return O_COLOR;
-      case T: return T_COLOR;
-      case L: return L_COLOR;
-      case J: return J_COLOR;
-      default: throw new IllegalArgumentException();
-    }
-  }
-  
-  /**
-   * Returns Block Image for that Tetromino type
-   * 
-   * @param type Tetromino Type
-   * @return Block Image for that Tetromino type
-   */
-  public static Image getImage(TetrominoType type)
+  // Collision masks, indexed by [type][state][col + MASK_COL_SHIFT][dy].
+  // Each entry is the row bitmask (as in BitGrid) of the layout row dy
+  // when the reference point sits at col. Placements that poke through
+  // a wall are flagged in maskInBounds instead.
+  private static final int MASK_COL_SHIFT = LAYOUT_SIZE - 1;
+  private static final int MASK_COL_COUNT = Game.WIDTH + MASK_COL_SHIFT;
+  private static final int[] rowMasks;
+  private static final boolean[] maskInBounds;
+  // lowest layout row in each layout col, or NO_CELL, indexed by [type][state][x]
+  private static final int[] bottomProfiles;
+  static
   {
-    switch(type)
+    rowMasks = new int[TYPE_COUNT * STATE_COUNT * MASK_COL_COUNT * LAYOUT_SIZE];
+    maskInBounds = new boolean[TYPE_COUNT * STATE_COUNT * MASK_COL_COUNT];
+    bottomProfiles = new int[TYPE_COUNT * STATE_COUNT * LAYOUT_SIZE];
+    for(TetrominoType type : TetrominoType.values())
     {
-      case I: return I_IMAGE;
-      case Z: return Z_IMAGE;
-      case S: return S_IMAGE;
-      case O: return O_IMAGE;
-      case T: return T_IMAGE;
-      case L: return L_IMAGE;
-      case J: return J_IMAGE;
-      default: throw new IllegalArgumentException();
+      for(int state = 0; state < STATE_COUNT; state++)
+      {
+        Point[] points = getPoints(type)[state];
+        int layoutIndex = type.ordinal() * STATE_COUNT + state;
+
+        for(int x = 0; x < LAYOUT_SIZE; x++)
+        {
+          bottomProfiles[layoutIndex * LAYOUT_SIZE + x] = NO_CELL;
+        }
+        for(Point point : points)
+        {
+          int profileIndex = layoutIndex * LAYOUT_SIZE + point.getX();
+          bottomProfiles[profileIndex] = Math.max(bottomProfiles[profileIndex], point.getY());
+        }
+
+        for(int col = -MASK_COL_SHIFT; col < Game.WIDTH; col++)
+        {
+          int maskIndex = layoutIndex * MASK_COL_COUNT + col + MASK_COL_SHIFT;
+          boolean inBounds = true;
+          for(Point point : points)
+          {
+            int gridX = col + point.getX();
+            if(gridX < 0 || gridX >= Game.WIDTH)
+            {
+              inBounds = false;
+              break;
+            }
+            rowMasks[maskIndex * LAYOUT_SIZE + point.getY()] |= 1 << gridX;
+          }
+          maskInBounds[maskIndex] = inBounds;
+          if(!inBounds)
+          {
+            for(int dy = 0; dy < LAYOUT_SIZE; dy++)
+            {
+              rowMasks[maskIndex * LAYOUT_SIZE + dy] = 0;
+            }
+          }
+        }
+      }
     }
   }
   
@@ -192,4 +175,53 @@ public class TetrominoInfo
     }
   }
   
+  /**
+   * Returns true if that layout fits between the walls
+   * when its reference point sits at col.
+   *
+   * @param type Tetromino Type
+   * @param state Orientation state.
+   * @param col Col of the reference point.
+   * @return True if that layout fits between the walls.
+   */
+  public static boolean isInBounds(TetrominoType type, int state, int col)
+  {
+    if(col < -MASK_COL_SHIFT || col >= Game.WIDTH)
+    {
+      return false;
+    }
+    return maskInBounds[ (type.ordinal() * STATE_COUNT + state) * MASK_COL_COUNT + col + MASK_COL_SHIFT ];
+  }
+  
+  /**
+   * Returns the row bitmask of layout row dy
+   * when the reference point sits at col.
+   * Precondition: isInBounds(type, state, col).
+   *
+   * @param type Tetromino Type
+   * @param state Orientation state.
+   * @param col Col of the reference point.
+   * @param dy Layout row, 0 to LAYOUT_SIZE-1.
+   * @return Row bitmask of that layout row, 0 if it has no Block.
+   */
+  public static int getRowMask(TetrominoType type, int state, int col, int dy)
+  {
+    int maskIndex = (type.ordinal() * STATE_COUNT + state) * MASK_COL_COUNT + col + MASK_COL_SHIFT;
+    return rowMasks[maskIndex * LAYOUT_SIZE + dy];
+  }
+  
+  /**
+   * Returns the lowest layout row holding a Block in layout col x,
+   * or NO_CELL if that layout col is empty.
+   *
+   * @param type Tetromino Type
+   * @param state Orientation state.
+   * @param x Layout col, 0 to LAYOUT_SIZE-1.
+   * @return Lowest layout row in that layout col, or NO_CELL.
+   */
+  public static int getBottom(TetrominoType type, int state, int x)
+  {
+    return bottomProfiles[ (type.ordinal() * STATE_COUNT + state) * LAYOUT_SIZE + x ];
+  }
+  
 }
@@ -0,0 +1,92 @@
+package tetris;
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+
+/**
+ * Contains the rendering data (colors, images) for each Tetromino type.
+ * Only the Slick view uses this class; game rules never load it.
+ *
+ * @author Daniel Rolandi
+ */
+public class TetrominoSkin
+{
+  public static final int PREFERRED_BLOCK_SIZE = 20; // pixels, size of the images
+
+  private static final Color I_COLOR = new Color(0, 255, 255);
+  private static final Color Z_COLOR = new Color(255, 0, 0);
+  private static final Color S_COLOR = new Color(0, 255, 0);
+  private static final Color O_COLOR = new Color(255, 255, 0);
+  private static final Color T_COLOR = new Color(255, 0, 255);
+  private static final Color L_COLOR = new Color(255, 127, 0);
+  private static final Color J_COLOR = new Color(0, 0, 255);
+
+  private static final Image I_IMAGE;
+  private static final Image Z_IMAGE;
+  private static final Image S_IMAGE;
+  private static final Image O_IMAGE;
+  private static final Image T_IMAGE;
+  private static final Image L_IMAGE;
+  private static final Image J_IMAGE;
+  static
+  {
+    try
+    {
+      I_IMAGE = new Image("images/I.png");
+      Z_IMAGE = new Image("images/Z.png");
+      S_IMAGE = new Image("images/S.png");
+      O_IMAGE = new Image("images/O.png");
+      T_IMAGE = new Image("images/T.png");
+      L_IMAGE = new Image("images/L.png");
+      J_IMAGE = new Image("images/J.png");
+    }
+    catch(SlickException slickException)
+    {
+      throw new IllegalStateException("Could not load images.");
+    }
+  }
+
+   /**
+   * Returns Block Color for that Tetromino type
+   *
+   * @param type Tetromino Type
+   * @return Block Color for that Tetromino type
+   */
+  public static Color getColor(TetrominoType type)
+  {
+    switch(type)
+    {
+      case I: return I_COLOR;
+      case Z: return Z_COLOR;
+      case S: return S_COLOR;
+      case O: return O_COLOR;
+      case T: return T_COLOR;
+      case L: return L_COLOR;
+      case J: return J_COLOR;
+      default: throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * Returns Block Image for that Tetromino type
+   *
+   * @param type Tetromino Type
+   * @return Block Image for that Tetromino type
+   */
+  public static Image getImage(TetrominoType type)
+  {
+    switch(type)
+    {
+      case I: return I_IMAGE;
+      case Z: return Z_IMAGE;
+      case S: return S_IMAGE;
+      case O: return O_IMAGE;
+      case T: return T_IMAGE;
+      case L: return L_IMAGE;
+      case J: return J_IMAGE;
+      default: throw new IllegalArgumentException();
+    }
+  }
+
+}
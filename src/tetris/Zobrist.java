@@ -0,0 +1,121 @@
+package tetris;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of game states.
+ * A state hashes to the XOR of the keys of its locked cells,
+ * of its falling Tetromino (type, state, position), of its next type
+ * and of the types queued after it.
+ * The keys come from a fixed seed, so hashes are stable across runs.
+ *
+ * @author Daniel Rolandi
+ */
+public class Zobrist
+{
+  private static final long KEY_SEED = 0x5deece66dL;
+  private static final int COL_SHIFT = TetrominoInfo.LAYOUT_SIZE - 1; // reference col can sit left of the grid
+  private static final int COL_COUNT = Game.WIDTH + COL_SHIFT;
+  public static final int QUEUE_LENGTH = TetrominoInfo.TYPE_COUNT; // queued types after the next one that have keys
+
+  // [row][col][type]
+  private static final long[] cellKeys;
+  // [type][state][col + COL_SHIFT][row]
+  private static final long[] pieceKeys;
+  // [type]
+  private static final long[] nextKeys;
+  // [row][col], occupancy only, for grids that do not keep types
+  private static final long[] blockKeys;
+  // [position][type]
+  private static final long[] queueKeys;
+  static
+  {
+    SplitMix64 random = new SplitMix64(KEY_SEED);
+    cellKeys = new long[Game.HEIGHT * Game.WIDTH * TetrominoInfo.TYPE_COUNT];
+    for(int index = 0; index < cellKeys.length; index++)
+    {
+      cellKeys[index] = random.nextLong();
+    }
+    pieceKeys = new long[TetrominoInfo.TYPE_COUNT * TetrominoInfo.STATE_COUNT * COL_COUNT * Game.HEIGHT];
+    for(int index = 0; index < pieceKeys.length; index++)
+    {
+      pieceKeys[index] = random.nextLong();
+    }
+    nextKeys = new long[TetrominoInfo.TYPE_COUNT];
+    for(int index = 0; index < nextKeys.length; index++)
+    {
+      nextKeys[index] = random.nextLong();
+    }
+    blockKeys = new long[Game.HEIGHT * Game.WIDTH];
+    for(int index = 0; index < blockKeys.length; index++)
+    {
+      blockKeys[index] = random.nextLong();
+    }
+    queueKeys = new long[QUEUE_LENGTH * TetrominoInfo.TYPE_COUNT];
+    for(int index = 0; index < queueKeys.length; index++)
+    {
+      queueKeys[index] = random.nextLong();
+    }
+  }
+
+  /**
+   * Returns the key of a locked Block of that type at that grid cell.
+   *
+   * @param row Row in the grid.
+   * @param col Col in the grid.
+   * @param type Type of the locked Block.
+   * @return The key of that locked Block.
+   */
+  public static long cellKey(int row, int col, TetrominoType type)
+  {
+    return cellKeys[ (row * Game.WIDTH + col) * TetrominoInfo.TYPE_COUNT + type.ordinal() ];
+  }
+
+  /**
+   * Returns the key of an occupied cell of a grid that does not keep types.
+   *
+   * @param row Row in the grid.
+   * @param col Col in the grid.
+   * @return The key of that occupied cell.
+   */
+  public static long blockKey(int row, int col)
+  {
+    return blockKeys[ row * Game.WIDTH + col ];
+  }
+
+  /**
+   * Returns the key of a falling Tetromino at that position.
+   *
+   * @param type Tetromino type.
+   * @param state Orientation state.
+   * @param col Col of the reference point.
+   * @param row Row of the reference point.
+   * @return The key of that falling Tetromino.
+   */
+  public static long pieceKey(TetrominoType type, int state, int col, int row)
+  {
+    return pieceKeys[ ((type.ordinal() * TetrominoInfo.STATE_COUNT + state) * COL_COUNT + col + COL_SHIFT) * Game.HEIGHT + row ];
+  }
+
+  /**
+   * Returns the key of that next Tetromino type.
+   *
+   * @param type Next Tetromino type.
+   * @return The key of that next type.
+   */
+  public static long nextKey(TetrominoType type)
+  {
+    return nextKeys[ type.ordinal() ];
+  }
+
+  /**
+   * Returns the key of that type queued at that position after the next Tetromino.
+   *
+   * @param position 0 for the type right after the next one, up to QUEUE_LENGTH-1.
+   * @param type Queued Tetromino type.
+   * @return The key of that queued type.
+   */
+  public static long queueKey(int position, TetrominoType type)
+  {
+    return queueKeys[ position * TetrominoInfo.TYPE_COUNT + type.ordinal() ];
+  }
+
+}
@@ -0,0 +1,489 @@
+package tetris.bot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import tetris.Game;
+import tetris.Point;
+import tetris.TetrominoInfo;
+import tetris.TetrominoType;
+
+/**
+ * Beam search over the falling Tetromino and the piece preview.
+ * Each depth places one more Tetromino on the best boards of the depth before,
+ * keeping the beamWidth best distinct boards; the boards of a depth
+ * are expanded across the worker threads.
+ * The answer is the first placement on the way to the best board,
+ * the same for any thread count.
+ *
+ * @author Daniel Rolandi
+ */
+public class BeamSearch
+{
+  public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+  // children are keyed by (score, parent, placement) in one long, so sorting the keys ranks them
+  private static final int PLACEMENT_BITS = 16;
+  private static final int PARENT_BITS = 16;
+  private static final int COL_OFFSET = TetrominoInfo.LAYOUT_SIZE;
+  private static final int MAX_BEAM_WIDTH = 1 << PARENT_BITS;
+
+  private final int threadCount;
+  private final int beamWidth;
+  private final int maxDepth;
+  private final Evaluator evaluator;
+  private final TranspositionTable table;
+  private final ExecutorService executor;
+  private final Worker[] workers;
+  private final List<Worker> workerList;
+
+  // the beam of the current depth and the one being built
+  private SearchBoard[] beam;
+  private SearchBoard[] nextBeam;
+  private float[] beamReward;
+  private float[] nextBeamReward;
+  private int[] beamRoot;
+  private int[] nextBeamRoot;
+  private float[] nextBeamScore;
+  private int beamCount;
+
+  private long[] keys;
+  private final long[] seenHashes;
+  private final int[] seenStamps;
+  private int seenStamp;
+
+  // read by the workers during a depth
+  private TetrominoType depthType;
+  private int depthState;
+  private int depthCol;
+  private int depthRow;
+  private long deadlineNanos;
+  private int searchGeneration;
+  private boolean interrupted;
+  // bumped by cancel(); a search runs on while this still equals the one it started under
+  private volatile int generation;
+
+  /**
+   * Inits a search.
+   *
+   * @param threadCount Count of worker threads; 1 searches on the calling thread.
+   * @param beamWidth Count of boards kept at each depth.
+   * @param maxDepth Most Tetrominos to look at, the falling one included.
+   * @param evaluator Scores the boards.
+   * @param table Caches the board scores across searches; may be null.
+   */
+  public BeamSearch(int threadCount, int beamWidth, int maxDepth, Evaluator evaluator, TranspositionTable table)
+  {
+    if(threadCount < 1 || beamWidth < 1 || beamWidth > MAX_BEAM_WIDTH || maxDepth < 1)
+    {
+      throw new IllegalArgumentException("BeamSearch: bad threadCount, beamWidth or maxDepth");
+    }
+    this.threadCount = threadCount;
+    this.beamWidth = beamWidth;
+    this.maxDepth = maxDepth;
+    this.evaluator = evaluator;
+    this.table = table;
+
+    beam = newBoards(beamWidth);
+    nextBeam = newBoards(beamWidth);
+    beamReward = new float[beamWidth];
+    nextBeamReward = new float[beamWidth];
+    beamRoot = new int[beamWidth];
+    nextBeamRoot = new int[beamWidth];
+    nextBeamScore = new float[beamWidth];
+    keys = new long[beamWidth];
+    int seenSize = Integer.highestOneBit(beamWidth * 4 - 1) << 1;
+    seenHashes = new long[seenSize];
+    seenStamps = new int[seenSize];
+
+    workers = new Worker[threadCount];
+    for(int index = 0; index < threadCount; index++)
+    {
+      workers[index] = new Worker(index);
+    }
+    workerList = Arrays.asList(workers);
+    executor = (threadCount > 1) ? Executors.newFixedThreadPool(threadCount, new DaemonThreadFactory()) : null;
+  }
+
+  /**
+   * Returns the best placement of the snapshot's falling Tetromino.
+   * Deeper searches go on until the deadline; an unfinished depth is dropped,
+   * but the falling Tetromino's own placements are always all looked at.
+   *
+   * @param root Snapshot to search.
+   * @param deadlineNanos System.nanoTime() after which the search stops, or NO_DEADLINE.
+   * @return The best placement, or null if there is none or the search was cancelled.
+   */
+  public Placement search(SearchRoot root, long deadlineNanos)
+  {
+    return search(root, deadlineNanos, generation);
+  }
+
+  /**
+   * Returns the best placement, as search(root, deadlineNanos) does, unless
+   * cancel() was called since getGeneration() returned startGeneration.
+   * For a search handed to another thread, so a cancel() before it starts is not lost.
+   *
+   * @param root Snapshot to search.
+   * @param deadlineNanos System.nanoTime() after which the search stops, or NO_DEADLINE.
+   * @param startGeneration What getGeneration() returned when the search was asked for.
+   * @return The best placement, or null if there is none or the search was cancelled.
+   */
+  public Placement search(SearchRoot root, long deadlineNanos, int startGeneration)
+  {
+    searchGeneration = startGeneration;
+    interrupted = false;
+    this.deadlineNanos = deadlineNanos;
+    if(table != null)
+    {
+      table.nextGeneration();
+    }
+
+    beam[0].copyFrom(root);
+    beamReward[0] = 0;
+    beamRoot[0] = -1;
+    beamCount = 1;
+
+    int depthLimit = Math.min(maxDepth, 1 + root.getPreviewCount());
+    int bestRoot = -1;
+    float bestScore = Float.NEGATIVE_INFINITY;
+    int depthReached = 0;
+    for(int depth = 0; depth < depthLimit; depth++)
+    {
+      if(depth == 0)
+      {
+        depthType = root.getType();
+        depthState = root.getState();
+        depthCol = root.getCol();
+        depthRow = root.getRow();
+      }
+      else
+      {
+        depthType = root.getPreviewType(depth - 1);
+        Point spawnPoint = TetrominoInfo.getSpawnPoint(depthType);
+        depthState = 0;
+        depthCol = spawnPoint.getX();
+        depthRow = spawnPoint.getY();
+      }
+      if( !expand(depth) )
+      {
+        break;
+      }
+      if( !selectNextBeam(depth) )
+      {
+        break; // every line of play tops out; keep the last depth's answer
+      }
+      bestRoot = beamRoot[0];
+      bestScore = nextBeamScore[0];
+      depthReached = depth + 1;
+    }
+    if(isCancelled() || bestRoot < 0)
+    {
+      return null;
+    }
+    return new Placement(unpackState(bestRoot), unpackCol(bestRoot), unpackRow(bestRoot), bestScore, depthReached);
+  }
+
+  /**
+   * Makes a running search, and any asked for before now, stop soon and return null;
+   * safe from any thread.
+   */
+  public void cancel()
+  {
+    generation++;
+  }
+
+  /**
+   * Returns the count of cancel() calls so far, to pass to search() later.
+   * @return The current generation.
+   */
+  public int getGeneration()
+  {
+    return generation;
+  }
+
+  /**
+   * Stops the worker threads.
+   */
+  public void shutdown()
+  {
+    if(executor != null)
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  private boolean isCancelled()
+  {
+    return interrupted || generation != searchGeneration;
+  }
+
+  // expands every board of the beam; false if the deadline or a cancel cut the depth short
+  private boolean expand(int depth)
+  {
+    for(Worker worker : workers)
+    {
+      worker.checkDeadline = (depth > 0 && deadlineNanos != NO_DEADLINE);
+      worker.keyCount = 0;
+      worker.aborted = false;
+    }
+    if(executor == null)
+    {
+      workers[0].call();
+    }
+    else
+    {
+      try
+      {
+        for(Future<Void> future : executor.invokeAll(workerList))
+        {
+          future.get();
+        }
+      }
+      catch(InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        interrupted = true;
+      }
+      catch(ExecutionException e)
+      {
+        throw new IllegalStateException("BeamSearch: worker failed", e.getCause());
+      }
+    }
+    if( isCancelled() )
+    {
+      return false;
+    }
+    for(Worker worker : workers)
+    {
+      if(worker.aborted)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // ranks the children of every worker and keeps the beamWidth best distinct boards;
+  // false if there are none
+  private boolean selectNextBeam(int depth)
+  {
+    int keyCount = 0;
+    for(Worker worker : workers)
+    {
+      keyCount += worker.keyCount;
+    }
+    if(keys.length < keyCount)
+    {
+      keys = new long[Math.max(keyCount, keys.length * 2)];
+    }
+    keyCount = 0;
+    for(Worker worker : workers)
+    {
+      System.arraycopy(worker.keys, 0, keys, keyCount, worker.keyCount);
+      keyCount += worker.keyCount;
+    }
+    Arrays.sort(keys, 0, keyCount);
+
+    if(++seenStamp == 0)
+    {
+      Arrays.fill(seenStamps, 0);
+      seenStamp = 1;
+    }
+    int nextCount = 0;
+    for(int index = 0; index < keyCount && nextCount < beamWidth; index++)
+    {
+      long key = keys[index];
+      int parent = (int)((key >>> PLACEMENT_BITS) & (MAX_BEAM_WIDTH - 1));
+      int placement = (int)(key & ((1 << PLACEMENT_BITS) - 1));
+      SearchBoard child = nextBeam[nextCount];
+      child.copyFrom( beam[parent] );
+      int cleared = child.place(depthType, unpackState(placement), unpackCol(placement), unpackRow(placement));
+      if( !markSeen( child.getHash() ) )
+      {
+        continue; // reached by a better-ranked line of play
+      }
+      nextBeamReward[nextCount] = beamReward[parent] + evaluator.rewardClear(cleared);
+      nextBeamRoot[nextCount] = (depth == 0) ? placement : beamRoot[parent];
+      nextBeamScore[nextCount] = unpackScore(key);
+      nextCount++;
+    }
+    if(nextCount == 0)
+    {
+      return false;
+    }
+
+    SearchBoard[] boards = beam;
+    beam = nextBeam;
+    nextBeam = boards;
+    float[] rewards = beamReward;
+    beamReward = nextBeamReward;
+    nextBeamReward = rewards;
+    int[] roots = beamRoot;
+    beamRoot = nextBeamRoot;
+    nextBeamRoot = roots;
+    beamCount = nextCount;
+    return true;
+  }
+
+  // false if that hash was already seen at this depth
+  private boolean markSeen(long hash)
+  {
+    int mask = seenHashes.length - 1;
+    int slot = (int)(hash ^ (hash >>> 32)) & mask;
+    while(seenStamps[slot] == seenStamp)
+    {
+      if(seenHashes[slot] == hash)
+      {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    seenStamps[slot] = seenStamp;
+    seenHashes[slot] = hash;
+    return true;
+  }
+
+  private float evaluate(SearchBoard board)
+  {
+    if(table == null)
+    {
+      return evaluator.evaluate(board);
+    }
+    float score = table.get(board.getHash(), 0);
+    if( Float.isNaN(score) )
+    {
+      score = evaluator.evaluate(board);
+      table.put(board.getHash(), score, 0);
+    }
+    return score;
+  }
+
+  private static long packKey(float score, int parent, int placement)
+  {
+    // flip the float bits so that signed long order is descending score
+    int bits = Float.floatToIntBits(score);
+    if(bits < 0)
+    {
+      bits ^= Integer.MAX_VALUE;
+    }
+    return ((long)~bits << (PARENT_BITS + PLACEMENT_BITS)) | ((long)parent << PLACEMENT_BITS) | placement;
+  }
+
+  private static float unpackScore(long key)
+  {
+    int bits = ~(int)(key >> (PARENT_BITS + PLACEMENT_BITS));
+    if(bits < 0)
+    {
+      bits ^= Integer.MAX_VALUE;
+    }
+    return Float.intBitsToFloat(bits);
+  }
+
+  private static int packPlacement(int state, int col, int row)
+  {
+    return (state << 10) | ((col + COL_OFFSET) << 5) | row;
+  }
+
+  private static int unpackState(int placement)
+  {
+    return placement >>> 10;
+  }
+
+  private static int unpackCol(int placement)
+  {
+    return ((placement >>> 5) & 0x1f) - COL_OFFSET;
+  }
+
+  private static int unpackRow(int placement)
+  {
+    return placement & 0x1f;
+  }
+
+  private static SearchBoard[] newBoards(int count)
+  {
+    SearchBoard[] boards = new SearchBoard[count];
+    for(int index = 0; index < count; index++)
+    {
+      boards[index] = new SearchBoard();
+    }
+    return boards;
+  }
+
+  // expands every threadCount-th board of the beam, starting at its index
+  private class Worker implements Callable<Void>
+  {
+    private final int index;
+    private final PlacementFinder finder;
+    private final SearchBoard child;
+    private long[] keys;
+    private int keyCount;
+    private boolean checkDeadline;
+    private boolean aborted;
+
+    Worker(int index)
+    {
+      this.index = index;
+      finder = new PlacementFinder();
+      child = new SearchBoard();
+      keys = new long[Game.WIDTH * TetrominoInfo.STATE_COUNT * 2];
+    }
+
+    @Override
+    public Void call()
+    {
+      for(int parent = index; parent < beamCount; parent += threadCount)
+      {
+        if( generation != searchGeneration || (checkDeadline && System.nanoTime() - deadlineNanos > 0) )
+        {
+          aborted = true;
+          return null;
+        }
+        SearchBoard board = beam[parent];
+        int count = finder.find(board, depthType, depthState, depthCol, depthRow);
+        for(int placement = 0; placement < count; placement++)
+        {
+          child.copyFrom(board);
+          int state = finder.getState(placement);
+          int col = finder.getCol(placement);
+          int row = finder.getRow(placement);
+          int cleared = child.place(depthType, state, col, row);
+          if( child.isToppedOut() )
+          {
+            continue;
+          }
+          float score = beamReward[parent] + evaluator.rewardClear(cleared) + evaluate(child);
+          add( packKey(score, parent, packPlacement(state, col, row)) );
+        }
+      }
+      return null;
+    }
+
+    private void add(long key)
+    {
+      if(keyCount == keys.length)
+      {
+        keys = Arrays.copyOf(keys, keys.length * 2);
+      }
+      keys[keyCount++] = key;
+    }
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory
+  {
+    @Override
+    public Thread newThread(Runnable task)
+    {
+      Thread thread = new Thread(task, "BeamSearch");
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
@@ -0,0 +1,156 @@
+package tetris.bot;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import tetris.Game;
+
+/**
+ * Plays a Game with a BeamSearch that runs off the game thread.
+ * Each new Tetromino starts a search with a budget of part of the lock delay;
+ * the game loop calls update() every frame and never waits for the search.
+ *
+ * @author Daniel Rolandi
+ */
+public class BotController
+{
+  public static final float DEFAULT_BUDGET_FRACTION = 0.5f;
+
+  private final BeamSearch search;
+  private final int maxPreview;
+  private final float budgetFraction;
+  private final ExecutorService searchThread;
+
+  private Future<Placement> pending;
+  private SearchRoot pendingRoot;
+  // the Tetromino last searched for, so a search that found nothing is not repeated
+  private int searchedPiece = -1;
+  private long searchedGridHash;
+
+  /**
+   * Inits a controller.
+   *
+   * @param search Search to run; owned by this controller from now on.
+   * @param maxPreview Most preview types to search.
+   * @param budgetFraction Part of the lock delay each search may take.
+   */
+  public BotController(BeamSearch search, int maxPreview, float budgetFraction)
+  {
+    this.search = search;
+    this.maxPreview = maxPreview;
+    this.budgetFraction = budgetFraction;
+    searchThread = Executors.newSingleThreadExecutor(new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable task)
+      {
+        Thread thread = new Thread(task, "BotController");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Starts a search for a new Tetromino, or plays the result of a finished one.
+   * Call from the game thread.
+   *
+   * @param game Game to play.
+   */
+  public void update(Game game)
+  {
+    if(pending != null && !pendingRoot.matches(game))
+    {
+      // the Tetromino locked without us, e.g. by gravity
+      search.cancel();
+      pending.cancel(true);
+      pending = null;
+    }
+    if(pending == null)
+    {
+      startSearch(game);
+      return;
+    }
+    if( !pending.isDone() )
+    {
+      return;
+    }
+    Placement placement = result();
+    pending = null;
+    if(placement == null)
+    {
+      return;
+    }
+    try
+    {
+      placement.applyTo(game);
+    }
+    catch(IllegalArgumentException e)
+    {
+      // cannot happen while the root still matches; leave the Tetromino to gravity
+    }
+  }
+
+  /**
+   * Stops the search threads.
+   */
+  public void shutdown()
+  {
+    search.cancel();
+    searchThread.shutdownNow();
+    search.shutdown();
+  }
+
+  private void startSearch(Game game)
+  {
+    if(game.isDefeat() || game.getCurrentTetro() == null)
+    {
+      return;
+    }
+    if(game.getPiecesPlaced() == searchedPiece && game.getGridHash() == searchedGridHash)
+    {
+      return;
+    }
+    final SearchRoot root = new SearchRoot(maxPreview);
+    if( !root.capture(game) )
+    {
+      return;
+    }
+    searchedPiece = game.getPiecesPlaced();
+    searchedGridHash = game.getGridHash();
+    final long deadline = System.nanoTime() + (long)(game.getLockDelay() * budgetFraction * 1000000L);
+    // taken here, so a cancel() before the search thread gets to it still counts
+    final int generation = search.getGeneration();
+    pendingRoot = root;
+    pending = searchThread.submit(new Callable<Placement>()
+    {
+      @Override
+      public Placement call()
+      {
+        return search.search(root, deadline, generation);
+      }
+    });
+  }
+
+  private Placement result()
+  {
+    try
+    {
+      return pending.get();
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch(ExecutionException e)
+    {
+      throw new IllegalStateException("BotController: search failed", e.getCause());
+    }
+  }
+
+}
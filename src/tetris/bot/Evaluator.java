@@ -0,0 +1,28 @@
+package tetris.bot;
+
+/**
+ * Scores boards for a lookahead search; higher is better.
+ * Implementations are called from several search threads at once
+ * and must not keep per-call state.
+ *
+ * @author Daniel Rolandi
+ */
+public interface Evaluator
+{
+  /**
+   * Returns the score of the surface of that board.
+   * Must depend on the locked cells only, so it can be cached by hash.
+   *
+   * @param board Board to score.
+   * @return The score of that board.
+   */
+  float evaluate(SearchBoard board);
+
+  /**
+   * Returns the reward for clearing that many rows with one Tetromino.
+   *
+   * @param rows Count of cleared rows, 0 to TetrominoInfo.BLOCK_COUNT.
+   * @return The reward of that clear.
+   */
+  float rewardClear(int rows);
+}
@@ -0,0 +1,349 @@
+package tetris.bot;
+
+import java.util.Arrays;
+
+import tetris.Action;
+import tetris.Game;
+import tetris.LockedRows;
+import tetris.Point;
+import tetris.TetrominoInfo;
+import tetris.TetrominoType;
+
+/**
+ * Finds the shortest input sequence that locks a Tetromino at a target
+ * placement: moves, rotations and soft drops, ending in HARD_DROP, every
+ * input counting one. Tucks and spins under overhangs are found too, since
+ * the search runs over every (state, col, row) the Tetromino can be in.
+ *
+ * The shortest sequences from the spawn point on an empty grid are worked out
+ * once per TetrominoType. From the spawn point, a cached sequence that still
+ * plays out on the real grid and lands on the target is also shortest there
+ * (every sequence on the real grid plays out on the empty one), so the search
+ * only runs when the stack gets in the way.
+ * One instance per thread.
+ *
+ * @author Daniel Rolandi
+ */
+public class FinessePathFinder
+{
+  public static final int NO_PATH = -1;
+
+  private static final int COL_SHIFT = TetrominoInfo.LAYOUT_SIZE - 1; // reference col can sit left of the grid
+  private static final int COL_COUNT = Game.WIDTH + COL_SHIFT;
+  private static final int STATE_COUNT = TetrominoInfo.STATE_COUNT;
+  private static final int NODE_COUNT = STATE_COUNT * COL_COUNT * Game.HEIGHT;
+  private static final int NO_PARENT = -1;
+  private static final Action[] ACTIONS = Action.values();
+  // rotate first, then slide, then drop: among equally short sequences, the usual finesse order
+  private static final Action[] SEARCH_ACTIONS = {
+    Action.ROTATE_RIGHT, Action.ROTATE_LEFT, Action.MOVE_LEFT, Action.MOVE_RIGHT, Action.MOVE_DOWN
+  };
+
+  // per [type][state][col + COL_SHIFT]: shortest sequence from the spawn point on an empty grid, or null
+  private static final Action[][] emptyPaths;
+  static
+  {
+    emptyPaths = new Action[TetrominoInfo.TYPE_COUNT * STATE_COUNT * COL_COUNT][];
+    LockedRows emptyGrid = new LockedRows()
+    {
+      @Override
+      public int getRowMask(int row)
+      {
+        return 0;
+      }
+    };
+    FinessePathFinder finder = new FinessePathFinder();
+    Action[] path = new Action[getMaxPathLength()];
+    for(TetrominoType type : TetrominoType.values())
+    {
+      Point spawnPoint = TetrominoInfo.getSpawnPoint(type);
+      for(int state = 0; state < STATE_COUNT; state++)
+      {
+        for(int col = -COL_SHIFT; col < Game.WIDTH; col++)
+        {
+          if( !TetrominoInfo.isInBounds(type, state, col) )
+          {
+            continue;
+          }
+          finder.grid = emptyGrid;
+          finder.type = type;
+          int row = 0;
+          while( !finder.fits(state, row, col) )
+          {
+            row++; // the layout pokes out above the grid
+          }
+          row = finder.landingRow(state, col, row);
+          int length = finder.search(0, spawnPoint.getX(), spawnPoint.getY(), state, col, row, path);
+          if(length != NO_PATH)
+          {
+            emptyPaths[cacheIndex(type, state, col)] = Arrays.copyOf(path, length);
+          }
+        }
+      }
+    }
+  }
+
+  private final int[] queue;
+  private final int[] visitedStamp;
+  private final int[] parent;
+  private final byte[] parentAction;
+  private int stamp;
+
+  private LockedRows grid;
+  private TetrominoType type;
+
+  /**
+   * Inits a finder with buffers for the largest search.
+   */
+  public FinessePathFinder()
+  {
+    queue = new int[NODE_COUNT];
+    visitedStamp = new int[NODE_COUNT];
+    parent = new int[NODE_COUNT];
+    parentAction = new byte[NODE_COUNT];
+  }
+
+  /**
+   * Writes the shortest inputs that take a Tetromino from one position
+   * to lock at a target placement; placements covering the same cells count as the same.
+   *
+   * @param grid Locked cells, e.g. a Game.
+   * @param type Tetromino type.
+   * @param state Starting orientation state.
+   * @param col Starting col of the reference point.
+   * @param row Starting row of the reference point.
+   * @param targetState Orientation state of the placement.
+   * @param targetCol Col of the reference point of the placement.
+   * @param targetRow Landing row of the reference point of the placement.
+   * @param path Receives the inputs, at least getMaxPathLength() long.
+   * @return Count of inputs written, ending in HARD_DROP, or NO_PATH if the placement cannot be reached.
+   */
+  public int findPath(LockedRows grid, TetrominoType type, int state, int col, int row,
+      int targetState, int targetCol, int targetRow, Action[] path)
+  {
+    this.grid = grid;
+    this.type = type;
+    if( !fits(state, row, col) || !TetrominoInfo.isInBounds(type, targetState, targetCol) )
+    {
+      return NO_PATH;
+    }
+    Point spawnPoint = TetrominoInfo.getSpawnPoint(type);
+    if(state == 0 && col == spawnPoint.getX() && row == spawnPoint.getY())
+    {
+      Action[] cached = emptyPaths[cacheIndex(type, targetState, targetCol)];
+      if(cached != null && landsOn(cached, state, col, row, targetState, targetCol, targetRow))
+      {
+        System.arraycopy(cached, 0, path, 0, cached.length);
+        return cached.length;
+      }
+    }
+    return search(state, col, row, targetState, targetCol, targetRow, path);
+  }
+
+  /**
+   * Returns the length a path array needs for findPath().
+   * @return The longest possible path.
+   */
+  public static int getMaxPathLength()
+  {
+    return NODE_COUNT + 1;
+  }
+
+  // plays the cached inputs on the real grid; true if each fits and the hard drop covers the target cells
+  private boolean landsOn(Action[] inputs, int state, int col, int row, int targetState, int targetCol, int targetRow)
+  {
+    for(int index = 0; index < inputs.length - 1; index++)
+    {
+      switch(inputs[index])
+      {
+        case ROTATE_RIGHT: state = (state + 1) % STATE_COUNT; break;
+        case ROTATE_LEFT: state = (state + STATE_COUNT - 1) % STATE_COUNT; break;
+        case MOVE_LEFT: col--; break;
+        case MOVE_RIGHT: col++; break;
+        default: row++; break;
+      }
+      if( !fits(state, row, col) )
+      {
+        return false;
+      }
+    }
+    return sameCells(state, col, landingRow(state, col, row), targetState, targetCol, targetRow);
+  }
+
+  // breadth-first over positions; every position reached is one hard drop from locking,
+  // so the first one whose drop covers the target cells gives the shortest sequence
+  private int search(int state, int col, int row, int targetState, int targetCol, int targetRow, Action[] path)
+  {
+    nextStamp();
+    int start = node(state, col, row);
+    visitedStamp[start] = stamp;
+    parent[start] = NO_PARENT;
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = start;
+    while(head < tail)
+    {
+      int current = queue[head++];
+      int currentState = stateOf(current);
+      int currentCol = colOf(current);
+      int currentRow = rowOf(current);
+      if( sameCells(currentState, currentCol, landingRow(currentState, currentCol, currentRow),
+          targetState, targetCol, targetRow) )
+      {
+        return writePath(current, path);
+      }
+      for(Action action : SEARCH_ACTIONS)
+      {
+        int nextState = currentState;
+        int nextCol = currentCol;
+        int nextRow = currentRow;
+        switch(action)
+        {
+          case ROTATE_RIGHT: nextState = (currentState + 1) % STATE_COUNT; break;
+          case ROTATE_LEFT: nextState = (currentState + STATE_COUNT - 1) % STATE_COUNT; break;
+          case MOVE_LEFT: nextCol--; break;
+          case MOVE_RIGHT: nextCol++; break;
+          default: nextRow++; break;
+        }
+        if( !fits(nextState, nextRow, nextCol) )
+        {
+          continue;
+        }
+        int next = node(nextState, nextCol, nextRow);
+        if(visitedStamp[next] == stamp)
+        {
+          continue;
+        }
+        visitedStamp[next] = stamp;
+        parent[next] = current;
+        parentAction[next] = (byte) action.ordinal();
+        queue[tail++] = next;
+      }
+    }
+    return NO_PATH;
+  }
+
+  private int writePath(int last, Action[] path)
+  {
+    int length = 0;
+    for(int current = last; parent[current] != NO_PARENT; current = parent[current])
+    {
+      path[length++] = ACTIONS[ parentAction[current] ];
+    }
+    // the inputs were collected backwards
+    for(int low = 0, high = length - 1; low < high; low++, high--)
+    {
+      Action swapAction = path[low];
+      path[low] = path[high];
+      path[high] = swapAction;
+    }
+    path[length++] = Action.HARD_DROP;
+    return length;
+  }
+
+  private int landingRow(int state, int col, int row)
+  {
+    while( fits(state, row + 1, col) )
+    {
+      row++;
+    }
+    return row;
+  }
+
+  // true if both placements cover the same cells, e.g. the O in any state
+  private boolean sameCells(int state, int col, int row, int otherState, int otherCol, int otherRow)
+  {
+    if(state == otherState && col == otherCol)
+    {
+      return row == otherRow;
+    }
+    int topDy = topLayoutRow(state, col);
+    int otherTopDy = topLayoutRow(otherState, otherCol);
+    if(row + topDy != otherRow + otherTopDy)
+    {
+      return false;
+    }
+    for(int offset = 0; offset < TetrominoInfo.LAYOUT_SIZE; offset++)
+    {
+      if( layoutRowMask(state, col, topDy + offset) != layoutRowMask(otherState, otherCol, otherTopDy + offset) )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int topLayoutRow(int state, int col)
+  {
+    int dy = 0;
+    while(TetrominoInfo.getRowMask(type, state, col, dy) == 0)
+    {
+      dy++;
+    }
+    return dy;
+  }
+
+  private int layoutRowMask(int state, int col, int dy)
+  {
+    return (dy < TetrominoInfo.LAYOUT_SIZE) ? TetrominoInfo.getRowMask(type, state, col, dy) : 0;
+  }
+
+  // same test as Game.fits, against the searched cells
+  private boolean fits(int state, int row, int col)
+  {
+    if( !TetrominoInfo.isInBounds(type, state, col) )
+    {
+      return false;
+    }
+    for(int dy = 0; dy < TetrominoInfo.LAYOUT_SIZE; dy++)
+    {
+      int rowMask = TetrominoInfo.getRowMask(type, state, col, dy);
+      if(rowMask == 0)
+      {
+        continue;
+      }
+      int gridRow = row + dy;
+      if(gridRow < 0 || gridRow >= Game.HEIGHT || (grid.getRowMask(gridRow) & rowMask) != 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void nextStamp()
+  {
+    stamp++;
+    if(stamp == 0)
+    {
+      Arrays.fill(visitedStamp, 0);
+      stamp = 1;
+    }
+  }
+
+  private static int cacheIndex(TetrominoType type, int state, int col)
+  {
+    return (type.ordinal() * STATE_COUNT + state) * COL_COUNT + col + COL_SHIFT;
+  }
+
+  private static int node(int state, int col, int row)
+  {
+    return (state * COL_COUNT + col + COL_SHIFT) * Game.HEIGHT + row;
+  }
+
+  private static int stateOf(int node)
+  {
+    return node / (COL_COUNT * Game.HEIGHT);
+  }
+
+  private static int colOf(int node)
+  {
+    return (node / Game.HEIGHT) % COL_COUNT - COL_SHIFT;
+  }
+
+  private static int rowOf(int node)
+  {
+    return node % Game.HEIGHT;
+  }
+
+}
@@ -0,0 +1,128 @@
+package tetris.bot;
+
+import tetris.BitGrid;
+import tetris.Game;
+
+/**
+ * Linear board heuristic over the classic surface features:
+ * aggregate height, holes, bumpiness, wells and rows cleared.
+ * Every feature comes from one top-down pass over the row bitmasks.
+ *
+ * @author Daniel Rolandi
+ */
+public class HeuristicEvaluator implements Evaluator
+{
+  public static final int HEIGHT_WEIGHT = 0;
+  public static final int HOLES_WEIGHT = 1;
+  public static final int BUMPINESS_WEIGHT = 2;
+  public static final int WELLS_WEIGHT = 3;
+  public static final int LINES_WEIGHT = 4;
+  public static final int WEIGHT_COUNT = 5;
+
+  // hand-tuned starting point
+  private static final float[] DEFAULT_WEIGHTS = {-0.51f, -0.36f, -0.18f, -0.10f, 0.76f};
+
+  // col heights are packed into one long, HEIGHT_BITS per col, so evaluate() does not allocate
+  private static final int HEIGHT_BITS = 5;
+  private static final long HEIGHT_MASK = (1L << HEIGHT_BITS) - 1;
+  static
+  {
+    if(Game.HEIGHT > HEIGHT_MASK || Game.WIDTH * HEIGHT_BITS > Long.SIZE)
+    {
+      throw new IllegalStateException("HeuristicEvaluator: col heights don't fit in a long");
+    }
+  }
+
+  private final float[] weights;
+
+  /**
+   * Inits an evaluator with the default weights.
+   */
+  public HeuristicEvaluator()
+  {
+    this(DEFAULT_WEIGHTS);
+  }
+
+  /**
+   * Inits an evaluator with those weights, indexed by the *_WEIGHT constants.
+   *
+   * @param weights Feature weights, WEIGHT_COUNT long; copied.
+   */
+  public HeuristicEvaluator(float[] weights)
+  {
+    if(weights.length != WEIGHT_COUNT)
+    {
+      throw new IllegalArgumentException("HeuristicEvaluator: expected " + WEIGHT_COUNT + " weights");
+    }
+    this.weights = weights.clone();
+  }
+
+  /**
+   * Returns a copy of the default weights.
+   * @return The default weights.
+   */
+  public static float[] getDefaultWeights()
+  {
+    return DEFAULT_WEIGHTS.clone();
+  }
+
+  @Override
+  public float evaluate(SearchBoard board)
+  {
+    if(board.isToppedOut())
+    {
+      return Float.NEGATIVE_INFINITY;
+    }
+    // heights of the cols as they are first seen from the top
+    int aggregateHeight = 0;
+    int holes = 0;
+    int seen = 0;
+    long heights = 0;
+    for(int row = 0; row < Game.HEIGHT; row++)
+    {
+      int rowMask = board.getRowMask(row);
+      int newCols = rowMask & ~seen;
+      for(int bits = newCols; bits != 0; bits &= bits - 1)
+      {
+        heights |= (long)(Game.HEIGHT - row) << (Integer.numberOfTrailingZeros(bits) * HEIGHT_BITS);
+        aggregateHeight += Game.HEIGHT - row;
+      }
+      seen |= rowMask;
+      holes += Integer.bitCount( seen & ~rowMask & BitGrid.FULL_ROW );
+    }
+
+    int bumpiness = 0;
+    int wells = 0;
+    for(int col = 0; col < Game.WIDTH; col++)
+    {
+      int height = heightOf(heights, col);
+      if(col + 1 < Game.WIDTH)
+      {
+        bumpiness += Math.abs(height - heightOf(heights, col + 1));
+      }
+      int left = (col == 0) ? Game.HEIGHT : heightOf(heights, col - 1);
+      int right = (col == Game.WIDTH - 1) ? Game.HEIGHT : heightOf(heights, col + 1);
+      int depth = Math.min(left, right) - height;
+      if(depth > 0)
+      {
+        wells += depth;
+      }
+    }
+    return weights[HEIGHT_WEIGHT] * aggregateHeight
+         + weights[HOLES_WEIGHT] * holes
+         + weights[BUMPINESS_WEIGHT] * bumpiness
+         + weights[WELLS_WEIGHT] * wells;
+  }
+
+  @Override
+  public float rewardClear(int rows)
+  {
+    return weights[LINES_WEIGHT] * rows;
+  }
+
+  private static int heightOf(long heights, int col)
+  {
+    return (int)((heights >>> (col * HEIGHT_BITS)) & HEIGHT_MASK);
+  }
+
+}
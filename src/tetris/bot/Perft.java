@@ -0,0 +1,217 @@
+package tetris.bot;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import tetris.BagRandomizer;
+import tetris.Point;
+import tetris.Randomizer;
+import tetris.TetrominoInfo;
+import tetris.TetrominoType;
+
+/**
+ * Move-generation counter, as "perft" in chess engines: from an empty grid and
+ * a seeded piece sequence, walks every sequence of placements of the next
+ * depth Tetrominos, each spawned and moved by the Game's own movement and
+ * rotation rules, and counts the boards reached after the last one.
+ * Placements that lose the game end their line and are not counted.
+ *
+ * The count and a checksum over the final boards only change if the rules do,
+ * whatever the thread count, so they double as a regression check for
+ * engine optimizations.
+ *
+ * @author Daniel Rolandi
+ */
+public class Perft
+{
+  // lines of play shorter than this run on one thread
+  private static final int SEQUENTIAL_DEPTH = 2;
+
+  private final ForkJoinPool pool;
+  private final int maxDepth;
+  private final ThreadLocal<Scratch> scratch;
+
+  /**
+   * Inits a counter with its own pool.
+   *
+   * @param parallelism Count of worker threads.
+   * @param maxDepth Deepest count this counter will be asked for.
+   */
+  public Perft(int parallelism, final int maxDepth)
+  {
+    pool = new ForkJoinPool(parallelism);
+    this.maxDepth = maxDepth;
+    scratch = new ThreadLocal<Scratch>()
+    {
+      @Override
+      protected Scratch initialValue()
+      {
+        return new Scratch(maxDepth);
+      }
+    };
+  }
+
+  /**
+   * Counts the boards reached by every line of play of that many Tetrominos.
+   *
+   * @param seed Seed of the 7-bag, as given to Game(long).
+   * @param depth Count of Tetrominos to place, 1 to maxDepth.
+   * @return Count of final boards and their checksum.
+   */
+  public Result run(long seed, int depth)
+  {
+    if(depth < 1 || depth > maxDepth)
+    {
+      throw new IllegalArgumentException("Perft: depth must be in [1, " + maxDepth + "]");
+    }
+    Randomizer randomizer = new BagRandomizer(seed);
+    TetrominoType[] types = new TetrominoType[depth];
+    for(int index = 0; index < depth; index++)
+    {
+      types[index] = randomizer.next();
+    }
+    return pool.invoke( new Subtree(types, new SearchBoard(), 0) );
+  }
+
+  /**
+   * Stops the worker threads.
+   */
+  public void shutdown()
+  {
+    pool.shutdown();
+  }
+
+  /**
+   * Count of final boards and a checksum over them.
+   */
+  public static class Result
+  {
+    private long nodes;
+    private long checksum;
+
+    private void add(Result other)
+    {
+      nodes += other.nodes;
+      checksum += other.checksum;
+    }
+
+    /**
+     * Returns the count of final boards, one per line of play.
+     * @return The count of final boards.
+     */
+    public long getNodes()
+    {
+      return nodes;
+    }
+
+    /**
+     * Returns the sum of the Zobrist hashes of the final boards; the order of the walk does not matter.
+     * @return The checksum of the final boards.
+     */
+    public long getChecksum()
+    {
+      return checksum;
+    }
+  }
+
+  // the lines of play below one board, forked per placement while they are long enough
+  private class Subtree extends RecursiveTask<Result>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final TetrominoType[] types;
+    private final SearchBoard board;
+    private final int depth;
+
+    Subtree(TetrominoType[] types, SearchBoard board, int depth)
+    {
+      this.types = types;
+      this.board = board;
+      this.depth = depth;
+    }
+
+    @Override
+    protected Result compute()
+    {
+      Result result = new Result();
+      Scratch own = scratch.get();
+      if(types.length - depth <= SEQUENTIAL_DEPTH)
+      {
+        own.walk(types, board, depth, result);
+        return result;
+      }
+      PlacementFinder finder = own.finders[depth];
+      TetrominoType type = types[depth];
+      Point spawnPoint = TetrominoInfo.getSpawnPoint(type);
+      int count = finder.find(board, type, 0, spawnPoint.getX(), spawnPoint.getY());
+      Subtree[] children = new Subtree[count];
+      int childCount = 0;
+      for(int index = 0; index < count; index++)
+      {
+        SearchBoard child = new SearchBoard();
+        child.copyFrom(board);
+        child.place(type, finder.getState(index), finder.getCol(index), finder.getRow(index));
+        if( !child.isToppedOut() )
+        {
+          children[childCount++] = new Subtree(types, child, depth + 1);
+        }
+      }
+      // the finder is reused by whatever this thread runs next, so fork only now
+      for(int index = 0; index < childCount; index++)
+      {
+        children[index].fork();
+      }
+      for(int index = childCount - 1; index >= 0; index--)
+      {
+        result.add( children[index].join() );
+      }
+      return result;
+    }
+  }
+
+  // per-thread finders and boards, one per depth
+  private static class Scratch
+  {
+    private final PlacementFinder[] finders;
+    private final SearchBoard[] boards;
+
+    Scratch(int maxDepth)
+    {
+      finders = new PlacementFinder[maxDepth];
+      boards = new SearchBoard[maxDepth + 1];
+      for(int depth = 0; depth < maxDepth; depth++)
+      {
+        finders[depth] = new PlacementFinder();
+      }
+      for(int depth = 0; depth <= maxDepth; depth++)
+      {
+        boards[depth] = new SearchBoard();
+      }
+    }
+
+    void walk(TetrominoType[] types, SearchBoard board, int depth, Result result)
+    {
+      if(depth == types.length)
+      {
+        result.nodes++;
+        result.checksum += board.getHash();
+        return;
+      }
+      PlacementFinder finder = finders[depth];
+      TetrominoType type = types[depth];
+      Point spawnPoint = TetrominoInfo.getSpawnPoint(type);
+      int count = finder.find(board, type, 0, spawnPoint.getX(), spawnPoint.getY());
+      SearchBoard child = boards[depth + 1];
+      for(int index = 0; index < count; index++)
+      {
+        child.copyFrom(board);
+        child.place(type, finder.getState(index), finder.getCol(index), finder.getRow(index));
+        if( !child.isToppedOut() )
+        {
+          walk(types, child, depth + 1, result);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,40 @@
+package tetris.bot;
+
+/**
+ * Command-line perft: prints the count and checksum of the boards reached
+ * after 1 to depth Tetrominos, with nodes per second.
+ *
+ * Usage: java -cp Tetris.jar tetris.bot.PerftMain [depth] [threads] [seed]
+ *
+ * @author Daniel Rolandi
+ */
+public class PerftMain
+{
+  private static final int DEFAULT_DEPTH = 4;
+  private static final long DEFAULT_SEED = 1L;
+
+  /**
+   * Application method.
+   *
+   * @param args Command-line arguments.
+   */
+  public static void main(String[] args)
+  {
+    int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+    int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    long seed = (args.length > 2) ? Long.parseLong(args[2]) : DEFAULT_SEED;
+
+    Perft perft = new Perft(threads, depth);
+    System.out.println("perft seed " + seed + " on " + threads + " threads");
+    for(int count = 1; count <= depth; count++)
+    {
+      long startTime = System.nanoTime();
+      Perft.Result result = perft.run(seed, count);
+      double seconds = (System.nanoTime() - startTime) / 1e9;
+      System.out.println(String.format("depth %d  nodes %d  checksum %016x  %.3f s  %.0f nodes/s",
+          count, result.getNodes(), result.getChecksum(), seconds, result.getNodes() / seconds));
+    }
+    perft.shutdown();
+  }
+
+}
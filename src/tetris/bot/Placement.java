@@ -0,0 +1,98 @@
+package tetris.bot;
+
+import tetris.Game;
+
+/**
+ * A resting position chosen for the falling Tetromino, with the score
+ * that picked it.
+ *
+ * @author Daniel Rolandi
+ */
+public class Placement
+{
+  private final int state;
+  private final int col;
+  private final int row;
+  private final float score;
+  private final int depth;
+
+  /**
+   * Inits a Placement.
+   *
+   * @param state Orientation state.
+   * @param col Col of the reference point.
+   * @param row Landing row of the reference point.
+   * @param score Score of the best line of play through this placement.
+   * @param depth Count of Tetrominos that line of play looked at.
+   */
+  public Placement(int state, int col, int row, float score, int depth)
+  {
+    this.state = state;
+    this.col = col;
+    this.row = row;
+    this.score = score;
+    this.depth = depth;
+  }
+
+  /**
+   * Locks the Game's falling Tetromino here.
+   *
+   * @param game Game to play.
+   */
+  public void applyTo(Game game)
+  {
+    game.applyPlacement(state, col, row);
+  }
+
+  /**
+   * Returns the orientation state.
+   * @return The orientation state.
+   */
+  public int getState()
+  {
+    return state;
+  }
+
+  /**
+   * Returns the col of the reference point.
+   * @return The col of the reference point.
+   */
+  public int getCol()
+  {
+    return col;
+  }
+
+  /**
+   * Returns the landing row of the reference point.
+   * @return The landing row of the reference point.
+   */
+  public int getRow()
+  {
+    return row;
+  }
+
+  /**
+   * Returns the score of the best line of play through this placement.
+   * @return The score.
+   */
+  public float getScore()
+  {
+    return score;
+  }
+
+  /**
+   * Returns the count of Tetrominos the search looked at.
+   * @return The search depth reached.
+   */
+  public int getDepth()
+  {
+    return depth;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Placement(state " + state + ", col " + col + ", row " + row + ", score " + score + ", depth " + depth + ")";
+  }
+
+}
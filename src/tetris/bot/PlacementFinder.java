@@ -0,0 +1,490 @@
+package tetris.bot;
+
+import java.util.Arrays;
+
+import tetris.Action;
+import tetris.Game;
+import tetris.LockedRows;
+import tetris.Point;
+import tetris.Tetromino;
+import tetris.TetrominoInfo;
+import tetris.TetrominoType;
+
+/**
+ * Lists every distinct resting placement the falling Tetromino can reach
+ * with the player's moves (left, right, soft drop, both rotations),
+ * tucks and spins under overhangs included.
+ * Placements covering the same cells (e.g. the O in every state) count once.
+ *
+ * find() works on one bitmask per (state, row), bit j meaning the reference
+ * point at col j - COL_SHIFT: free positions come from shifted grid rows,
+ * and the reachable set is flood-filled sideways, across rotations and down.
+ * The input sequence of a placement comes from a breadth-first search over
+ * single positions, run only when a path is asked for.
+ * All buffers are allocated up front, so neither allocates.
+ * One instance per thread.
+ *
+ * @author Daniel Rolandi
+ */
+public class PlacementFinder
+{
+  private static final int COL_SHIFT = TetrominoInfo.LAYOUT_SIZE - 1; // reference col can sit left of the grid
+  private static final int COL_COUNT = Game.WIDTH + COL_SHIFT;
+  private static final int STATE_COUNT = TetrominoInfo.STATE_COUNT;
+  private static final int NODE_COUNT = STATE_COUNT * COL_COUNT * Game.HEIGHT;
+  private static final int NO_PARENT = -1;
+  private static final Action[] ACTIONS = Action.values();
+  // search order: sideways moves before the soft drop, so paths fall last
+  private static final Action[] SEARCH_ACTIONS = {
+    Action.ROTATE_RIGHT, Action.ROTATE_LEFT, Action.MOVE_LEFT, Action.MOVE_RIGHT, Action.MOVE_DOWN
+  };
+
+  // per [type][state]: cols (shifted) where the layout stays between the walls
+  private static final int[] inBoundsMasks;
+  // per [type][state][block]: layout offsets of each Block
+  private static final int[] cellX;
+  private static final int[] cellY;
+  static
+  {
+    inBoundsMasks = new int[TetrominoInfo.TYPE_COUNT * STATE_COUNT];
+    cellX = new int[TetrominoInfo.TYPE_COUNT * STATE_COUNT * TetrominoInfo.BLOCK_COUNT];
+    cellY = new int[cellX.length];
+    for(TetrominoType type : TetrominoType.values())
+    {
+      for(int state = 0; state < STATE_COUNT; state++)
+      {
+        int layoutIndex = type.ordinal() * STATE_COUNT + state;
+        for(int col = -COL_SHIFT; col < Game.WIDTH; col++)
+        {
+          if( TetrominoInfo.isInBounds(type, state, col) )
+          {
+            inBoundsMasks[layoutIndex] |= 1 << (col + COL_SHIFT);
+          }
+        }
+        Point[] points = TetrominoInfo.getPoints(type)[state];
+        for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
+        {
+          cellX[layoutIndex * TetrominoInfo.BLOCK_COUNT + blockIndex] = points[blockIndex].getX();
+          cellY[layoutIndex * TetrominoInfo.BLOCK_COUNT + blockIndex] = points[blockIndex].getY();
+        }
+      }
+    }
+  }
+
+  // bitmask search, indexed [row][state]; free has one extra all-blocked row below the floor
+  private final int[] free;
+  private final int[] reach;
+
+  // path search
+  private final int[] queue;
+  private final int[] visitedStamp;
+  private final int[] parent;
+  private final byte[] parentAction;
+  private int stamp;
+  private boolean pathsReady;
+
+  private final int[] placementNodes;
+  private final long[] placementKeys;
+  private int placementCount;
+
+  private LockedRows grid;
+  private TetrominoType type;
+  private int startNode;
+
+  /**
+   * Inits a finder with buffers for the largest search.
+   */
+  public PlacementFinder()
+  {
+    free = new int[(Game.HEIGHT + 1) * STATE_COUNT];
+    reach = new int[Game.HEIGHT * STATE_COUNT];
+    queue = new int[NODE_COUNT];
+    visitedStamp = new int[NODE_COUNT];
+    parent = new int[NODE_COUNT];
+    parentAction = new byte[NODE_COUNT];
+    placementNodes = new int[NODE_COUNT];
+    placementKeys = new long[NODE_COUNT];
+  }
+
+  /**
+   * Finds the placements of the Game's falling Tetromino from where it is now.
+   *
+   * @param game Game to search.
+   * @return Count of distinct placements, 0 if there is no falling Tetromino.
+   */
+  public int find(Game game)
+  {
+    Tetromino tetro = game.getCurrentTetro();
+    if(tetro == null)
+    {
+      grid = game;
+      placementCount = 0;
+      return 0;
+    }
+    return find(game, tetro.getType(), tetro.getState(), tetro.getGridX(), tetro.getGridY());
+  }
+
+  /**
+   * Finds the placements of a Tetromino of that type starting from that position,
+   * against those locked cells.
+   *
+   * @param grid Locked cells to search, a Game or a scratch copy.
+   * @param type Tetromino type.
+   * @param state Starting orientation state.
+   * @param col Starting col of the reference point.
+   * @param row Starting row of the reference point, 0 or below.
+   * @return Count of distinct placements.
+   */
+  public int find(LockedRows grid, TetrominoType type, int state, int col, int row)
+  {
+    this.grid = grid;
+    this.type = type;
+    placementCount = 0;
+    pathsReady = false;
+    if( !fits(state, row, col) )
+    {
+      return 0;
+    }
+    startNode = node(state, col, row);
+
+    fillFree(row);
+    Arrays.fill(reach, row * STATE_COUNT, reach.length, 0);
+    reach[row * STATE_COUNT + state] = 1 << (col + COL_SHIFT);
+
+    // moves never go up, so one top-down pass with a fixpoint per row is complete
+    for(int currentRow = row; currentRow < Game.HEIGHT; currentRow++)
+    {
+      int base = currentRow * STATE_COUNT;
+      boolean changed = true;
+      while(changed)
+      {
+        changed = false;
+        for(int currentState = 0; currentState < STATE_COUNT; currentState++)
+        {
+          int freeMask = free[base + currentState];
+          int rotated = reach[base + (currentState + 1) % STATE_COUNT]
+                      | reach[base + (currentState + STATE_COUNT - 1) % STATE_COUNT];
+          int before = reach[base + currentState];
+          int after = slide(before | (rotated & freeMask), freeMask);
+          if(after != before)
+          {
+            reach[base + currentState] = after;
+            changed = true;
+          }
+        }
+      }
+      for(int currentState = 0; currentState < STATE_COUNT; currentState++)
+      {
+        int reached = reach[base + currentState];
+        if(reached == 0)
+        {
+          continue;
+        }
+        int freeBelow = free[base + STATE_COUNT + currentState];
+        if(currentRow + 1 < Game.HEIGHT)
+        {
+          reach[base + STATE_COUNT + currentState] = reached & freeBelow;
+        }
+        for(int resting = reached & ~freeBelow; resting != 0; resting &= resting - 1)
+        {
+          int restingCol = Integer.numberOfTrailingZeros(resting) - COL_SHIFT;
+          addPlacement(currentState, restingCol, currentRow);
+        }
+      }
+    }
+    return placementCount;
+  }
+
+  // free[row][state] for every row from fromRow down, plus the blocked row under the floor
+  private void fillFree(int fromRow)
+  {
+    int layoutBase = type.ordinal() * STATE_COUNT;
+    for(int row = fromRow; row < Game.HEIGHT; row++)
+    {
+      for(int state = 0; state < STATE_COUNT; state++)
+      {
+        int cellBase = (layoutBase + state) * TetrominoInfo.BLOCK_COUNT;
+        int blocked = 0;
+        for(int blockIndex = 0; blockIndex < TetrominoInfo.BLOCK_COUNT; blockIndex++)
+        {
+          int gridRow = row + cellY[cellBase + blockIndex];
+          if(gridRow >= Game.HEIGHT)
+          {
+            blocked = -1;
+            break;
+          }
+          // bit j of blocked: the Block at layout col x lands on grid col j - COL_SHIFT + x
+          int shift = cellX[cellBase + blockIndex] - COL_SHIFT;
+          int gridMask = grid.getRowMask(gridRow);
+          blocked |= (shift >= 0) ? (gridMask >>> shift) : (gridMask << -shift);
+        }
+        free[row * STATE_COUNT + state] = ~blocked & inBoundsMasks[layoutBase + state];
+      }
+    }
+    Arrays.fill(free, Game.HEIGHT * STATE_COUNT, free.length, 0);
+  }
+
+  // every position reachable sideways from reached without leaving freeMask (occluded fill)
+  private static int slide(int reached, int freeMask)
+  {
+    int right = reached;
+    int open = freeMask;
+    right |= open & (right << 1);
+    open &= open << 1;
+    right |= open & (right << 2);
+    open &= open << 2;
+    right |= open & (right << 4);
+    open &= open << 4;
+    right |= open & (right << 8);
+
+    int left = reached;
+    open = freeMask;
+    left |= open & (left >>> 1);
+    open &= open >>> 1;
+    left |= open & (left >>> 2);
+    open &= open >>> 2;
+    left |= open & (left >>> 4);
+    open &= open >>> 4;
+    left |= open & (left >>> 8);
+    return right | left;
+  }
+
+  /**
+   * Returns the count of placements found by the last find().
+   * @return The count of placements.
+   */
+  public int getPlacementCount()
+  {
+    return placementCount;
+  }
+
+  /**
+   * Returns the orientation state of that placement.
+   *
+   * @param index Placement index, 0 to getPlacementCount()-1.
+   * @return The orientation state.
+   */
+  public int getState(int index)
+  {
+    return stateOf( placementNodes[index] );
+  }
+
+  /**
+   * Returns the col of the reference point of that placement.
+   *
+   * @param index Placement index.
+   * @return The col of the reference point.
+   */
+  public int getCol(int index)
+  {
+    return colOf( placementNodes[index] );
+  }
+
+  /**
+   * Returns the landing row of the reference point of that placement.
+   *
+   * @param index Placement index.
+   * @return The row of the reference point.
+   */
+  public int getRow(int index)
+  {
+    return rowOf( placementNodes[index] );
+  }
+
+  /**
+   * Returns the type of Tetromino searched by the last find().
+   * @return The Tetromino type.
+   */
+  public TetrominoType getType()
+  {
+    return type;
+  }
+
+  /**
+   * Writes the moves that reach that placement and lock it, ending in HARD_DROP.
+   * Soft drops straight before the lock are folded into the hard drop.
+   * The first call after a find() runs the path search;
+   * the locked cells must not have changed since that find().
+   *
+   * @param index Placement index.
+   * @param path Receives the moves, at least getMaxPathLength() long.
+   * @return Count of moves written.
+   */
+  public int getPath(int index, Action[] path)
+  {
+    if(!pathsReady)
+    {
+      searchPaths();
+      pathsReady = true;
+    }
+    int length = 0;
+    for(int current = placementNodes[index]; parent[current] != NO_PARENT; current = parent[current])
+    {
+      path[length++] = ACTIONS[ parentAction[current] ];
+    }
+    // the moves were collected backwards
+    for(int low = 0, high = length - 1; low < high; low++, high--)
+    {
+      Action swapAction = path[low];
+      path[low] = path[high];
+      path[high] = swapAction;
+    }
+    while(length > 0 && path[length - 1] == Action.MOVE_DOWN)
+    {
+      length--;
+    }
+    path[length++] = Action.HARD_DROP;
+    return length;
+  }
+
+  /**
+   * Returns the length a path array needs for getPath().
+   * @return The longest possible path.
+   */
+  public static int getMaxPathLength()
+  {
+    return NODE_COUNT + 1;
+  }
+
+  /**
+   * Locks the Game's falling Tetromino at that placement.
+   *
+   * @param game Game searched by the last find(game).
+   * @param index Placement index.
+   */
+  public void apply(Game game, int index)
+  {
+    game.applyPlacement( getState(index), getCol(index), getRow(index) );
+  }
+
+  // breadth-first over single positions, leaving a shortest-path tree in parent
+  private void searchPaths()
+  {
+    nextStamp();
+    visitedStamp[startNode] = stamp;
+    parent[startNode] = NO_PARENT;
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = startNode;
+    while(head < tail)
+    {
+      int current = queue[head++];
+      int currentState = stateOf(current);
+      int currentCol = colOf(current);
+      int currentRow = rowOf(current);
+      for(Action action : SEARCH_ACTIONS)
+      {
+        int nextState = currentState;
+        int nextCol = currentCol;
+        int nextRow = currentRow;
+        switch(action)
+        {
+          case ROTATE_RIGHT: nextState = (currentState + 1) % STATE_COUNT; break;
+          case ROTATE_LEFT: nextState = (currentState + STATE_COUNT - 1) % STATE_COUNT; break;
+          case MOVE_LEFT: nextCol--; break;
+          case MOVE_RIGHT: nextCol++; break;
+          default: nextRow++; break;
+        }
+        if( !fits(nextState, nextRow, nextCol) )
+        {
+          continue;
+        }
+        int next = node(nextState, nextCol, nextRow);
+        if(visitedStamp[next] == stamp)
+        {
+          continue;
+        }
+        visitedStamp[next] = stamp;
+        parent[next] = current;
+        parentAction[next] = (byte) action.ordinal();
+        queue[tail++] = next;
+      }
+    }
+  }
+
+  // same test as Game.fits, against the searched cells
+  private boolean fits(int state, int row, int col)
+  {
+    if( !TetrominoInfo.isInBounds(type, state, col) )
+    {
+      return false;
+    }
+    for(int dy = 0; dy < TetrominoInfo.LAYOUT_SIZE; dy++)
+    {
+      int rowMask = TetrominoInfo.getRowMask(type, state, col, dy);
+      if(rowMask == 0)
+      {
+        continue;
+      }
+      int gridRow = row + dy;
+      if(gridRow < 0 || gridRow >= Game.HEIGHT || (grid.getRowMask(gridRow) & rowMask) != 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void addPlacement(int state, int col, int row)
+  {
+    long key = footprint(state, col, row);
+    for(int index = 0; index < placementCount; index++)
+    {
+      if(placementKeys[index] == key)
+      {
+        return;
+      }
+    }
+    placementKeys[placementCount] = key;
+    placementNodes[placementCount] = node(state, col, row);
+    placementCount++;
+  }
+
+  // top occupied row and the LAYOUT_SIZE row masks from there down, one key per set of cells
+  private long footprint(int state, int col, int row)
+  {
+    int topDy = 0;
+    while(TetrominoInfo.getRowMask(type, state, col, topDy) == 0)
+    {
+      topDy++;
+    }
+    long key = row + topDy;
+    for(int dy = topDy; dy < topDy + TetrominoInfo.LAYOUT_SIZE; dy++)
+    {
+      int rowMask = (dy < TetrominoInfo.LAYOUT_SIZE) ? TetrominoInfo.getRowMask(type, state, col, dy) : 0;
+      key = (key << Game.WIDTH) | rowMask;
+    }
+    return key;
+  }
+
+  private void nextStamp()
+  {
+    stamp++;
+    if(stamp == 0)
+    {
+      Arrays.fill(visitedStamp, 0);
+      stamp = 1;
+    }
+  }
+
+  private static int node(int state, int col, int row)
+  {
+    return (state * COL_COUNT + col + COL_SHIFT) * Game.HEIGHT + row;
+  }
+
+  private static int stateOf(int node)
+  {
+    return node / (COL_COUNT * Game.HEIGHT);
+  }
+
+  private static int colOf(int node)
+  {
+    return (node / Game.HEIGHT) % COL_COUNT - COL_SHIFT;
+  }
+
+  private static int rowOf(int node)
+  {
+    return node % Game.HEIGHT;
+  }
+
+}
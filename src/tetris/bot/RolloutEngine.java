@@ -0,0 +1,412 @@
+package tetris.bot;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import tetris.BagRandomizer;
+import tetris.Game;
+import tetris.Point;
+import tetris.Randomizer;
+import tetris.ScoreKeeper;
+import tetris.SplitMix64;
+import tetris.TetrominoInfo;
+import tetris.TetrominoType;
+
+/**
+ * Monte Carlo evaluation of the placements of the falling Tetromino.
+ * Each placement is followed by rollouts: the visible next Tetromino, then
+ * pieces from a reshuffled copy of the Game's 7-bag, each placed by a greedy
+ * policy on an Evaluator, for a fixed count of pieces. A rollout's outcome is
+ * the score the Game's ScoreKeeper rules give its cleared rows.
+ *
+ * Rollouts run on a work-stealing pool. Each worker thread has its own finder,
+ * boards and bag, and each rollout writes only its own outcome slot, seeded
+ * by its index, so the results do not depend on the thread count.
+ *
+ * @author Daniel Rolandi
+ */
+public class RolloutEngine
+{
+  private static final int ROLLOUTS_PER_TASK = 16;
+  // keeps rollout seeds apart; not GOLDEN_GAMMA, whose multiples would overlap streams
+  private static final long ROLLOUT_STRIDE = 0xd1b54a32d192ed03L;
+
+  private final ForkJoinPool pool;
+  private final int rolloutCount;
+  private final int depth;
+  private final Evaluator policy;
+  private final ThreadLocal<Worker> workers;
+  private long seed;
+
+  // the root, read by every worker during evaluate()
+  private final PlacementFinder rootFinder;
+  private final SearchBoard rootBoard;
+  private TetrominoType rootType;
+  private TetrominoType nextType;
+  private final BagRandomizer rootBag; // what is left of the Game's bag
+  private boolean hasRootBag;
+  private int rootLevel;
+  private int rootClearCounter;
+
+  private int placementCount;
+  private int[] states;
+  private int[] cols;
+  private int[] rows;
+  private float[] outcomes; // rolloutCount per placement
+  private boolean[] losses;
+  private double[] means;
+  private double[] variances;
+  private float[] lossRates;
+
+  /**
+   * Inits an engine with its own pool.
+   *
+   * @param parallelism Count of worker threads.
+   * @param rolloutCount Count of rollouts per placement.
+   * @param depth Count of Tetrominos each rollout places, the evaluated one included.
+   * @param policy Scores boards for the greedy rollout policy.
+   * @param seed Seed of the first evaluate(); later calls carry on from it.
+   */
+  public RolloutEngine(int parallelism, int rolloutCount, int depth, Evaluator policy, long seed)
+  {
+    if(rolloutCount < 1 || depth < 1)
+    {
+      throw new IllegalArgumentException("RolloutEngine: rolloutCount and depth must be positive");
+    }
+    pool = new ForkJoinPool(parallelism);
+    this.rolloutCount = rolloutCount;
+    this.depth = depth;
+    this.policy = policy;
+    this.seed = seed;
+    workers = new ThreadLocal<Worker>()
+    {
+      @Override
+      protected Worker initialValue()
+      {
+        return new Worker();
+      }
+    };
+    rootFinder = new PlacementFinder();
+    rootBoard = new SearchBoard();
+    rootBag = new BagRandomizer(seed);
+  }
+
+  /**
+   * Rolls out every placement of the Game's falling Tetromino.
+   * Call from the game thread; the Game is only read before the rollouts start.
+   *
+   * @param game Game to evaluate.
+   * @return Count of placements evaluated, 0 if there is no falling Tetromino.
+   */
+  public int evaluate(Game game)
+  {
+    placementCount = 0;
+    if(game.isDefeat() || game.getCurrentTetro() == null)
+    {
+      return 0;
+    }
+    rootBoard.copyFrom(game);
+    rootType = game.getCurrentTetro().getType();
+    nextType = game.getPreviewType(0);
+    Randomizer randomizer = game.getRandomizer();
+    hasRootBag = (randomizer instanceof BagRandomizer);
+    if(hasRootBag)
+    {
+      rootBag.copyFrom( (BagRandomizer)randomizer );
+    }
+    rootLevel = game.getScoreKeeper().getLevel();
+    rootClearCounter = game.getScoreKeeper().getClearedCount() % Game.CLEARS_PER_LEVEL;
+
+    placementCount = rootFinder.find(game);
+    ensureCapacity(placementCount);
+    for(int index = 0; index < placementCount; index++)
+    {
+      states[index] = rootFinder.getState(index);
+      cols[index] = rootFinder.getCol(index);
+      rows[index] = rootFinder.getRow(index);
+    }
+    long runSeed = seed;
+    seed = new SplitMix64(seed).nextLong();
+    pool.invoke( new RolloutRange(runSeed, 0, placementCount * rolloutCount) );
+    summarize();
+    return placementCount;
+  }
+
+  /**
+   * Returns the placement with the highest mean outcome, fewer losses breaking ties.
+   * @return Index of the best placement, or -1 if there is none.
+   */
+  public int getBest()
+  {
+    int best = -1;
+    for(int index = 0; index < placementCount; index++)
+    {
+      if(best < 0 || means[index] > means[best]
+          || (means[index] == means[best] && lossRates[index] < lossRates[best]))
+      {
+        best = index;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Locks the Game's falling Tetromino at that placement of the last evaluate().
+   *
+   * @param game Game that was evaluated, unchanged since.
+   * @param index Placement index.
+   */
+  public void apply(Game game, int index)
+  {
+    game.applyPlacement(states[index], cols[index], rows[index]);
+  }
+
+  /**
+   * Returns the orientation state of a placement.
+   *
+   * @param index Placement index.
+   * @return The orientation state.
+   */
+  public int getState(int index)
+  {
+    return states[index];
+  }
+
+  /**
+   * Returns the col of a placement.
+   *
+   * @param index Placement index.
+   * @return The col of the reference point.
+   */
+  public int getCol(int index)
+  {
+    return cols[index];
+  }
+
+  /**
+   * Returns the landing row of a placement.
+   *
+   * @param index Placement index.
+   * @return The landing row of the reference point.
+   */
+  public int getRow(int index)
+  {
+    return rows[index];
+  }
+
+  /**
+   * Returns the mean outcome of a placement's rollouts.
+   *
+   * @param index Placement index.
+   * @return The mean score gained.
+   */
+  public double getMean(int index)
+  {
+    return means[index];
+  }
+
+  /**
+   * Returns the sample variance of a placement's rollout outcomes.
+   *
+   * @param index Placement index.
+   * @return The variance of the score gained, 0 for a single rollout.
+   */
+  public double getVariance(int index)
+  {
+    return variances[index];
+  }
+
+  /**
+   * Returns the share of a placement's rollouts that lost the game.
+   *
+   * @param index Placement index.
+   * @return The loss rate, 0 to 1.
+   */
+  public float getLossRate(int index)
+  {
+    return lossRates[index];
+  }
+
+  /**
+   * Stops the worker threads.
+   */
+  public void shutdown()
+  {
+    pool.shutdown();
+  }
+
+  private void ensureCapacity(int count)
+  {
+    if(states != null && states.length >= count)
+    {
+      return;
+    }
+    states = new int[count];
+    cols = new int[count];
+    rows = new int[count];
+    outcomes = new float[count * rolloutCount];
+    losses = new boolean[count * rolloutCount];
+    means = new double[count];
+    variances = new double[count];
+    lossRates = new float[count];
+  }
+
+  private void summarize()
+  {
+    for(int index = 0; index < placementCount; index++)
+    {
+      int first = index * rolloutCount;
+      double sum = 0;
+      int lossCount = 0;
+      for(int rollout = first; rollout < first + rolloutCount; rollout++)
+      {
+        sum += outcomes[rollout];
+        lossCount += losses[rollout] ? 1 : 0;
+      }
+      double mean = sum / rolloutCount;
+      double squares = 0;
+      for(int rollout = first; rollout < first + rolloutCount; rollout++)
+      {
+        double delta = outcomes[rollout] - mean;
+        squares += delta * delta;
+      }
+      means[index] = mean;
+      variances[index] = (rolloutCount > 1) ? squares / (rolloutCount - 1) : 0;
+      lossRates[index] = (float)lossCount / rolloutCount;
+    }
+  }
+
+  // splits the rollout index range in halves until it is small enough to run
+  private class RolloutRange extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final long runSeed;
+    private final int from;
+    private final int to;
+
+    RolloutRange(long runSeed, int from, int to)
+    {
+      this.runSeed = runSeed;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if(to - from <= ROLLOUTS_PER_TASK)
+      {
+        Worker worker = workers.get();
+        for(int rollout = from; rollout < to; rollout++)
+        {
+          worker.rollout(rollout, runSeed + rollout * ROLLOUT_STRIDE);
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new RolloutRange(runSeed, from, middle), new RolloutRange(runSeed, middle, to));
+    }
+  }
+
+  // one per pool thread
+  private class Worker
+  {
+    private final SplitMix64 random;
+    private final BagRandomizer bag;
+    private final PlacementFinder finder;
+    private final SearchBoard board;
+    private final SearchBoard candidate;
+    private final ScoreKeeper scoreKeeper;
+
+    Worker()
+    {
+      random = new SplitMix64(0L);
+      bag = new BagRandomizer(random);
+      finder = new PlacementFinder();
+      board = new SearchBoard();
+      candidate = new SearchBoard();
+      scoreKeeper = new ScoreKeeper();
+    }
+
+    void rollout(int rollout, long rolloutSeed)
+    {
+      int placement = rollout / rolloutCount;
+      random.reseed(rolloutSeed);
+      if(hasRootBag)
+      {
+        bag.copyFrom(rootBag);
+      }
+      else
+      {
+        bag.clear();
+      }
+      scoreKeeper.reset();
+      scoreKeeper.levelUp(rootLevel);
+      int clearCounter = rootClearCounter;
+
+      board.copyFrom(rootBoard);
+      int cleared = board.place(rootType, states[placement], cols[placement], rows[placement]);
+      boolean lost = board.isToppedOut();
+      for(int piece = 1; !lost; piece++)
+      {
+        if(cleared > 0)
+        {
+          scoreKeeper.clearedRows(cleared);
+          clearCounter += cleared;
+          if(clearCounter >= Game.CLEARS_PER_LEVEL)
+          {
+            scoreKeeper.levelUp(clearCounter / Game.CLEARS_PER_LEVEL);
+            clearCounter %= Game.CLEARS_PER_LEVEL;
+          }
+        }
+        if(piece == depth)
+        {
+          break;
+        }
+        TetrominoType type = (piece == 1) ? nextType : bag.next();
+        cleared = playGreedy(type);
+        lost = (cleared < 0);
+      }
+      outcomes[rollout] = scoreKeeper.getScore();
+      losses[rollout] = lost;
+    }
+
+    // places that type where the policy likes it best, ties to a random one;
+    // returns the cleared rows, or -1 if every placement loses
+    private int playGreedy(TetrominoType type)
+    {
+      Point spawnPoint = TetrominoInfo.getSpawnPoint(type);
+      int count = finder.find(board, type, 0, spawnPoint.getX(), spawnPoint.getY());
+      int best = -1;
+      float bestScore = Float.NEGATIVE_INFINITY;
+      int ties = 0;
+      for(int index = 0; index < count; index++)
+      {
+        candidate.copyFrom(board);
+        int cleared = candidate.place(type, finder.getState(index), finder.getCol(index), finder.getRow(index));
+        if( candidate.isToppedOut() )
+        {
+          continue;
+        }
+        float score = policy.rewardClear(cleared) + policy.evaluate(candidate);
+        if(best < 0 || score > bestScore)
+        {
+          best = index;
+          bestScore = score;
+          ties = 1;
+        }
+        else if(score == bestScore && random.nextInt(++ties) == 0)
+        {
+          best = index;
+        }
+      }
+      if(best < 0)
+      {
+        return -1;
+      }
+      return board.place(type, finder.getState(best), finder.getCol(best), finder.getRow(best));
+    }
+  }
+
+}
@@ -0,0 +1,158 @@
+package tetris.bot;
+
+import tetris.BitGrid;
+import tetris.Game;
+import tetris.LockedRows;
+import tetris.TetrominoInfo;
+import tetris.TetrominoType;
+import tetris.Zobrist;
+
+/**
+ * Scratch copy of a grid of locked cells for lookahead searches:
+ * one bitmask per row and an occupancy-only Zobrist hash, nothing else.
+ * Placing a Tetromino follows the Game's rules (lock, defeat check, row clear)
+ * without scoring, spawning or types.
+ *
+ * @author Daniel Rolandi
+ */
+public class SearchBoard implements LockedRows
+{
+  private final int[] rows;
+  private long hash;
+  private boolean toppedOut;
+
+  /**
+   * Inits an empty board.
+   */
+  public SearchBoard()
+  {
+    rows = new int[Game.HEIGHT];
+  }
+
+  /**
+   * Copies those locked cells.
+   *
+   * @param source Locked cells to copy, e.g. a Game.
+   */
+  public void copyFrom(LockedRows source)
+  {
+    for(int row = 0; row < Game.HEIGHT; row++)
+    {
+      rows[row] = source.getRowMask(row);
+    }
+    rehash();
+    toppedOut = false;
+  }
+
+  /**
+   * Copies another board.
+   *
+   * @param other Board to copy.
+   */
+  public void copyFrom(SearchBoard other)
+  {
+    System.arraycopy(other.rows, 0, rows, 0, Game.HEIGHT);
+    hash = other.hash;
+    toppedOut = other.toppedOut;
+  }
+
+  @Override
+  public int getRowMask(int row)
+  {
+    return rows[row];
+  }
+
+  /**
+   * Locks a Tetromino at that placement and clears the full rows.
+   * Precondition: the placement fits.
+   *
+   * @param type Tetromino type.
+   * @param state Orientation state.
+   * @param col Col of the reference point.
+   * @param row Row of the reference point.
+   * @return Count of cleared rows.
+   */
+  public int place(TetrominoType type, int state, int col, int row)
+  {
+    int fullRows = 0;
+    for(int dy = 0; dy < TetrominoInfo.LAYOUT_SIZE; dy++)
+    {
+      int rowMask = TetrominoInfo.getRowMask(type, state, col, dy);
+      if(rowMask == 0)
+      {
+        continue;
+      }
+      int gridRow = row + dy;
+      rows[gridRow] |= rowMask;
+      for(int bits = rowMask; bits != 0; bits &= bits - 1)
+      {
+        hash ^= Zobrist.blockKey( gridRow, Integer.numberOfTrailingZeros(bits) );
+      }
+      if(rows[gridRow] == BitGrid.FULL_ROW)
+      {
+        fullRows++;
+      }
+    }
+    // as in Game: a lock into the Waiting Room loses before rows clear
+    if(rows[Game.HEIGHT_WAITING - 1] != BitGrid.EMPTY_ROW)
+    {
+      toppedOut = true;
+      return 0;
+    }
+    if(fullRows > 0)
+    {
+      clearFullRows(row + TetrominoInfo.LAYOUT_SIZE - 1);
+    }
+    return fullRows;
+  }
+
+  /**
+   * Returns true if the last placement locked into the Waiting Room.
+   * @return True if the game would be lost.
+   */
+  public boolean isToppedOut()
+  {
+    return toppedOut;
+  }
+
+  /**
+   * Returns the occupancy-only Zobrist hash of these cells.
+   * @return The hash of these cells.
+   */
+  public long getHash()
+  {
+    return hash;
+  }
+
+  // only rows up to lowestRow can be full
+  private void clearFullRows(int lowestRow)
+  {
+    int writeRow = Math.min(lowestRow, Game.HEIGHT - 1);
+    for(int readRow = writeRow; readRow >= 0; readRow--)
+    {
+      if(rows[readRow] == BitGrid.FULL_ROW)
+      {
+        continue;
+      }
+      rows[writeRow--] = rows[readRow];
+    }
+    while(writeRow >= 0)
+    {
+      rows[writeRow--] = BitGrid.EMPTY_ROW;
+    }
+    rehash();
+  }
+
+  private void rehash()
+  {
+    hash = 0;
+    for(int row = 0; row < Game.HEIGHT; row++)
+    {
+      for(int bits = rows[row]; bits != 0; bits &= bits - 1)
+      {
+        hash ^= Zobrist.blockKey( row, Integer.numberOfTrailingZeros(bits) );
+      }
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+package tetris.bot;
+
+import tetris.Game;
+import tetris.LockedRows;
+import tetris.Tetromino;
+import tetris.TetrominoType;
+
+/**
+ * Snapshot of what a lookahead search needs from a Game:
+ * the locked cells, the falling Tetromino and the piece preview.
+ * Taken on the game thread, so the search can run elsewhere
+ * while the Game keeps going.
+ *
+ * @author Daniel Rolandi
+ */
+public class SearchRoot implements LockedRows
+{
+  private final int[] rows;
+  private final TetrominoType[] preview;
+  private int previewCount;
+  private TetrominoType type;
+  private int state;
+  private int col;
+  private int row;
+  private long gridHash;
+  private int piecesPlaced;
+
+  /**
+   * Inits an empty snapshot.
+   *
+   * @param maxPreview Most preview types to keep.
+   */
+  public SearchRoot(int maxPreview)
+  {
+    rows = new int[Game.HEIGHT];
+    preview = new TetrominoType[maxPreview];
+  }
+
+  /**
+   * Copies the state of that Game.
+   *
+   * @param game Game to copy.
+   * @return False if the Game has no falling Tetromino to search for.
+   */
+  public boolean capture(Game game)
+  {
+    Tetromino tetro = game.getCurrentTetro();
+    if(tetro == null || game.isDefeat())
+    {
+      return false;
+    }
+    for(int gridRow = 0; gridRow < Game.HEIGHT; gridRow++)
+    {
+      rows[gridRow] = game.getRowMask(gridRow);
+    }
+    type = tetro.getType();
+    state = tetro.getState();
+    col = tetro.getGridX();
+    row = tetro.getGridY();
+    previewCount = Math.min(preview.length, game.getPreviewLength());
+    for(int index = 0; index < previewCount; index++)
+    {
+      preview[index] = game.getPreviewType(index);
+    }
+    gridHash = game.getGridHash();
+    piecesPlaced = game.getPiecesPlaced();
+    return true;
+  }
+
+  /**
+   * Returns true if that Game still has the Tetromino this snapshot was taken for,
+   * on the same locked cells.
+   *
+   * @param game Game to compare.
+   * @return True if a search result from this snapshot still applies.
+   */
+  public boolean matches(Game game)
+  {
+    return !game.isDefeat() && game.getCurrentTetro() != null
+        && game.getPiecesPlaced() == piecesPlaced && game.getGridHash() == gridHash;
+  }
+
+  @Override
+  public int getRowMask(int gridRow)
+  {
+    return rows[gridRow];
+  }
+
+  /**
+   * Returns the type of the falling Tetromino.
+   * @return The type of the falling Tetromino.
+   */
+  public TetrominoType getType()
+  {
+    return type;
+  }
+
+  /**
+   * Returns the orientation state of the falling Tetromino.
+   * @return The orientation state.
+   */
+  public int getState()
+  {
+    return state;
+  }
+
+  /**
+   * Returns the col of the falling Tetromino.
+   * @return The col of the reference point.
+   */
+  public int getCol()
+  {
+    return col;
+  }
+
+  /**
+   * Returns the row of the falling Tetromino.
+   * @return The row of the reference point.
+   */
+  public int getRow()
+  {
+    return row;
+  }
+
+  /**
+   * Returns the count of preview types kept.
+   * @return The count of preview types.
+   */
+  public int getPreviewCount()
+  {
+    return previewCount;
+  }
+
+  /**
+   * Returns a preview type, 0 being the next Tetromino.
+   *
+   * @param index Position in the preview.
+   * @return That preview type.
+   */
+  public TetrominoType getPreviewType(int index)
+  {
+    return preview[index];
+  }
+
+}
@@ -0,0 +1,169 @@
+package tetris.bot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded cache of evaluations keyed by Zobrist hash, shared by search threads
+ * without locks.
+ *
+ * Each slot is two longs: the entry itself and (hash XOR entry). A reader
+ * accepts a slot only if the two still XOR back to its hash, so a slot torn
+ * by two racing writers reads as a miss instead of a wrong score.
+ * Slots come in buckets of BUCKET_SIZE; a new entry takes the empty slot,
+ * the slot of the same hash, or else the slot that is oldest and then shallowest.
+ * An entry packs a float score, the search depth it came from and the
+ * generation it was stored in.
+ *
+ * @author Daniel Rolandi
+ */
+public class TranspositionTable
+{
+  public static final int BUCKET_SIZE = 4;
+  private static final int DEPTH_BITS = 8;
+  private static final int GENERATION_BITS = 8;
+  private static final int DEPTH_MASK = (1 << DEPTH_BITS) - 1;
+  private static final int GENERATION_MASK = (1 << GENERATION_BITS) - 1;
+  private static final long EMPTY = 0L;
+
+  private final AtomicLongArray slots; // [slot] = {entry, hash ^ entry}
+  private final int bucketMask;
+  private volatile int generation;
+
+  /**
+   * Inits an empty table.
+   *
+   * @param capacity Count of entries, rounded up to a power of two of at least BUCKET_SIZE.
+   */
+  public TranspositionTable(int capacity)
+  {
+    int buckets = Integer.highestOneBit( Math.max(capacity / BUCKET_SIZE, 1) );
+    if(buckets * BUCKET_SIZE < capacity)
+    {
+      buckets <<= 1;
+    }
+    bucketMask = buckets - 1;
+    slots = new AtomicLongArray(buckets * BUCKET_SIZE * 2);
+    generation = 1;
+  }
+
+  /**
+   * Returns the stored score of that hash if it was searched at least minDepth deep.
+   *
+   * @param hash Zobrist hash of the state.
+   * @param minDepth Least search depth that is good enough.
+   * @return The stored score, or Float.NaN on a miss.
+   */
+  public float get(long hash, int minDepth)
+  {
+    int base = bucketOf(hash);
+    for(int way = 0; way < BUCKET_SIZE; way++)
+    {
+      int slot = (base + way) * 2;
+      long entry = slots.get(slot);
+      if(entry == EMPTY)
+      {
+        continue;
+      }
+      if( (slots.get(slot + 1) ^ entry) == hash )
+      {
+        return (depthOf(entry) >= minDepth) ? scoreOf(entry) : Float.NaN;
+      }
+    }
+    return Float.NaN;
+  }
+
+  /**
+   * Stores the score of that hash, evicting within its bucket if needed.
+   *
+   * @param hash Zobrist hash of the state.
+   * @param score Score to store.
+   * @param depth Search depth the score came from, 0 to 255.
+   */
+  public void put(long hash, float score, int depth)
+  {
+    int currentGeneration = generation;
+    long newEntry = pack(score, depth, currentGeneration);
+    int base = bucketOf(hash);
+    int victim = -1;
+    int victimRank = Integer.MAX_VALUE;
+    for(int way = 0; way < BUCKET_SIZE; way++)
+    {
+      int slot = (base + way) * 2;
+      long entry = slots.get(slot);
+      if(entry == EMPTY || (slots.get(slot + 1) ^ entry) == hash)
+      {
+        victim = slot;
+        break;
+      }
+      // lower rank goes first: older generations, then shallower searches
+      int age = (currentGeneration - generationOf(entry)) & GENERATION_MASK;
+      int rank = ((GENERATION_MASK - age) << DEPTH_BITS) | depthOf(entry);
+      if(rank < victimRank)
+      {
+        victimRank = rank;
+        victim = slot;
+      }
+    }
+    slots.lazySet(victim, newEntry);
+    slots.lazySet(victim + 1, hash ^ newEntry);
+  }
+
+  /**
+   * Starts a new generation, so entries from earlier searches are evicted first.
+   * Call once per placed Tetromino.
+   */
+  public void nextGeneration()
+  {
+    // only the search owner calls this, so the plain increment does not race
+    generation = (generation + 1) & GENERATION_MASK;
+  }
+
+  /**
+   * Empties the table.
+   */
+  public void clear()
+  {
+    for(int slot = 0; slot < slots.length(); slot++)
+    {
+      slots.set(slot, EMPTY);
+    }
+  }
+
+  /**
+   * Returns the count of entries the table holds.
+   * @return The capacity.
+   */
+  public int getCapacity()
+  {
+    return slots.length() / 2;
+  }
+
+  private int bucketOf(long hash)
+  {
+    // high bits pick the bucket; the low bits of Zobrist keys are just as random
+    return ((int)(hash >>> 32) & bucketMask) * BUCKET_SIZE;
+  }
+
+  // bit 31 is always set, so a stored entry is never EMPTY
+  private static long pack(float score, int depth, int generation)
+  {
+    long low = ((long)(depth & DEPTH_MASK) << GENERATION_BITS) | (generation & GENERATION_MASK);
+    return ((long) Float.floatToRawIntBits(score) << 32) | low | (1L << 31);
+  }
+
+  private static float scoreOf(long entry)
+  {
+    return Float.intBitsToFloat( (int)(entry >>> 32) );
+  }
+
+  private static int depthOf(long entry)
+  {
+    return (int)(entry >>> GENERATION_BITS) & DEPTH_MASK;
+  }
+
+  private static int generationOf(long entry)
+  {
+    return (int) entry & GENERATION_MASK;
+  }
+
+}
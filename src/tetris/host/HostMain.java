@@ -0,0 +1,51 @@
+package tetris.host;
+
+/**
+ * Command-line load check: opens many gravity-only Sessions on one SessionHost,
+ * lets them run for a while and prints how many are still going.
+ * Without virtual threads each Session takes a platform thread, so the
+ * default count is then lower.
+ *
+ * Usage: java -cp Tetris.jar tetris.host.HostMain [sessions] [seconds] [seed]
+ *
+ * @author Daniel Rolandi
+ */
+public class HostMain
+{
+  private static final int DEFAULT_SESSIONS = 10000;
+  private static final int DEFAULT_PLATFORM_SESSIONS = 1000; // one platform thread each without virtual threads
+  private static final int DEFAULT_SECONDS = 10;
+  private static final long DEFAULT_SEED = 1L;
+
+  /**
+   * Application method.
+   *
+   * @param args Command-line arguments.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public static void main(String[] args) throws InterruptedException
+  {
+    SessionHost host = new SessionHost();
+    int defaultSessions = host.usesVirtualThreads() ? DEFAULT_SESSIONS : DEFAULT_PLATFORM_SESSIONS;
+    int sessionCount = (args.length > 0) ? Integer.parseInt(args[0]) : defaultSessions;
+    int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+    long seed = (args.length > 2) ? Long.parseLong(args[2]) : DEFAULT_SEED;
+    if(!host.usesVirtualThreads() && sessionCount > DEFAULT_PLATFORM_SESSIONS)
+    {
+      System.err.println("warning: no virtual threads on this JVM, so " + sessionCount + " sessions start "
+          + sessionCount + " platform threads");
+    }
+
+    long startTime = System.nanoTime();
+    for(int index = 0; index < sessionCount; index++)
+    {
+      host.open(seed + index, null);
+    }
+    System.out.println(String.format("opened %d sessions in %.3f s, virtual threads %b",
+        sessionCount, (System.nanoTime() - startTime) / 1e9, host.usesVirtualThreads()));
+    Thread.sleep(seconds * 1000L);
+    System.out.println("running after " + seconds + " s: " + host.getSessionCount());
+    host.shutdown();
+  }
+
+}
@@ -0,0 +1,142 @@
+package tetris.host;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import tetris.Action;
+import tetris.Game;
+
+/**
+ * One player's game on a SessionHost. The Game lives on the Session's own thread,
+ * which blocks until an input arrives or the next gravity tick is due,
+ * so an idle Session costs no CPU.
+ *
+ * @author Daniel Rolandi
+ */
+public class Session implements Runnable
+{
+  public static final int INPUT_CAPACITY = 64;
+  private static final long NANOS_PER_MILLI = 1000000L;
+
+  private final long id;
+  private final Game game;
+  private final SessionListener listener;
+  private final BlockingQueue<Action> inputs;
+  private volatile boolean closed;
+  private final Object threadLock; // close() interrupts only while run() holds the thread
+  private Thread thread; // guarded by threadLock
+
+  /**
+   * Inits a Session; SessionHost runs it.
+   *
+   * @param id Id of this Session on its host.
+   * @param seed Piece seed of its Game.
+   * @param listener Told about its Game; may be null.
+   */
+  Session(long id, long seed, SessionListener listener)
+  {
+    this.id = id;
+    this.listener = listener;
+    game = new Game(seed);
+    inputs = new ArrayBlockingQueue<Action>(INPUT_CAPACITY);
+    threadLock = new Object();
+  }
+
+  @Override
+  public void run()
+  {
+    synchronized(threadLock)
+    {
+      thread = Thread.currentThread();
+    }
+    long lastNanos = System.nanoTime();
+    try
+    {
+      while( !closed && !game.isDefeat() )
+      {
+        Action action = inputs.poll(game.getMillisUntilTick(), TimeUnit.MILLISECONDS);
+
+        // whole milliseconds go to the Game; the rest carries over to the next pass
+        long elapsedMillis = (System.nanoTime() - lastNanos) / NANOS_PER_MILLI;
+        lastNanos += elapsedMillis * NANOS_PER_MILLI;
+        int steps = game.update( (int)Math.min(Integer.MAX_VALUE, elapsedMillis) );
+        boolean changed = steps > 0;
+        while(action != null)
+        {
+          game.perform(action);
+          changed = true;
+          action = inputs.poll();
+        }
+        if(changed && listener != null)
+        {
+          listener.gameChanged(this, game);
+        }
+      }
+    }
+    catch(InterruptedException e)
+    {
+      // closed
+    }
+    finally
+    {
+      closed = true;
+      synchronized(threadLock)
+      {
+        thread = null;
+      }
+      // no close() can interrupt this thread from here on; clear one that came
+      // before, so it does not leak into the next task on this pooled thread
+      Thread.interrupted();
+      if(listener != null)
+      {
+        listener.sessionEnded(this, game);
+      }
+    }
+  }
+
+  /**
+   * Queues an input for the Game; safe from any thread.
+   *
+   * @param action Input to play.
+   * @return False if the Session is closed or its queue is full.
+   */
+  public boolean offer(Action action)
+  {
+    return !closed && inputs.offer(action);
+  }
+
+  /**
+   * Stops this Session soon; safe from any thread.
+   */
+  public void close()
+  {
+    closed = true;
+    synchronized(threadLock)
+    {
+      if(thread != null)
+      {
+        thread.interrupt();
+      }
+    }
+  }
+
+  /**
+   * Returns true once the Session stopped or was asked to.
+   * @return True if the Session is closed.
+   */
+  public boolean isClosed()
+  {
+    return closed;
+  }
+
+  /**
+   * Returns the id of this Session on its host.
+   * @return The id of this Session.
+   */
+  public long getId()
+  {
+    return id;
+  }
+
+}
@@ -0,0 +1,141 @@
+package tetris.host;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tetris.Game;
+
+/**
+ * Runs many independent Sessions in one JVM, one thread each.
+ * On a JVM with virtual threads every Session gets a virtual thread,
+ * so tens of thousands of mostly idle games fit in one process;
+ * older JVMs fall back to a cached pool of platform threads.
+ *
+ * @author Daniel Rolandi
+ */
+public class SessionHost
+{
+  private final ExecutorService executor;
+  private final boolean virtualThreads;
+  private final ConcurrentMap<Long, Session> sessions;
+  private final AtomicLong nextId;
+
+  /**
+   * Inits a host with no Sessions.
+   */
+  public SessionHost()
+  {
+    ExecutorService virtualExecutor = newVirtualThreadExecutor();
+    virtualThreads = (virtualExecutor != null);
+    executor = virtualThreads ? virtualExecutor : Executors.newCachedThreadPool();
+    sessions = new ConcurrentHashMap<Long, Session>();
+    nextId = new AtomicLong();
+  }
+
+  /**
+   * Starts a Session with its own Game.
+   *
+   * @param seed Piece seed of its Game.
+   * @param listener Told about its Game on its thread; may be null.
+   * @return The running Session.
+   * @throws IllegalStateException if the host was shut down.
+   */
+  public Session open(long seed, final SessionListener listener)
+  {
+    final long id = nextId.incrementAndGet();
+    // unregisters the Session when it ends, whoever ended it
+    Session session = new Session(id, seed, new SessionListener()
+    {
+      @Override
+      public void gameChanged(Session session, Game game)
+      {
+        if(listener != null)
+        {
+          listener.gameChanged(session, game);
+        }
+      }
+
+      @Override
+      public void sessionEnded(Session session, Game game)
+      {
+        sessions.remove(id);
+        if(listener != null)
+        {
+          listener.sessionEnded(session, game);
+        }
+      }
+    });
+    sessions.put(id, session);
+    try
+    {
+      executor.execute(session);
+    }
+    catch(RejectedExecutionException e)
+    {
+      sessions.remove(id); // never ran, so sessionEnded will not unregister it
+      throw new IllegalStateException("SessionHost: shut down", e);
+    }
+    return session;
+  }
+
+  /**
+   * Returns the running Session with that id, or null.
+   *
+   * @param id Session id.
+   * @return That Session, or null if it ended.
+   */
+  public Session get(long id)
+  {
+    return sessions.get(id);
+  }
+
+  /**
+   * Returns the count of running Sessions.
+   * @return The count of running Sessions.
+   */
+  public int getSessionCount()
+  {
+    return sessions.size();
+  }
+
+  /**
+   * Returns true if Sessions run on virtual threads.
+   * @return True if Sessions run on virtual threads.
+   */
+  public boolean usesVirtualThreads()
+  {
+    return virtualThreads;
+  }
+
+  /**
+   * Closes every Session and stops the threads.
+   */
+  public void shutdown()
+  {
+    for(Session session : sessions.values())
+    {
+      session.close();
+    }
+    executor.shutdown();
+  }
+
+  // Executors.newVirtualThreadPerTaskExecutor() where the JVM has it; the source level predates it
+  private static ExecutorService newVirtualThreadExecutor()
+  {
+    try
+    {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService)factory.invoke(null);
+    }
+    catch(ReflectiveOperationException e)
+    {
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,28 @@
+package tetris.host;
+
+import tetris.Game;
+
+/**
+ * Told what a Session's Game does, on the Session's own thread.
+ * Implementations must be quick and must not keep the Game past the call.
+ *
+ * @author Daniel Rolandi
+ */
+public interface SessionListener
+{
+  /**
+   * Called after inputs or logic steps changed the Game.
+   *
+   * @param session Session of that Game.
+   * @param game Game that changed.
+   */
+  void gameChanged(Session session, Game game);
+
+  /**
+   * Called once when the Session stops, lost or closed.
+   *
+   * @param session Session that stopped.
+   * @param game Its Game, in its final state.
+   */
+  void sessionEnded(Session session, Game game);
+}
@@ -0,0 +1,106 @@
+package tetris.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free byte queue between exactly one producer thread and one consumer thread.
+ * The producer never blocks: offer() fails at once if the bytes do not fit.
+ * Head and tail only grow, so they never wrap and full and empty never look alike.
+ *
+ * @author Daniel Rolandi
+ */
+public class ByteRing
+{
+  private final byte[] buffer;
+  private final int mask;
+  private final AtomicLong head; // next byte to read, moved by the consumer
+  private final AtomicLong tail; // next byte to write, moved by the producer
+  private long cachedHead; // producer's last look at head, to skip the volatile read while there is room
+
+  /**
+   * Inits an empty ring.
+   *
+   * @param capacity Size in bytes, a power of two.
+   */
+  public ByteRing(int capacity)
+  {
+    if(capacity <= 0 || Integer.bitCount(capacity) != 1)
+    {
+      throw new IllegalArgumentException("ByteRing: capacity must be a power of two");
+    }
+    buffer = new byte[capacity];
+    mask = capacity - 1;
+    head = new AtomicLong();
+    tail = new AtomicLong();
+  }
+
+  /**
+   * Appends bytes as one unit: all of them or none. Producer thread only.
+   *
+   * @param source Bytes to append.
+   * @param offset Index of the first byte in source.
+   * @param length Count of bytes.
+   * @return False if the ring had no room for them.
+   */
+  public boolean offer(byte[] source, int offset, int length)
+  {
+    long currentTail = tail.get();
+    if(currentTail + length - cachedHead > buffer.length)
+    {
+      cachedHead = head.get();
+      if(currentTail + length - cachedHead > buffer.length)
+      {
+        return false;
+      }
+    }
+    int index = (int)currentTail & mask;
+    int firstPart = Math.min(length, buffer.length - index);
+    System.arraycopy(source, offset, buffer, index, firstPart);
+    System.arraycopy(source, offset + firstPart, buffer, 0, length - firstPart);
+    // publishes the bytes; the consumer reads tail before it reads them
+    tail.lazySet(currentTail + length);
+    return true;
+  }
+
+  /**
+   * Moves as many queued bytes as fit into the target. Consumer thread only.
+   *
+   * @param target Buffer to fill from its position.
+   * @return Count of bytes moved.
+   */
+  public int drainTo(ByteBuffer target)
+  {
+    long currentHead = head.get();
+    int length = (int)Math.min(tail.get() - currentHead, target.remaining());
+    if(length == 0)
+    {
+      return 0;
+    }
+    int index = (int)currentHead & mask;
+    int firstPart = Math.min(length, buffer.length - index);
+    target.put(buffer, index, firstPart);
+    target.put(buffer, 0, length - firstPart);
+    head.lazySet(currentHead + length);
+    return length;
+  }
+
+  /**
+   * Returns true if no bytes are queued.
+   * @return True if no bytes are queued.
+   */
+  public boolean isEmpty()
+  {
+    return head.get() == tail.get();
+  }
+
+  /**
+   * Returns the size of the ring.
+   * @return The capacity in bytes.
+   */
+  public int getCapacity()
+  {
+    return buffer.length;
+  }
+
+}
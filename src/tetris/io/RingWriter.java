@@ -0,0 +1,155 @@
+package tetris.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread that moves the bytes of a ByteRing to a channel.
+ * Bytes gather in a direct buffer and go out in one write when it fills,
+ * when they have waited FLUSH_NANOS, or on close, so the producer never
+ * waits on I/O and the file sees few, large writes.
+ * The channel is closed once the ring is empty after close().
+ *
+ * @author Daniel Rolandi
+ */
+public class RingWriter implements Runnable
+{
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+  private static final long PARK_NANOS = 10000000L; // 10 ms between looks at an idle ring
+  private static final long FLUSH_NANOS = 200000000L;
+
+  private final ByteRing ring;
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+  private final Thread thread;
+  private final CountDownLatch finished;
+  private volatile boolean closing;
+  private volatile IOException failure;
+
+  /**
+   * Inits a writer; start() starts its thread.
+   *
+   * @param ring Ring this writer is the consumer of.
+   * @param channel Channel to write to, owned by this writer from now on.
+   * @param bufferSize Size of the write buffer in bytes.
+   * @param name Name of the thread.
+   */
+  public RingWriter(ByteRing ring, WritableByteChannel channel, int bufferSize, String name)
+  {
+    this.ring = ring;
+    this.channel = channel;
+    buffer = ByteBuffer.allocateDirect(bufferSize);
+    finished = new CountDownLatch(1);
+    thread = new Thread(this, name);
+    thread.setDaemon(true);
+  }
+
+  /**
+   * Starts the writer thread.
+   */
+  public void start()
+  {
+    thread.start();
+  }
+
+  /**
+   * Asks the writer to write what is left in the ring and close the channel.
+   * Returns at once; await() waits for it.
+   * The producer must not offer anything after this.
+   */
+  public void close()
+  {
+    closing = true;
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Waits until the channel is closed.
+   *
+   * @param timeoutMillis Longest wait in milliseconds.
+   * @return True if the channel was closed in time.
+   * @throws InterruptedException if the waiting thread is interrupted.
+   */
+  public boolean await(long timeoutMillis) throws InterruptedException
+  {
+    return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the error that stopped the writer, or null.
+   * Bytes offered after an error are dropped.
+   * @return The I/O error, or null if there was none.
+   */
+  public IOException getFailure()
+  {
+    return failure;
+  }
+
+  @Override
+  public void run()
+  {
+    try
+    {
+      long firstPending = 0; // when the oldest byte in the buffer arrived
+      while(true)
+      {
+        // read before draining, so every byte offered before close() is drained below
+        boolean closed = closing;
+        boolean hadPending = buffer.position() > 0;
+        int drained = ring.drainTo(buffer);
+        if(drained > 0 && !hadPending)
+        {
+          firstPending = System.nanoTime();
+        }
+        boolean due = buffer.position() > 0
+            && (closed || !buffer.hasRemaining() || System.nanoTime() - firstPending >= FLUSH_NANOS);
+        if(due)
+        {
+          flush();
+        }
+        if(closed && ring.isEmpty() && buffer.position() == 0)
+        {
+          break;
+        }
+        if(drained == 0 && !due)
+        {
+          LockSupport.parkNanos(this, PARK_NANOS);
+        }
+      }
+    }
+    catch(IOException e)
+    {
+      failure = e;
+    }
+    finally
+    {
+      try
+      {
+        channel.close();
+      }
+      catch(IOException e)
+      {
+        if(failure == null)
+        {
+          failure = e;
+        }
+      }
+      finished.countDown();
+    }
+  }
+
+  private void flush() throws IOException
+  {
+    buffer.flip();
+    while( buffer.hasRemaining() )
+    {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+}
@@ -0,0 +1,42 @@
+package tetris.log;
+
+/**
+ * Layout of a gameplay event log.
+ *
+ * A fixed header (MAGIC, FORMAT_VERSION, Game.RULES_VERSION, big-endian) is
+ * followed by one record per event: a varint of the logic steps since the
+ * previous event, shifted left by EVENT_BITS, OR the event id, then the
+ * event's payload. Steps are Game.getStepCount() of the game the event came from.
+ *
+ * Payloads, one byte per field unless noted:
+ * SYNC: the absolute step, wall-clock milliseconds and events dropped so far, as varints;
+ *       it starts every game and follows any dropped events, and later steps count from it.
+ * SPAWNED: Tetromino type ordinal.
+ * MOVED: col, row of the reference point.
+ * ROTATED: new orientation state.
+ * LOCKED: Tetromino type ordinal, state, col, row.
+ * CLEARED: count of rows cleared at once.
+ * LEVEL_UP: the new level, as a varint.
+ * DEFEAT: nothing.
+ *
+ * @author Daniel Rolandi
+ */
+public class EventFormat
+{
+  public static final int MAGIC = 0x54455654; // "TEVT"
+  public static final int FORMAT_VERSION = 1;
+  public static final int HEADER_SIZE = 8; // magic, format version, rules version
+  public static final int EVENT_BITS = 3;
+  public static final int EVENT_MASK = (1 << EVENT_BITS) - 1;
+  public static final int MAX_RECORD_SIZE = 40; // a SYNC: four 64-bit varints
+
+  public static final int SYNC = 0;
+  public static final int SPAWNED = 1;
+  public static final int MOVED = 2;
+  public static final int ROTATED = 3;
+  public static final int LOCKED = 4;
+  public static final int CLEARED = 5;
+  public static final int LEVEL_UP = 6;
+  public static final int DEFEAT = 7;
+
+}
@@ -0,0 +1,239 @@
+package tetris.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import tetris.Game;
+import tetris.GameListener;
+import tetris.Tetromino;
+import tetris.io.ByteRing;
+import tetris.io.RingWriter;
+import tetris.replay.ReplayFormat;
+
+/**
+ * Writes what happens in a Game as an EventFormat stream: set it as the
+ * Game's listener and call gameStarted(). Each event is encoded into a ByteRing
+ * on the game thread and a RingWriter thread writes it out in batches, so the
+ * game thread never waits on I/O. Events that find the ring full are dropped
+ * and counted; the next one that fits is preceded by a SYNC record.
+ *
+ * Only one thread may drive the Games this log listens to.
+ *
+ * @author Daniel Rolandi
+ */
+public class EventLog implements GameListener
+{
+  public static final int DEFAULT_RING_SIZE = 1 << 16;
+
+  private final ByteRing ring;
+  private final RingWriter writer;
+  private final byte[] record;
+  private long lastStep;
+  private long step; // of the record being encoded
+  private boolean synced; // false until a SYNC record made it into the ring
+  private long droppedCount;
+  private boolean closed;
+
+  /**
+   * Inits a log and writes the header.
+   *
+   * @param channel Channel to write to, closed by the log after close().
+   * @param name Name of the writer thread.
+   */
+  public EventLog(WritableByteChannel channel, String name)
+  {
+    ring = new ByteRing(DEFAULT_RING_SIZE);
+    record = new byte[ Math.max(EventFormat.HEADER_SIZE, EventFormat.MAX_RECORD_SIZE) ];
+    ByteBuffer header = ByteBuffer.wrap(record);
+    header.putInt(EventFormat.MAGIC);
+    header.putShort( (short)EventFormat.FORMAT_VERSION );
+    header.putShort( (short)Game.RULES_VERSION );
+    ring.offer(record, 0, EventFormat.HEADER_SIZE);
+    writer = new RingWriter(ring, channel, RingWriter.DEFAULT_BUFFER_SIZE, name);
+    writer.start();
+  }
+
+  /**
+   * Inits a log writing to a new file, replacing any file of that name.
+   *
+   * @param file File to write.
+   * @return The log.
+   * @throws IOException if the file cannot be opened.
+   */
+  public static EventLog open(Path file) throws IOException
+  {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    return new EventLog(channel, "event log " + file.getFileName());
+  }
+
+  /**
+   * Marks the start of a game, or its resumption from a saved state;
+   * the steps of later events count from the Game's step now.
+   *
+   * @param game Game this log listens to from now on.
+   */
+  public void gameStarted(Game game)
+  {
+    synced = false;
+    sync( game.getStepCount() );
+  }
+
+  @Override
+  public void tetrominoSpawned(Game game, Tetromino tetromino)
+  {
+    int offset = begin(game, EventFormat.SPAWNED);
+    record[offset++] = (byte)tetromino.getType().ordinal();
+    end(offset);
+  }
+
+  @Override
+  public void tetrominoMoved(Game game, Tetromino tetromino)
+  {
+    int offset = begin(game, EventFormat.MOVED);
+    record[offset++] = (byte)tetromino.getGridX();
+    record[offset++] = (byte)tetromino.getGridY();
+    end(offset);
+  }
+
+  @Override
+  public void tetrominoRotated(Game game, Tetromino tetromino)
+  {
+    int offset = begin(game, EventFormat.ROTATED);
+    record[offset++] = (byte)tetromino.getState();
+    end(offset);
+  }
+
+  @Override
+  public void tetrominoLocked(Game game, Tetromino tetromino)
+  {
+    int offset = begin(game, EventFormat.LOCKED);
+    record[offset++] = (byte)tetromino.getType().ordinal();
+    record[offset++] = (byte)tetromino.getState();
+    record[offset++] = (byte)tetromino.getGridX();
+    record[offset++] = (byte)tetromino.getGridY();
+    end(offset);
+  }
+
+  @Override
+  public void rowsCleared(Game game, int count)
+  {
+    int offset = begin(game, EventFormat.CLEARED);
+    record[offset++] = (byte)count;
+    end(offset);
+  }
+
+  @Override
+  public void levelUp(Game game, int level)
+  {
+    int offset = begin(game, EventFormat.LEVEL_UP);
+    offset = ReplayFormat.putVarLong(level, record, offset);
+    end(offset);
+  }
+
+  @Override
+  public void defeat(Game game)
+  {
+    end( begin(game, EventFormat.DEFEAT) );
+  }
+
+  /**
+   * Ends the log; the writer thread finishes the file on its own.
+   * Later events are ignored.
+   */
+  public void close()
+  {
+    if(closed)
+    {
+      return;
+    }
+    closed = true;
+    writer.close();
+  }
+
+  /**
+   * Waits until the file is written and closed, after close().
+   *
+   * @param timeoutMillis Longest wait in milliseconds.
+   * @return True if it was closed in time.
+   * @throws InterruptedException if the waiting thread is interrupted.
+   */
+  public boolean await(long timeoutMillis) throws InterruptedException
+  {
+    return writer.await(timeoutMillis);
+  }
+
+  /**
+   * Returns the count of events dropped because the writer fell behind.
+   * @return The count of events dropped so far.
+   */
+  public long getDroppedCount()
+  {
+    return droppedCount;
+  }
+
+  /**
+   * Returns the error that stopped the writer thread, or null.
+   * @return The I/O error, or null if there was none.
+   */
+  public IOException getFailure()
+  {
+    return writer.getFailure();
+  }
+
+  private void sync(long syncStep)
+  {
+    if(closed)
+    {
+      return;
+    }
+    int offset = ReplayFormat.putVarLong(EventFormat.SYNC, record, 0);
+    offset = ReplayFormat.putVarLong(syncStep, record, offset);
+    offset = ReplayFormat.putVarLong(System.currentTimeMillis(), record, offset);
+    offset = ReplayFormat.putVarLong(droppedCount, record, offset);
+    if( ring.offer(record, 0, offset) )
+    {
+      lastStep = syncStep;
+      synced = true;
+    }
+  }
+
+  // encodes the step and event id into record; returns where the payload goes
+  private int begin(Game game, int event)
+  {
+    step = game.getStepCount();
+    if(!synced)
+    {
+      sync(step);
+      if(!synced)
+      {
+        return 0; // still full; end() drops it
+      }
+    }
+    if(step < lastStep)
+    {
+      throw new IllegalStateException("EventLog: steps went backwards; call gameStarted() first");
+    }
+    return ReplayFormat.putVarLong( ((step - lastStep) << EventFormat.EVENT_BITS) | event, record, 0 );
+  }
+
+  private void end(int length)
+  {
+    if(closed)
+    {
+      return;
+    }
+    if( !synced || !ring.offer(record, 0, length) )
+    {
+      droppedCount++;
+      synced = false;
+      return;
+    }
+    lastStep = step;
+  }
+
+}
@@ -0,0 +1,75 @@
+package tetris.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Command-line event log dump: prints each event of each log file
+ * as one JSON object per line, e.g. for jq or a log collector.
+ *
+ * Usage: java -cp Tetris.jar tetris.log.EventLogMain [file] [file] ...
+ *
+ * @author Daniel Rolandi
+ */
+public class EventLogMain
+{
+  // by event id, as in EventFormat
+  private static final String[] EVENT_NAMES =
+    {"sync", "spawned", "moved", "rotated", "locked", "cleared", "levelUp", "defeat"};
+
+  /**
+   * Application method.
+   *
+   * @param args Command-line arguments.
+   * @throws IOException if a file cannot be read.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    StringBuilder line = new StringBuilder();
+    for(String arg : args)
+    {
+      EventReader reader = new EventReader( ByteBuffer.wrap(Files.readAllBytes( Paths.get(arg) )) );
+      while( reader.next() )
+      {
+        line.setLength(0);
+        line.append("{\"step\":").append( reader.getStep() );
+        line.append(",\"event\":\"").append( EVENT_NAMES[reader.getEvent()] ).append('"');
+        switch( reader.getEvent() )
+        {
+          case EventFormat.SYNC:
+            line.append(",\"time\":").append( reader.getTime() );
+            line.append(",\"dropped\":").append( reader.getDroppedCount() );
+            break;
+          case EventFormat.SPAWNED:
+            line.append(",\"type\":\"").append( reader.getType() ).append('"');
+            break;
+          case EventFormat.MOVED:
+            line.append(",\"col\":").append( reader.getCol() );
+            line.append(",\"row\":").append( reader.getRow() );
+            break;
+          case EventFormat.ROTATED:
+            line.append(",\"state\":").append( reader.getState() );
+            break;
+          case EventFormat.LOCKED:
+            line.append(",\"type\":\"").append( reader.getType() ).append('"');
+            line.append(",\"state\":").append( reader.getState() );
+            line.append(",\"col\":").append( reader.getCol() );
+            line.append(",\"row\":").append( reader.getRow() );
+            break;
+          case EventFormat.CLEARED:
+            line.append(",\"rows\":").append( reader.getCount() );
+            break;
+          case EventFormat.LEVEL_UP:
+            line.append(",\"level\":").append( reader.getLevel() );
+            break;
+          default:
+            break;
+        }
+        System.out.println( line.append('}') );
+      }
+    }
+  }
+
+}
@@ -0,0 +1,208 @@
+package tetris.log;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import tetris.TetrominoType;
+import tetris.replay.ReplayFormat;
+
+/**
+ * Walks the events of an EventFormat stream held in a ByteBuffer.
+ * Each next() decodes one record into the fields below; which of them
+ * belong to the event depends on getEvent(), as laid out in EventFormat.
+ *
+ * @author Daniel Rolandi
+ */
+public class EventReader
+{
+  private static final TetrominoType[] TYPES = TetrominoType.values();
+
+  private final ByteBuffer source;
+  private final int rulesVersion;
+  private long step;
+  private int event;
+  private long time;
+  private long droppedCount;
+  private TetrominoType type;
+  private int state;
+  private int col;
+  private int row;
+  private int count;
+  private int level;
+
+  /**
+   * Inits a reader positioned before the first event.
+   *
+   * @param log Event log from its position to its limit; neither is changed.
+   */
+  public EventReader(ByteBuffer log)
+  {
+    source = log.duplicate(); // big-endian whatever the caller's order
+    if(source.remaining() < EventFormat.HEADER_SIZE || source.getInt() != EventFormat.MAGIC)
+    {
+      throw new IllegalArgumentException("EventReader: not an event log");
+    }
+    int formatVersion = source.getShort();
+    if(formatVersion != EventFormat.FORMAT_VERSION)
+    {
+      throw new IllegalArgumentException("EventReader: unknown format version " + formatVersion);
+    }
+    rulesVersion = source.getShort();
+    event = -1;
+  }
+
+  /**
+   * Moves to the next event.
+   * @return False at the end of the log, or where the stream was cut short.
+   */
+  public boolean next()
+  {
+    if(!source.hasRemaining())
+    {
+      return false;
+    }
+    try
+    {
+      long value = ReplayFormat.getVarLong(source);
+      event = (int)value & EventFormat.EVENT_MASK;
+      step += value >>> EventFormat.EVENT_BITS;
+      switch(event)
+      {
+        case EventFormat.SYNC:
+          step = ReplayFormat.getVarLong(source);
+          time = ReplayFormat.getVarLong(source);
+          droppedCount = ReplayFormat.getVarLong(source);
+          break;
+        case EventFormat.SPAWNED:
+          type = TYPES[ source.get() ];
+          break;
+        case EventFormat.MOVED:
+          col = source.get();
+          row = source.get();
+          break;
+        case EventFormat.ROTATED:
+          state = source.get();
+          break;
+        case EventFormat.LOCKED:
+          type = TYPES[ source.get() ];
+          state = source.get();
+          col = source.get();
+          row = source.get();
+          break;
+        case EventFormat.CLEARED:
+          count = source.get();
+          break;
+        case EventFormat.LEVEL_UP:
+          level = (int)ReplayFormat.getVarLong(source);
+          break;
+        default:
+          break; // DEFEAT has no payload
+      }
+    }
+    catch(BufferUnderflowException e)
+    {
+      return false; // cut inside the last record
+    }
+    return true;
+  }
+
+  /**
+   * Returns the Game.RULES_VERSION the log was written under.
+   * @return The rules version.
+   */
+  public int getRulesVersion()
+  {
+    return rulesVersion;
+  }
+
+  /**
+   * Returns the event id of the current event.
+   * @return One of the event ids in EventFormat.
+   */
+  public int getEvent()
+  {
+    return event;
+  }
+
+  /**
+   * Returns the logic step of the current event.
+   * @return Game.getStepCount() when it happened.
+   */
+  public long getStep()
+  {
+    return step;
+  }
+
+  /**
+   * Returns the wall-clock time of the last SYNC.
+   * @return Milliseconds since the epoch.
+   */
+  public long getTime()
+  {
+    return time;
+  }
+
+  /**
+   * Returns the count of events the writer had dropped as of the last SYNC.
+   * @return The count of events dropped.
+   */
+  public long getDroppedCount()
+  {
+    return droppedCount;
+  }
+
+  /**
+   * Returns the type of the Tetromino last spawned or locked.
+   * @return The type, or null before the first SPAWNED or LOCKED.
+   */
+  public TetrominoType getType()
+  {
+    return type;
+  }
+
+  /**
+   * Returns the orientation state of the last ROTATED or LOCKED.
+   * @return The orientation state.
+   */
+  public int getState()
+  {
+    return state;
+  }
+
+  /**
+   * Returns the col of the reference point of the last MOVED or LOCKED.
+   * @return The col.
+   */
+  public int getCol()
+  {
+    return col;
+  }
+
+  /**
+   * Returns the row of the reference point of the last MOVED or LOCKED.
+   * @return The row.
+   */
+  public int getRow()
+  {
+    return row;
+  }
+
+  /**
+   * Returns the count of rows of the last CLEARED.
+   * @return The count of rows cleared at once.
+   */
+  public int getCount()
+  {
+    return count;
+  }
+
+  /**
+   * Returns the level of the last LEVEL_UP.
+   * @return The new level.
+   */
+  public int getLevel()
+  {
+    return level;
+  }
+
+}
@@ -0,0 +1,103 @@
+package tetris.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command-line replay archive: appends replay files to an archive,
+ * then prints score statistics over every game in it from a parallel scan.
+ *
+ * Usage: java -cp Tetris.jar tetris.replay.ArchiveMain [archive] [replay file] [replay file] ...
+ *
+ * @author Daniel Rolandi
+ */
+public class ArchiveMain
+{
+  private static final String DEFAULT_ARCHIVE = "replays";
+
+  /**
+   * Application method.
+   *
+   * @param args Command-line arguments.
+   * @throws IOException if a file cannot be read or written.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    String base = (args.length > 0) ? args[0] : DEFAULT_ARCHIVE;
+    if(args.length > 1)
+    {
+      try(ReplayArchiveWriter writer = new ReplayArchiveWriter( Paths.get(base) ))
+      {
+        for(int index = 1; index < args.length; index++)
+        {
+          writer.append( ByteBuffer.wrap(Files.readAllBytes( Paths.get(args[index]) )) );
+        }
+      }
+    }
+
+    ReplayArchive archive = new ReplayArchive( Paths.get(base) );
+    ForkJoinPool pool = new ForkJoinPool();
+    long startTime = System.nanoTime();
+    ScoreSummary summary = archive.scan(pool, new ArchiveScan<ScoreSummary>()
+    {
+      @Override
+      public ScoreSummary newResult()
+      {
+        return new ScoreSummary();
+      }
+
+      @Override
+      public void add(ScoreSummary result, ReplayArchive archive, long id)
+      {
+        float score = archive.getScore(id);
+        result.games++;
+        result.scoreSum += score;
+        result.piecesSum += archive.getPiecesPlaced(id);
+        if(result.bestId < 0 || score > result.bestScore)
+        {
+          result.bestId = id;
+          result.bestScore = score;
+        }
+      }
+
+      @Override
+      public void merge(ScoreSummary result, ScoreSummary other)
+      {
+        result.games += other.games;
+        result.scoreSum += other.scoreSum;
+        result.piecesSum += other.piecesSum;
+        if(other.bestId >= 0 && (result.bestId < 0 || other.bestScore > result.bestScore))
+        {
+          result.bestId = other.bestId;
+          result.bestScore = other.bestScore;
+        }
+      }
+    });
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    pool.shutdown();
+
+    System.out.println(String.format("%s  %d games  mean score %.1f  mean pieces %.1f  (%.3f s scan)",
+        base, summary.games, summary.scoreSum / Math.max(1, summary.games),
+        (double)summary.piecesSum / Math.max(1, summary.games), seconds));
+    if(summary.bestId >= 0)
+    {
+      System.out.println(String.format("best game %d  score %.1f  level %d  cleared %d  pieces %d",
+          summary.bestId, summary.bestScore, archive.getLevel(summary.bestId),
+          archive.getClearedCount(summary.bestId), archive.getPiecesPlaced(summary.bestId)));
+    }
+  }
+
+  // totals over a range of games
+  private static class ScoreSummary
+  {
+    private long games;
+    private double scoreSum;
+    private long piecesSum;
+    private long bestId = -1;
+    private float bestScore;
+  }
+
+}
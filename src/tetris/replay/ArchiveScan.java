@@ -0,0 +1,34 @@
+package tetris.replay;
+
+/**
+ * A query over every game of a ReplayArchive, run one index segment per task:
+ * each segment fills its own result, then the results are merged.
+ *
+ * @param <R> Partial result, e.g. sums and a best score.
+ * @author Daniel Rolandi
+ */
+public interface ArchiveScan<R>
+{
+  /**
+   * Returns an empty result for one segment.
+   * @return A new, empty result.
+   */
+  R newResult();
+
+  /**
+   * Adds one game to a result.
+   *
+   * @param result Result of the segment the game is in.
+   * @param archive Archive being scanned, to read the game's summary or replay.
+   * @param id Game id.
+   */
+  void add(R result, ReplayArchive archive, long id);
+
+  /**
+   * Adds the games of one result to another.
+   *
+   * @param result Result to add to.
+   * @param other Result of the following games.
+   */
+  void merge(R result, R other);
+}
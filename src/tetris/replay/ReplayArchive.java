@@ -0,0 +1,343 @@
+package tetris.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Read-only view of an archive of many replays, memory-mapped, so a lookup or
+ * a scan touches only the pages it reads: no file opens and no decoding per game.
+ *
+ * An archive is two append-only files, written by ReplayArchiveWriter.
+ * The data file holds the ReplayFormat streams back to back; none crosses a
+ * DATA_CHUNK_SIZE boundary, so each chunk maps as one buffer. The index file is
+ * an INDEX_HEADER_SIZE header, then one ENTRY_SIZE entry per game, in id order:
+ * the offset and length of its replay and the summary of how it ended.
+ * The index maps in segments of SEGMENT_ENTRIES games, which are also
+ * the units of a parallel scan.
+ *
+ * The view covers the games appended before it was opened.
+ *
+ * @author Daniel Rolandi
+ */
+public class ReplayArchive
+{
+  public static final String DATA_EXTENSION = ".data";
+  public static final String INDEX_EXTENSION = ".index";
+  public static final int INDEX_MAGIC = 0x54524158; // "TRAX"
+  public static final int INDEX_VERSION = 1;
+  public static final int INDEX_HEADER_SIZE = 16; // magic, version, reserved
+  public static final long DATA_CHUNK_SIZE = 1L << 30;
+  public static final int SEGMENT_ENTRIES = 1 << 16;
+
+  // index entry layout
+  static final int OFFSET = 0; // long, in the data file
+  static final int LENGTH = 8; // int
+  static final int STEPS = 12; // long
+  static final int PIECES = 20; // int
+  static final int SCORE = 24; // float
+  static final int LEVEL = 28; // int
+  static final int CLEARED = 32; // int
+  static final int FLAGS = 36; // int
+  public static final int ENTRY_SIZE = 40;
+  static final int COMPLETE_FLAG = 1;
+
+  private final long gameCount;
+  private final ByteBuffer[] segments;
+  private final ByteBuffer[] chunks;
+
+  /**
+   * Maps an archive.
+   *
+   * @param base Path of the archive without its extensions.
+   * @throws IOException if the files cannot be read or the index is not an archive index.
+   */
+  public ReplayArchive(Path base) throws IOException
+  {
+    try(FileChannel index = FileChannel.open(indexPath(base), StandardOpenOption.READ);
+        FileChannel data = FileChannel.open(dataPath(base), StandardOpenOption.READ))
+    {
+      gameCount = readGameCount(index, data.size());
+      segments = new ByteBuffer[ (int)((gameCount + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES) ];
+      for(int segment = 0; segment < segments.length; segment++)
+      {
+        long first = (long)segment * SEGMENT_ENTRIES;
+        long entries = Math.min(SEGMENT_ENTRIES, gameCount - first);
+        segments[segment] = index.map(FileChannel.MapMode.READ_ONLY,
+            INDEX_HEADER_SIZE + first * ENTRY_SIZE, entries * ENTRY_SIZE);
+      }
+      long dataSize = data.size();
+      chunks = new ByteBuffer[ (int)((dataSize + DATA_CHUNK_SIZE - 1) / DATA_CHUNK_SIZE) ];
+      for(int chunk = 0; chunk < chunks.length; chunk++)
+      {
+        long position = chunk * DATA_CHUNK_SIZE;
+        chunks[chunk] = data.map(FileChannel.MapMode.READ_ONLY, position, Math.min(DATA_CHUNK_SIZE, dataSize - position));
+      }
+    }
+    // mappings stay valid after their channels close
+  }
+
+  /**
+   * Returns the count of games in the archive; ids run from 0 to this - 1.
+   * @return The count of games.
+   */
+  public long getGameCount()
+  {
+    return gameCount;
+  }
+
+  /**
+   * Returns the replay of a game, for ReplayReader or ReplayPlayer.
+   * The buffer shares the mapped pages; nothing is copied.
+   *
+   * @param id Game id.
+   * @return The replay, from position 0 to its limit.
+   */
+  public ByteBuffer getReplay(long id)
+  {
+    long offset = getLong(id, OFFSET);
+    ByteBuffer replay = chunks[ (int)(offset / DATA_CHUNK_SIZE) ].duplicate();
+    int start = (int)(offset % DATA_CHUNK_SIZE);
+    replay.limit( start + getInt(id, LENGTH) );
+    replay.position(start);
+    return replay.slice();
+  }
+
+  /**
+   * Returns the size of a game's replay.
+   *
+   * @param id Game id.
+   * @return The replay size in bytes.
+   */
+  public int getReplayLength(long id)
+  {
+    return getInt(id, LENGTH);
+  }
+
+  /**
+   * Returns the logic steps a game lasted.
+   *
+   * @param id Game id.
+   * @return Game.getStepCount() at the end of the replay.
+   */
+  public long getStepCount(long id)
+  {
+    return getLong(id, STEPS);
+  }
+
+  /**
+   * Returns the count of Tetrominos a game locked.
+   *
+   * @param id Game id.
+   * @return Game.getPiecesPlaced() at the end of the replay.
+   */
+  public int getPiecesPlaced(long id)
+  {
+    return getInt(id, PIECES);
+  }
+
+  /**
+   * Returns the final score of a game.
+   *
+   * @param id Game id.
+   * @return ScoreKeeper.getScore() at the end of the replay.
+   */
+  public float getScore(long id)
+  {
+    return segment(id).getFloat( position(id) + SCORE );
+  }
+
+  /**
+   * Returns the final level of a game.
+   *
+   * @param id Game id.
+   * @return ScoreKeeper.getLevel() at the end of the replay.
+   */
+  public int getLevel(long id)
+  {
+    return getInt(id, LEVEL);
+  }
+
+  /**
+   * Returns the count of rows a game cleared.
+   *
+   * @param id Game id.
+   * @return ScoreKeeper.getClearedCount() at the end of the replay.
+   */
+  public int getClearedCount(long id)
+  {
+    return getInt(id, CLEARED);
+  }
+
+  /**
+   * Returns true if a game's replay ended with its STOP record.
+   *
+   * @param id Game id.
+   * @return False if the recording was cut short.
+   */
+  public boolean isComplete(long id)
+  {
+    return (getInt(id, FLAGS) & COMPLETE_FLAG) != 0;
+  }
+
+  /**
+   * Runs a query over every game, one index segment per fork-join task.
+   *
+   * @param pool Pool to run on.
+   * @param scan Query to run.
+   * @param <R> Result of the query.
+   * @return The merged result, in id order.
+   */
+  public <R> R scan(ForkJoinPool pool, ArchiveScan<R> scan)
+  {
+    if(segments.length == 0)
+    {
+      return scan.newResult();
+    }
+    return pool.invoke( new SegmentRange<R>(scan, 0, segments.length) );
+  }
+
+  /**
+   * Returns the data file of an archive.
+   *
+   * @param base Path of the archive without its extensions.
+   * @return Path of the data file.
+   */
+  public static Path dataPath(Path base)
+  {
+    return Paths.get(base + DATA_EXTENSION);
+  }
+
+  /**
+   * Returns the index file of an archive.
+   *
+   * @param base Path of the archive without its extensions.
+   * @return Path of the index file.
+   */
+  public static Path indexPath(Path base)
+  {
+    return Paths.get(base + INDEX_EXTENSION);
+  }
+
+  /**
+   * Checks the index header and counts the games whose replays are all in the data file.
+   * An append cut short leaves a partial entry, or an entry past the data; neither is counted.
+   *
+   * @param index Index file.
+   * @param dataSize Size of the data file.
+   * @return The count of whole games.
+   * @throws IOException if the index is not an archive index.
+   */
+  static long readGameCount(FileChannel index, long dataSize) throws IOException
+  {
+    ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+    if( !readFully(index, header, 0) || header.getInt() != INDEX_MAGIC )
+    {
+      throw new IOException("ReplayArchive: not an archive index");
+    }
+    int version = header.getInt();
+    if(version != INDEX_VERSION)
+    {
+      throw new IOException("ReplayArchive: unknown index version " + version);
+    }
+    long count = (index.size() - INDEX_HEADER_SIZE) / ENTRY_SIZE;
+    ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+    while(count > 0)
+    {
+      entry.clear();
+      readFully(index, entry, INDEX_HEADER_SIZE + (count - 1) * ENTRY_SIZE);
+      if(entry.getLong(OFFSET) + entry.getInt(LENGTH) <= dataSize)
+      {
+        break;
+      }
+      count--;
+    }
+    return count;
+  }
+
+  // fills the buffer from that file position and flips it; false if the file ends first
+  static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+  {
+    while( buffer.hasRemaining() )
+    {
+      if(channel.read(buffer, position + buffer.position()) < 0)
+      {
+        buffer.flip();
+        return false;
+      }
+    }
+    buffer.flip();
+    return true;
+  }
+
+  private ByteBuffer segment(long id)
+  {
+    if(id < 0 || id >= gameCount)
+    {
+      throw new IndexOutOfBoundsException("ReplayArchive: no game " + id);
+    }
+    return segments[ (int)(id / SEGMENT_ENTRIES) ];
+  }
+
+  private static int position(long id)
+  {
+    return (int)(id % SEGMENT_ENTRIES) * ENTRY_SIZE;
+  }
+
+  private int getInt(long id, int field)
+  {
+    return segment(id).getInt( position(id) + field );
+  }
+
+  private long getLong(long id, int field)
+  {
+    return segment(id).getLong( position(id) + field );
+  }
+
+  // splits the segment range in halves until one segment is left
+  private class SegmentRange<R> extends RecursiveTask<R>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final ArchiveScan<R> scan;
+    private final int from;
+    private final int to;
+
+    SegmentRange(ArchiveScan<R> scan, int from, int to)
+    {
+      this.scan = scan;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected R compute()
+    {
+      if(to - from == 1)
+      {
+        R result = scan.newResult();
+        long first = (long)from * SEGMENT_ENTRIES;
+        long last = Math.min(first + SEGMENT_ENTRIES, gameCount);
+        for(long id = first; id < last; id++)
+        {
+          scan.add(result, ReplayArchive.this, id);
+        }
+        return result;
+      }
+      int middle = (from + to) >>> 1;
+      SegmentRange<R> left = new SegmentRange<R>(scan, from, middle);
+      SegmentRange<R> right = new SegmentRange<R>(scan, middle, to);
+      left.fork();
+      R rightResult = right.compute();
+      R result = left.join();
+      scan.merge(result, rightResult);
+      return result;
+    }
+  }
+
+}
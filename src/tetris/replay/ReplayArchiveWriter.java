@@ -0,0 +1,150 @@
+package tetris.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import tetris.Game;
+import tetris.ScoreKeeper;
+
+/**
+ * Appends replays to a ReplayArchive, creating it if needed.
+ * Each replay is played back once here to fill in its summary, so readers never have to.
+ * Its bytes are written before its index entry, so an append cut short
+ * leaves nothing a reader counts; reopening the archive drops the leftovers.
+ * One writer per archive at a time.
+ *
+ * @author Daniel Rolandi
+ */
+public class ReplayArchiveWriter implements Closeable
+{
+  private final FileChannel index;
+  private final FileChannel data;
+  private final ByteBuffer entry;
+  private long gameCount;
+  private long dataSize;
+
+  /**
+   * Opens an archive for appending.
+   *
+   * @param base Path of the archive without its extensions.
+   * @throws IOException if the files cannot be opened or the index is not an archive index.
+   */
+  public ReplayArchiveWriter(Path base) throws IOException
+  {
+    index = FileChannel.open(ReplayArchive.indexPath(base),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    data = FileChannel.open(ReplayArchive.dataPath(base),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    entry = ByteBuffer.allocate(ReplayArchive.ENTRY_SIZE);
+    try
+    {
+      if(index.size() == 0)
+      {
+        ByteBuffer header = ByteBuffer.allocate(ReplayArchive.INDEX_HEADER_SIZE);
+        header.putInt(ReplayArchive.INDEX_MAGIC);
+        header.putInt(ReplayArchive.INDEX_VERSION);
+        header.rewind(); // the reserved bytes stay zero
+        writeFully(index, header, 0);
+      }
+      gameCount = ReplayArchive.readGameCount(index, data.size());
+      if(gameCount > 0)
+      {
+        ByteBuffer last = ByteBuffer.allocate(ReplayArchive.ENTRY_SIZE);
+        ReplayArchive.readFully(index, last, entryPosition(gameCount - 1));
+        dataSize = last.getLong(ReplayArchive.OFFSET) + last.getInt(ReplayArchive.LENGTH);
+      }
+      index.truncate( entryPosition(gameCount) );
+      data.truncate(dataSize);
+    }
+    catch(IOException e)
+    {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends one replay.
+   *
+   * @param replay ReplayFormat stream from its position to its limit; neither is changed.
+   * @return Id of the appended game.
+   * @throws IOException if the files cannot be written.
+   */
+  public long append(ByteBuffer replay) throws IOException
+  {
+    int length = replay.remaining();
+    if(length > ReplayArchive.DATA_CHUNK_SIZE)
+    {
+      throw new IllegalArgumentException("ReplayArchiveWriter: replay larger than a data chunk");
+    }
+    ReplayPlayer player = new ReplayPlayer(replay);
+    boolean complete = player.playToEnd();
+    Game game = player.getGame();
+    ScoreKeeper scoreKeeper = game.getScoreKeeper();
+
+    long offset = dataSize;
+    if(offset / ReplayArchive.DATA_CHUNK_SIZE != (offset + length - 1) / ReplayArchive.DATA_CHUNK_SIZE)
+    {
+      // would straddle two chunks; start the next one instead
+      offset = (offset / ReplayArchive.DATA_CHUNK_SIZE + 1) * ReplayArchive.DATA_CHUNK_SIZE;
+    }
+    writeFully(data, replay.duplicate(), offset);
+    dataSize = offset + length;
+
+    entry.clear();
+    entry.putLong(ReplayArchive.OFFSET, offset);
+    entry.putInt(ReplayArchive.LENGTH, length);
+    entry.putLong(ReplayArchive.STEPS, game.getStepCount());
+    entry.putInt(ReplayArchive.PIECES, game.getPiecesPlaced());
+    entry.putFloat(ReplayArchive.SCORE, scoreKeeper.getScore());
+    entry.putInt(ReplayArchive.LEVEL, scoreKeeper.getLevel());
+    entry.putInt(ReplayArchive.CLEARED, scoreKeeper.getClearedCount());
+    entry.putInt(ReplayArchive.FLAGS, complete ? ReplayArchive.COMPLETE_FLAG : 0);
+    writeFully(index, entry, entryPosition(gameCount));
+    return gameCount++;
+  }
+
+  /**
+   * Returns the count of games in the archive.
+   * @return The count of games, the id the next append gets.
+   */
+  public long getGameCount()
+  {
+    return gameCount;
+  }
+
+  /**
+   * Closes the archive files.
+   * @throws IOException if a file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      data.close();
+    }
+    finally
+    {
+      index.close();
+    }
+  }
+
+  private static long entryPosition(long id)
+  {
+    return ReplayArchive.INDEX_HEADER_SIZE + id * ReplayArchive.ENTRY_SIZE;
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+  {
+    while( buffer.hasRemaining() )
+    {
+      position += channel.write(buffer, position);
+    }
+  }
+
+}
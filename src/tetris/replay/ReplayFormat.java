@@ -0,0 +1,78 @@
+package tetris.replay;
+
+import java.nio.ByteBuffer;
+
+import tetris.Action;
+
+/**
+ * Layout of a recorded game.
+ *
+ * A fixed header (MAGIC, FORMAT_VERSION, Game.RULES_VERSION, seed, big-endian)
+ * is followed by one varint per input: the logic steps since the previous input,
+ * shifted left by COMMAND_BITS, OR the command id. Ids below END_GAME are Action
+ * ordinals. Inputs come seconds apart, a few hundred steps, so most take two bytes.
+ * STOP marks the step the recording ended at and is always last.
+ *
+ * @author Daniel Rolandi
+ */
+public class ReplayFormat
+{
+  public static final int MAGIC = 0x54524550; // "TREP"
+  public static final int FORMAT_VERSION = 1;
+  public static final int HEADER_SIZE = 16; // magic, format version, rules version, seed
+  public static final int COMMAND_BITS = 3;
+  public static final int COMMAND_MASK = (1 << COMMAND_BITS) - 1;
+  public static final int END_GAME = Action.values().length;
+  public static final int STOP = END_GAME + 1;
+  public static final int MAX_RECORD_SIZE = 10; // a 64-bit varint
+
+  static
+  {
+    if(STOP > COMMAND_MASK)
+    {
+      throw new IllegalStateException("ReplayFormat: command ids must fit in COMMAND_BITS");
+    }
+  }
+
+  /**
+   * Writes a non-negative value as a varint: 7 bits per byte, low bits first,
+   * the top bit set on every byte but the last.
+   *
+   * @param value Value to write.
+   * @param target Array to write to.
+   * @param offset Index of the first byte.
+   * @return Index after the last byte written.
+   */
+  public static int putVarLong(long value, byte[] target, int offset)
+  {
+    while( (value & ~0x7fL) != 0 )
+    {
+      target[offset++] = (byte)((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    target[offset++] = (byte)value;
+    return offset;
+  }
+
+  /**
+   * Reads a varint written by putVarLong().
+   *
+   * @param source Buffer positioned at the varint; moved past it.
+   * @return The value.
+   * @throws java.nio.BufferUnderflowException if the buffer ends inside the varint.
+   */
+  public static long getVarLong(ByteBuffer source)
+  {
+    long value = 0;
+    for(int shift = 0; ; shift += 7)
+    {
+      byte next = source.get();
+      value |= (long)(next & 0x7f) << shift;
+      if(next >= 0)
+      {
+        return value;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,45 @@
+package tetris.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import tetris.Game;
+import tetris.ScoreKeeper;
+
+/**
+ * Command-line replay check: plays each replay file back headlessly
+ * and prints its size, length and final score.
+ *
+ * Usage: java -cp Tetris.jar tetris.replay.ReplayMain [file] [file] ...
+ *
+ * @author Daniel Rolandi
+ */
+public class ReplayMain
+{
+
+  /**
+   * Application method.
+   *
+   * @param args Command-line arguments.
+   * @throws IOException if a file cannot be read.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    for(String arg : args)
+    {
+      Path file = Paths.get(arg);
+      byte[] bytes = Files.readAllBytes(file);
+      ReplayPlayer player = new ReplayPlayer( ByteBuffer.wrap(bytes) );
+      boolean complete = player.playToEnd();
+      Game game = player.getGame();
+      ScoreKeeper scoreKeeper = game.getScoreKeeper();
+      System.out.println(String.format("%s  %d bytes  %d steps  pieces %d  score %.1f  level %d  cleared %d%s",
+          file.getFileName(), bytes.length, game.getStepCount(), game.getPiecesPlaced(), scoreKeeper.getScore(),
+          scoreKeeper.getLevel(), scoreKeeper.getClearedCount(), complete ? "" : "  (cut short)"));
+    }
+  }
+
+}
@@ -0,0 +1,213 @@
+package tetris.replay;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import tetris.Action;
+import tetris.Game;
+
+/**
+ * Plays a recorded game back on a headless Game: the same seed, each
+ * input made after the same count of logic steps, so every state of the
+ * recorded game comes back exactly.
+ *
+ * While playing forward, the player saves a keyframe (Game.saveState()) every
+ * keyframeSteps steps. seek() restores the nearest keyframe at or before the
+ * target and plays only the rest, so jumping anywhere already played costs
+ * at most keyframeSteps steps, backwards included.
+ *
+ * @author Daniel Rolandi
+ */
+public class ReplayPlayer
+{
+  public static final int DEFAULT_KEYFRAME_STEPS = 1000; // 10 s of game time
+  private static final int INITIAL_KEYFRAMES = 16;
+  private static final int NO_RECORD = -1;
+
+  private final ReplayReader reader;
+  private final Game game;
+  private boolean pending; // the reader holds an input not played yet
+
+  // keyframe k is the state at step k * keyframeSteps, before that step's inputs
+  private final int keyframeSteps;
+  private ByteBuffer keyframes;
+  private int[] keyframeRecords; // reader's getRecordStart() of the first input not played, or NO_RECORD
+  private long[] keyframePreviousSteps;
+  private int keyframeCount;
+
+  /**
+   * Inits a player at step 0 of the replay, with a keyframe every DEFAULT_KEYFRAME_STEPS.
+   *
+   * @param replay Replay from its position to its limit.
+   */
+  public ReplayPlayer(ByteBuffer replay)
+  {
+    this(replay, DEFAULT_KEYFRAME_STEPS);
+  }
+
+  /**
+   * Inits a player at step 0 of the replay.
+   *
+   * @param replay Replay from its position to its limit.
+   * @param keyframeSteps Logic steps between keyframes.
+   */
+  public ReplayPlayer(ByteBuffer replay, int keyframeSteps)
+  {
+    if(keyframeSteps <= 0)
+    {
+      throw new IllegalArgumentException("ReplayPlayer: keyframeSteps must be positive");
+    }
+    reader = new ReplayReader(replay);
+    if(reader.getRulesVersion() != Game.RULES_VERSION)
+    {
+      throw new IllegalArgumentException("ReplayPlayer: recorded under rules version " + reader.getRulesVersion()
+          + ", this is " + Game.RULES_VERSION);
+    }
+    game = new Game( reader.getSeed() );
+    pending = reader.next();
+    this.keyframeSteps = keyframeSteps;
+    keyframes = ByteBuffer.allocate(INITIAL_KEYFRAMES * Game.STATE_SIZE);
+    keyframeRecords = new int[INITIAL_KEYFRAMES];
+    keyframePreviousSteps = new long[INITIAL_KEYFRAMES];
+    saveKeyframe();
+  }
+
+  /**
+   * Returns the Game being played back.
+   * @return The Game.
+   */
+  public Game getGame()
+  {
+    return game;
+  }
+
+  /**
+   * Plays on until that step, inputs made at that step included.
+   *
+   * @param step Step to stop at; steps already played are not undone.
+   */
+  public void advanceTo(long step)
+  {
+    while(true)
+    {
+      long current = game.getStepCount();
+      if(current == (long)keyframeCount * keyframeSteps)
+      {
+        saveKeyframe();
+      }
+      if(pending && reader.getStep() == current)
+      {
+        play( reader.getCommand(), reader.getAction() );
+        pending = reader.next();
+        continue;
+      }
+      if(current >= step)
+      {
+        return;
+      }
+      // stop at the next input or keyframe, whichever comes first
+      long stop = Math.min(step, (long)keyframeCount * keyframeSteps);
+      if(pending)
+      {
+        stop = Math.min(stop, reader.getStep());
+      }
+      game.step( (int)(stop - current) );
+    }
+  }
+
+  /**
+   * Jumps to that step, backwards or forwards, inputs made at that step included.
+   * Restores the nearest keyframe at or before it when that is closer than the current step.
+   *
+   * @param step Step to jump to.
+   */
+  public void seek(long step)
+  {
+    int keyframe = (int)Math.min(step / keyframeSteps, keyframeCount - 1);
+    long keyframeStep = (long)keyframe * keyframeSteps;
+    if(step < game.getStepCount() || keyframeStep > game.getStepCount())
+    {
+      restoreKeyframe(keyframe);
+    }
+    advanceTo(step);
+  }
+
+  /**
+   * Plays the rest of the replay.
+   * @return True if the replay was complete, false if it was cut short and played as far as it goes.
+   */
+  public boolean playToEnd()
+  {
+    while(pending)
+    {
+      advanceTo( reader.getStep() );
+    }
+    return reader.isComplete();
+  }
+
+  /**
+   * Returns true once every input has been played.
+   * @return True at the end of the replay.
+   */
+  public boolean isFinished()
+  {
+    return !pending;
+  }
+
+  /**
+   * Returns the count of keyframes saved so far.
+   * @return The count of keyframes, one per keyframeSteps steps played.
+   */
+  public int getKeyframeCount()
+  {
+    return keyframeCount;
+  }
+
+  private void play(int command, Action action)
+  {
+    if(action != null)
+    {
+      game.perform(action);
+    }
+    else if(command == ReplayFormat.END_GAME)
+    {
+      game.endGame();
+    }
+    // STOP only marks the end step
+  }
+
+  private void saveKeyframe()
+  {
+    if(keyframeCount == keyframeRecords.length)
+    {
+      int capacity = keyframeCount * 2;
+      ByteBuffer grown = ByteBuffer.allocate(capacity * Game.STATE_SIZE);
+      keyframes.rewind();
+      grown.put(keyframes);
+      keyframes = grown;
+      keyframeRecords = Arrays.copyOf(keyframeRecords, capacity);
+      keyframePreviousSteps = Arrays.copyOf(keyframePreviousSteps, capacity);
+    }
+    keyframes.position(keyframeCount * Game.STATE_SIZE);
+    game.saveState(keyframes);
+    keyframeRecords[keyframeCount] = pending ? reader.getRecordStart() : NO_RECORD;
+    keyframePreviousSteps[keyframeCount] = reader.getPreviousStep();
+    keyframeCount++;
+  }
+
+  private void restoreKeyframe(int keyframe)
+  {
+    keyframes.position(keyframe * Game.STATE_SIZE);
+    game.restoreState(keyframes);
+    if(keyframeRecords[keyframe] != NO_RECORD)
+    {
+      reader.rewind(keyframeRecords[keyframe], keyframePreviousSteps[keyframe]);
+      pending = reader.next();
+    }
+    else
+    {
+      pending = false; // every input was played before this keyframe
+    }
+  }
+
+}
@@ -0,0 +1,164 @@
+package tetris.replay;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import tetris.Action;
+
+/**
+ * Walks the inputs of a ReplayFormat stream held in a ByteBuffer,
+ * e.g. a whole file read into memory or a slice of a mapped one.
+ * Each next() decodes one varint; nothing is allocated per input.
+ *
+ * @author Daniel Rolandi
+ */
+public class ReplayReader
+{
+  private static final Action[] ACTIONS = Action.values();
+
+  private final ByteBuffer source;
+  private final int rulesVersion;
+  private final long seed;
+  private long step;
+  private long previousStep;
+  private int command;
+  private int recordStart; // where the current input starts in source
+  private boolean complete;
+
+  /**
+   * Inits a reader positioned before the first input.
+   *
+   * @param replay Replay from its position to its limit; neither is changed.
+   */
+  public ReplayReader(ByteBuffer replay)
+  {
+    source = replay.duplicate(); // big-endian whatever the caller's order
+    if(source.remaining() < ReplayFormat.HEADER_SIZE || source.getInt() != ReplayFormat.MAGIC)
+    {
+      throw new IllegalArgumentException("ReplayReader: not a replay");
+    }
+    int formatVersion = source.getShort();
+    if(formatVersion != ReplayFormat.FORMAT_VERSION)
+    {
+      throw new IllegalArgumentException("ReplayReader: unknown format version " + formatVersion);
+    }
+    rulesVersion = source.getShort();
+    seed = source.getLong();
+    command = -1;
+  }
+
+  /**
+   * Moves to the next input.
+   * @return False at the end of the replay, after STOP or where the stream was cut short.
+   */
+  public boolean next()
+  {
+    if(command == ReplayFormat.STOP || !source.hasRemaining())
+    {
+      return false;
+    }
+    int start = source.position();
+    long value;
+    try
+    {
+      value = ReplayFormat.getVarLong(source);
+    }
+    catch(BufferUnderflowException e)
+    {
+      return false; // cut inside the last varint
+    }
+    recordStart = start;
+    previousStep = step;
+    step += value >>> ReplayFormat.COMMAND_BITS;
+    command = (int)value & ReplayFormat.COMMAND_MASK;
+    complete = (command == ReplayFormat.STOP);
+    return true;
+  }
+
+  /**
+   * Goes back to an input read before, so the next next() reads it again.
+   *
+   * @param recordStart getRecordStart() at that input.
+   * @param previousStep getPreviousStep() at that input.
+   */
+  public void rewind(int recordStart, long previousStep)
+  {
+    source.position(recordStart);
+    step = previousStep;
+    command = -1;
+    complete = false;
+  }
+
+  /**
+   * Returns where the current input starts, for rewind().
+   * @return Byte position of the current input in the replay buffer.
+   */
+  public int getRecordStart()
+  {
+    return recordStart;
+  }
+
+  /**
+   * Returns the step of the input before the current one, for rewind().
+   * @return The step before the current input's, 0 for the first input.
+   */
+  public long getPreviousStep()
+  {
+    return previousStep;
+  }
+
+  /**
+   * Returns the seed the recorded Game was built with.
+   * @return The seed, as given to Game(long).
+   */
+  public long getSeed()
+  {
+    return seed;
+  }
+
+  /**
+   * Returns the Game.RULES_VERSION the replay was recorded under.
+   * @return The rules version.
+   */
+  public int getRulesVersion()
+  {
+    return rulesVersion;
+  }
+
+  /**
+   * Returns the logic step of the current input.
+   * @return Game.getStepCount() when the input was made.
+   */
+  public long getStep()
+  {
+    return step;
+  }
+
+  /**
+   * Returns the command id of the current input.
+   * @return An Action ordinal, ReplayFormat.END_GAME or ReplayFormat.STOP.
+   */
+  public int getCommand()
+  {
+    return command;
+  }
+
+  /**
+   * Returns the move of the current input.
+   * @return The move, or null for END_GAME and STOP.
+   */
+  public Action getAction()
+  {
+    return (command < ReplayFormat.END_GAME) ? ACTIONS[command] : null;
+  }
+
+  /**
+   * Returns true once next() has reached the STOP record.
+   * @return True if the replay was read to its proper end.
+   */
+  public boolean isComplete()
+  {
+    return complete;
+  }
+
+}
@@ -0,0 +1,159 @@
+package tetris.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import tetris.Action;
+import tetris.Game;
+import tetris.io.ByteRing;
+import tetris.io.RingWriter;
+
+/**
+ * Records one game as a ReplayFormat stream, from the game thread.
+ * Each input is encoded into a ByteRing and a RingWriter thread writes it out,
+ * so recording costs the game thread a few array stores and never waits on I/O.
+ * If the writer falls so far behind that the ring fills, the recording stops
+ * without a STOP record and reads back as incomplete.
+ *
+ * @author Daniel Rolandi
+ */
+public class ReplayRecorder
+{
+  public static final int DEFAULT_RING_SIZE = 1 << 16;
+
+  private final ByteRing ring;
+  private final RingWriter writer;
+  private final byte[] record;
+  private long lastStep;
+  private boolean stopped;
+  private boolean overflowed;
+
+  /**
+   * Inits a recorder and writes the header.
+   *
+   * @param channel Channel to write to, closed by the recorder after stop().
+   * @param seed Seed the Game was built with, as given to Game(long).
+   * @param name Name of the writer thread.
+   */
+  public ReplayRecorder(WritableByteChannel channel, long seed, String name)
+  {
+    ring = new ByteRing(DEFAULT_RING_SIZE);
+    record = new byte[ Math.max(ReplayFormat.HEADER_SIZE, ReplayFormat.MAX_RECORD_SIZE) ];
+    ByteBuffer header = ByteBuffer.wrap(record);
+    header.putInt(ReplayFormat.MAGIC);
+    header.putShort( (short)ReplayFormat.FORMAT_VERSION );
+    header.putShort( (short)Game.RULES_VERSION );
+    header.putLong(seed);
+    ring.offer(record, 0, ReplayFormat.HEADER_SIZE);
+    writer = new RingWriter(ring, channel, RingWriter.DEFAULT_BUFFER_SIZE, name);
+    writer.start();
+  }
+
+  /**
+   * Inits a recorder writing to a new file, replacing any file of that name.
+   *
+   * @param file File to write.
+   * @param seed Seed the Game was built with, as given to Game(long).
+   * @return The recorder.
+   * @throws IOException if the file cannot be opened.
+   */
+  public static ReplayRecorder open(Path file, long seed) throws IOException
+  {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    return new ReplayRecorder(channel, seed, "replay " + file.getFileName());
+  }
+
+  /**
+   * Records a move made after that many logic steps.
+   *
+   * @param step Game.getStepCount() when the move was made.
+   * @param action Move made.
+   */
+  public void record(long step, Action action)
+  {
+    append(step, action.ordinal());
+  }
+
+  /**
+   * Records a forced game over, as Game.endGame().
+   *
+   * @param step Game.getStepCount() when the game was ended.
+   */
+  public void recordEndGame(long step)
+  {
+    append(step, ReplayFormat.END_GAME);
+  }
+
+  /**
+   * Ends the recording at that step; the writer thread finishes the file on its own.
+   * Later calls do nothing.
+   *
+   * @param step Game.getStepCount() the replay should play to.
+   */
+  public void stop(long step)
+  {
+    if(stopped)
+    {
+      return;
+    }
+    append(step, ReplayFormat.STOP);
+    stopped = true;
+    writer.close();
+  }
+
+  /**
+   * Waits until the file is written and closed, after stop().
+   *
+   * @param timeoutMillis Longest wait in milliseconds.
+   * @return True if it was closed in time.
+   * @throws InterruptedException if the waiting thread is interrupted.
+   */
+  public boolean await(long timeoutMillis) throws InterruptedException
+  {
+    return writer.await(timeoutMillis);
+  }
+
+  /**
+   * Returns true if inputs were lost because the writer fell behind.
+   * @return True if the recording is incomplete.
+   */
+  public boolean isOverflowed()
+  {
+    return overflowed;
+  }
+
+  /**
+   * Returns the error that stopped the writer thread, or null.
+   * @return The I/O error, or null if there was none.
+   */
+  public IOException getFailure()
+  {
+    return writer.getFailure();
+  }
+
+  private void append(long step, int command)
+  {
+    if(stopped || overflowed)
+    {
+      return;
+    }
+    if(step < lastStep)
+    {
+      throw new IllegalArgumentException("ReplayRecorder: steps must not go backwards");
+    }
+    long value = ((step - lastStep) << ReplayFormat.COMMAND_BITS) | command;
+    int length = ReplayFormat.putVarLong(value, record, 0);
+    if( !ring.offer(record, 0, length) )
+    {
+      overflowed = true;
+      return;
+    }
+    lastStep = step;
+  }
+
+}
@@ -0,0 +1,139 @@
+package tetris.sim;
+
+import java.nio.ByteBuffer;
+
+import tetris.AllocationMonitor;
+import tetris.Game;
+import tetris.NumberText;
+import tetris.ScoreKeeper;
+import tetris.bot.BeamSearch;
+import tetris.bot.HeuristicEvaluator;
+import tetris.bot.Placement;
+import tetris.bot.SearchRoot;
+
+/**
+ * Command-line check of the zero-allocation game loop, without a window:
+ * plays frames the way Tetris does, a bot dropping a Tetromino every few
+ * frames so rows clear and levels go up, and runs each frame's game work
+ * (the drop, the update, the score numbers Board draws) under an
+ * AllocationMonitor. The bot's search runs between frames, unmeasured.
+ * Fails with an IllegalStateException on the first frame after the
+ * warm-up that allocated anything, and did again when replayed from a
+ * saved state: with C2 the JVM now and then charges a few bytes of its own
+ * to the thread (never under -Xint or -XX:TieredStopAtLevel=1), which a
+ * replay does not repeat, while an allocation in the game code does.
+ *
+ * Usage: java -cp Tetris.jar tetris.sim.AllocationCheckMain [frames] [seed]
+ *
+ * @author Daniel Rolandi
+ */
+public class AllocationCheckMain
+{
+  private static final int DEFAULT_FRAMES = 100000;
+  private static final long DEFAULT_SEED = 1L;
+  private static final int FRAME_MILLIS = 16; // about 60 fps
+  private static final int FRAMES_PER_DROP = 10;
+
+  /**
+   * Application method.
+   *
+   * @param args Command-line arguments.
+   */
+  public static void main(String[] args)
+  {
+    int frames = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+    long seed = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_SEED;
+
+    Game game = new Game(seed);
+    BeamSearch search = new BeamSearch(1, BeamSearchPlayer.DEFAULT_BEAM_WIDTH, BeamSearchPlayer.DEFAULT_MAX_DEPTH,
+        new HeuristicEvaluator(), null);
+    SearchRoot root = new SearchRoot(BeamSearchPlayer.DEFAULT_MAX_DEPTH - 1);
+    // the same widths as Board's
+    NumberText levelNumber = new NumberText(7);
+    NumberText clearedNumber = new NumberText(5);
+    NumberText scoreNumber = new NumberText(7);
+    AllocationMonitor monitor = new AllocationMonitor(AllocationMonitor.DEFAULT_WARMUP_CYCLES);
+    ByteBuffer state = ByteBuffer.allocate(Game.STATE_SIZE);
+
+    int games = 1;
+    long cleared = 0;
+    long pieces = 0;
+    int bestLevel = 0;
+    int unrepeated = 0; // frames that allocated once but not when replayed
+    for(int frame = 0; frame < frames; frame++)
+    {
+      if( game.isDefeat() )
+      {
+        cleared += game.getScoreKeeper().getClearedCount();
+        pieces += game.getPiecesPlaced();
+        game.newGame();
+        games++;
+      }
+      Placement placement = null;
+      if(frame % FRAMES_PER_DROP == 0 && root.capture(game))
+      {
+        placement = search.search(root, BeamSearch.NO_DEADLINE);
+      }
+
+      state.clear();
+      game.saveState(state);
+      long lastLevel = levelNumber.getValue();
+      long lastCleared = clearedNumber.getValue();
+      long lastScore = scoreNumber.getValue();
+      long bytes = runFrame(monitor, game, placement, levelNumber, clearedNumber, scoreNumber);
+      if(frame >= AllocationMonitor.DEFAULT_WARMUP_CYCLES && bytes > 0)
+      {
+        state.flip();
+        game.restoreState(state);
+        levelNumber.set(lastLevel);
+        clearedNumber.set(lastCleared);
+        scoreNumber.set(lastScore);
+        long replayBytes = runFrame(monitor, game, placement, levelNumber, clearedNumber, scoreNumber);
+        if(replayBytes > 0)
+        {
+          throw new IllegalStateException("Frame " + frame + " allocated " + bytes + " bytes, and "
+              + replayBytes + " bytes when replayed.");
+        }
+        unrepeated++;
+      }
+      bestLevel = Math.max( bestLevel, game.getScoreKeeper().getLevel() );
+    }
+    search.shutdown();
+    cleared += game.getScoreKeeper().getClearedCount();
+    pieces += game.getPiecesPlaced();
+
+    System.out.println("frames        " + frames + ", " + AllocationMonitor.DEFAULT_WARMUP_CYCLES + " of them warm-up");
+    System.out.println("games         " + games + ", best level " + bestLevel);
+    System.out.println("pieces placed " + pieces);
+    System.out.println("lines cleared " + cleared);
+    System.out.println("no frame after the warm-up allocated, " + unrepeated + " counted once but not when replayed");
+  }
+
+  /**
+   * Returns the bytes allocated by one frame's game work.
+   *
+   * @param monitor Monitor to measure with.
+   * @param game Game to play.
+   * @param placement Placement to drop this frame, or null.
+   * @param levelNumber Level as Board draws it.
+   * @param clearedNumber Cleared count as Board draws it.
+   * @param scoreNumber Score as Board draws it.
+   * @return Bytes allocated.
+   */
+  private static long runFrame(AllocationMonitor monitor, Game game, Placement placement,
+      NumberText levelNumber, NumberText clearedNumber, NumberText scoreNumber)
+  {
+    monitor.begin();
+    if(placement != null)
+    {
+      placement.applyTo(game);
+    }
+    game.update(FRAME_MILLIS);
+    ScoreKeeper scoreKeeper = game.getScoreKeeper();
+    levelNumber.set( scoreKeeper.getLevel() );
+    clearedNumber.set( scoreKeeper.getClearedCount() );
+    scoreNumber.set( Math.round(scoreKeeper.getScore()) );
+    return monitor.end();
+  }
+
+}
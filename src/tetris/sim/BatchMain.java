@@ -0,0 +1,49 @@
+package tetris.sim;
+
+import tetris.bot.HeuristicEvaluator;
+
+/**
+ * Command-line batch mode: plays games headlessly on every core
+ * and prints their totals. No window, no Slick.
+ *
+ * Usage: java -cp Tetris.jar tetris.sim.BatchMain [games] [threads] [seed] [maxSteps] [scripted|beam]
+ *
+ * @author Daniel Rolandi
+ */
+public class BatchMain
+{
+  private static final int DEFAULT_GAMES = 1000;
+  private static final long DEFAULT_SEED = 1L;
+
+  /**
+   * Application method.
+   *
+   * @param args Command-line arguments.
+   */
+  public static void main(String[] args)
+  {
+    int games = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+    int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+    long seed = (args.length > 2) ? Long.parseLong(args[2]) : DEFAULT_SEED;
+    long maxSteps = (args.length > 3) ? Long.parseLong(args[3]) : BatchRunner.DEFAULT_MAX_STEPS;
+    boolean beam = (args.length > 4) && args[4].equals("beam");
+
+    PlayerFactory players = beam
+        ? BeamSearchPlayer.factory(HeuristicEvaluator.getDefaultWeights(), BeamSearchPlayer.DEFAULT_BEAM_WIDTH, BeamSearchPlayer.DEFAULT_MAX_DEPTH)
+        : ScriptedPlayer.factory();
+    BatchRunner runner = new BatchRunner(threads, players, maxSteps);
+    long startTime = System.nanoTime();
+    BatchStats stats = runner.run(games, seed);
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    runner.shutdown();
+
+    System.out.println("games         " + stats.getGameCount() + " on " + threads + " threads, seed " + seed);
+    System.out.println("lines cleared " + stats.getLinesCleared());
+    System.out.println("pieces placed " + stats.getPiecesPlaced());
+    System.out.println("logic steps   " + stats.getStepCount());
+    System.out.println(String.format("score         mean %.1f, best %.0f", stats.getMeanScore(), stats.getBestScore()));
+    System.out.println(String.format("level         mean %.2f, best %d", stats.getMeanLevel(), stats.getBestLevel()));
+    System.out.println(String.format("time          %.3f s, %.1f games/s", seconds, stats.getGameCount() / seconds));
+  }
+
+}
@@ -0,0 +1,144 @@
+package tetris.sim;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import tetris.Game;
+import tetris.SplitMix64;
+
+/**
+ * Plays many headless games across a fork-join pool.
+ * Each game owns its Game and Player, seeded from one master seed,
+ * so a batch gives the same totals whatever the thread count.
+ *
+ * @author Daniel Rolandi
+ */
+public class BatchRunner
+{
+  public static final long DEFAULT_MAX_STEPS = 10000000L; // about 28 hours of game time
+  private static final int GAMES_PER_TASK = 4;
+
+  private final ForkJoinPool pool;
+  private final PlayerFactory playerFactory;
+  private final long maxStepsPerGame;
+
+  /**
+   * Inits a runner with its own pool.
+   *
+   * @param parallelism Count of worker threads.
+   * @param playerFactory Makes the Player of each game.
+   * @param maxStepsPerGame Logic steps after which a game is ended, in case a Player never loses.
+   */
+  public BatchRunner(int parallelism, PlayerFactory playerFactory, long maxStepsPerGame)
+  {
+    pool = new ForkJoinPool(parallelism);
+    this.playerFactory = playerFactory;
+    this.maxStepsPerGame = maxStepsPerGame;
+  }
+
+  /**
+   * Plays that many games and returns their totals.
+   *
+   * @param gameCount Count of games.
+   * @param seed Master seed; game i always gets the same piece and input seeds.
+   * @return Totals over every game.
+   */
+  public BatchStats run(int gameCount, long seed)
+  {
+    return run(gameCount, seed, playerFactory);
+  }
+
+  /**
+   * Plays that many games with Players from another factory, e.g. one per candidate of a tuner.
+   *
+   * @param gameCount Count of games.
+   * @param seed Master seed; game i always gets the same piece and input seeds.
+   * @param playerFactory Makes the Player of each game.
+   * @return Totals over every game.
+   */
+  public BatchStats run(int gameCount, long seed, PlayerFactory playerFactory)
+  {
+    SplitMix64 master = new SplitMix64(seed);
+    long[] gameSeeds = new long[gameCount];
+    long[] playerSeeds = new long[gameCount];
+    for(int index = 0; index < gameCount; index++)
+    {
+      gameSeeds[index] = master.nextLong();
+      playerSeeds[index] = master.nextLong();
+    }
+    return pool.invoke( new GameRange(playerFactory, gameSeeds, playerSeeds, 0, gameCount) );
+  }
+
+  /**
+   * Plays one game to the end.
+   *
+   * @param game Game to play, usually fresh.
+   * @param player Player of that game.
+   * @param maxSteps Logic steps after which the game is ended.
+   */
+  public static void play(Game game, Player player, long maxSteps)
+  {
+    while( !game.isDefeat() )
+    {
+      if(game.getStepCount() >= maxSteps)
+      {
+        game.endGame();
+        break;
+      }
+      player.takeTurn(game);
+    }
+  }
+
+  /**
+   * Stops the worker threads.
+   */
+  public void shutdown()
+  {
+    pool.shutdown();
+  }
+
+  // splits the game index range in halves until it is small enough to play
+  private class GameRange extends RecursiveTask<BatchStats>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final PlayerFactory playerFactory;
+    private final long[] gameSeeds;
+    private final long[] playerSeeds;
+    private final int from;
+    private final int to;
+
+    GameRange(PlayerFactory playerFactory, long[] gameSeeds, long[] playerSeeds, int from, int to)
+    {
+      this.playerFactory = playerFactory;
+      this.gameSeeds = gameSeeds;
+      this.playerSeeds = playerSeeds;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected BatchStats compute()
+    {
+      if(to - from <= GAMES_PER_TASK)
+      {
+        BatchStats stats = new BatchStats();
+        for(int index = from; index < to; index++)
+        {
+          Game game = new Game( gameSeeds[index] );
+          play(game, playerFactory.createPlayer( playerSeeds[index] ), maxStepsPerGame);
+          stats.add(game);
+        }
+        return stats;
+      }
+      int middle = (from + to) >>> 1;
+      GameRange left = new GameRange(playerFactory, gameSeeds, playerSeeds, from, middle);
+      GameRange right = new GameRange(playerFactory, gameSeeds, playerSeeds, middle, to);
+      left.fork();
+      BatchStats stats = right.compute();
+      stats.merge( left.join() );
+      return stats;
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+package tetris.sim;
+
+import tetris.Game;
+import tetris.ScoreKeeper;
+
+/**
+ * Totals over a batch of finished games.
+ * Each worker fills its own instance and the results are merged,
+ * so nothing is shared while games run.
+ *
+ * @author Daniel Rolandi
+ */
+public class BatchStats
+{
+  private int gameCount;
+  private long linesCleared;
+  private long piecesPlaced;
+  private long stepCount;
+  private double scoreSum;
+  private float bestScore;
+  private long levelSum;
+  private int bestLevel;
+
+  /**
+   * Adds the final state of a finished game.
+   *
+   * @param game Finished game.
+   */
+  public void add(Game game)
+  {
+    ScoreKeeper scoreKeeper = game.getScoreKeeper();
+    gameCount++;
+    linesCleared += scoreKeeper.getClearedCount();
+    piecesPlaced += game.getPiecesPlaced();
+    stepCount += game.getStepCount();
+    scoreSum += scoreKeeper.getScore();
+    bestScore = Math.max(bestScore, scoreKeeper.getScore());
+    levelSum += scoreKeeper.getLevel();
+    bestLevel = Math.max(bestLevel, scoreKeeper.getLevel());
+  }
+
+  /**
+   * Adds every game counted by other.
+   *
+   * @param other Stats of another batch.
+   */
+  public void merge(BatchStats other)
+  {
+    gameCount += other.gameCount;
+    linesCleared += other.linesCleared;
+    piecesPlaced += other.piecesPlaced;
+    stepCount += other.stepCount;
+    scoreSum += other.scoreSum;
+    bestScore = Math.max(bestScore, other.bestScore);
+    levelSum += other.levelSum;
+    bestLevel = Math.max(bestLevel, other.bestLevel);
+  }
+
+  /**
+   * Returns the count of games.
+   * @return The count of games.
+   */
+  public int getGameCount()
+  {
+    return gameCount;
+  }
+
+  /**
+   * Returns the total of cleared rows.
+   * @return The total of cleared rows.
+   */
+  public long getLinesCleared()
+  {
+    return linesCleared;
+  }
+
+  /**
+   * Returns the total of locked Tetrominos.
+   * @return The total of locked Tetrominos.
+   */
+  public long getPiecesPlaced()
+  {
+    return piecesPlaced;
+  }
+
+  /**
+   * Returns the total of logic steps.
+   * @return The total of logic steps.
+   */
+  public long getStepCount()
+  {
+    return stepCount;
+  }
+
+  /**
+   * Returns the mean final score.
+   * @return The mean final score, 0 if there are no games.
+   */
+  public double getMeanScore()
+  {
+    return (gameCount == 0) ? 0 : scoreSum / gameCount;
+  }
+
+  /**
+   * Returns the best final score.
+   * @return The best final score.
+   */
+  public float getBestScore()
+  {
+    return bestScore;
+  }
+
+  /**
+   * Returns the mean final level.
+   * @return The mean final level, 0 if there are no games.
+   */
+  public double getMeanLevel()
+  {
+    return (gameCount == 0) ? 0 : (double) levelSum / gameCount;
+  }
+
+  /**
+   * Returns the best final level.
+   * @return The best final level.
+   */
+  public int getBestLevel()
+  {
+    return bestLevel;
+  }
+
+}
@@ -0,0 +1,72 @@
+package tetris.sim;
+
+import tetris.Game;
+import tetris.bot.BeamSearch;
+import tetris.bot.HeuristicEvaluator;
+import tetris.bot.Placement;
+import tetris.bot.SearchRoot;
+
+/**
+ * Plays each Tetromino where a single-threaded BeamSearch puts it,
+ * with no time limit, so its games only depend on their seeds.
+ *
+ * @author Daniel Rolandi
+ */
+public class BeamSearchPlayer implements Player
+{
+  public static final int DEFAULT_BEAM_WIDTH = 16;
+  public static final int DEFAULT_MAX_DEPTH = 2;
+  private static final int PAUSE_STEPS = 10;
+
+  private final BeamSearch search;
+  private final SearchRoot root;
+
+  /**
+   * Inits a player.
+   *
+   * @param search Single-threaded search to play with.
+   * @param maxDepth Most Tetrominos to look at, the falling one included.
+   */
+  public BeamSearchPlayer(BeamSearch search, int maxDepth)
+  {
+    this.search = search;
+    root = new SearchRoot(maxDepth - 1);
+  }
+
+  @Override
+  public void takeTurn(Game game)
+  {
+    if( root.capture(game) )
+    {
+      Placement placement = search.search(root, BeamSearch.NO_DEADLINE);
+      if(placement != null)
+      {
+        placement.applyTo(game);
+      }
+    }
+    // time passes either way, so maxSteps still ends a game that is never lost
+    game.step(PAUSE_STEPS);
+  }
+
+  /**
+   * Returns a factory of BeamSearchPlayers that score boards with those weights.
+   *
+   * @param weights HeuristicEvaluator weights.
+   * @param beamWidth Count of boards kept at each depth.
+   * @param maxDepth Most Tetrominos to look at, the falling one included.
+   * @return A factory of BeamSearchPlayers.
+   */
+  public static PlayerFactory factory(final float[] weights, final int beamWidth, final int maxDepth)
+  {
+    final HeuristicEvaluator evaluator = new HeuristicEvaluator(weights);
+    return new PlayerFactory()
+    {
+      @Override
+      public Player createPlayer(long seed)
+      {
+        return new BeamSearchPlayer(new BeamSearch(1, beamWidth, maxDepth, evaluator, null), maxDepth);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,293 @@
+package tetris.sim;
+
+import tetris.BitGrid;
+import tetris.Game;
+import tetris.LockedRows;
+import tetris.TetrominoInfo;
+import tetris.TetrominoType;
+
+/**
+ * Many grids of locked cells in one long[], for checks across thousands of boards.
+ * Each row is a 16-bit lane, four lanes to a long, so one AND tests four rows
+ * (SWAR: SIMD within a register). Every board has the same fixed layout:
+ * full lanes above and below its Game.HEIGHT rows act as the ceiling and floor,
+ * so a placement test is two loads, a shift and an AND, with no bounds checks.
+ *
+ * @author Daniel Rolandi
+ */
+public class BoardBatch
+{
+  private static final int LANE_BITS = 16;
+  private static final int LANES_PER_WORD = Long.SIZE / LANE_BITS;
+  private static final int TOP_LANES = TetrominoInfo.LAYOUT_SIZE; // ceiling, for rows -4 to -1
+  private static final int ROW_LANES = TOP_LANES + Game.HEIGHT + TetrominoInfo.LAYOUT_SIZE - 1; // with the floor
+  public static final int WORDS_PER_BOARD = (ROW_LANES + LANES_PER_WORD - 1) / LANES_PER_WORD;
+  public static final int MIN_ROW = -TOP_LANES;
+  public static final int MAX_ROW = Game.HEIGHT - 1 + TetrominoInfo.LAYOUT_SIZE - 1;
+
+  private static final long LANE_MASK = (1L << LANE_BITS) - 1;
+  private static final long FULL_LANES = BitGrid.FULL_ROW * 0x0001000100010001L;
+  private static final long LOW_FILL = 0x7fff7fff7fff7fffL;
+  private static final long HIGH_BITS = 0x8000800080008000L;
+  // per word, the top bits of the lanes that hold grid rows rather than ceiling or floor
+  private static final long[] GRID_LANES = new long[WORDS_PER_BOARD];
+  static
+  {
+    if(Game.WIDTH >= LANE_BITS)
+    {
+      throw new IllegalStateException("BoardBatch: a row must fit in a lane with a spare bit");
+    }
+    for(int lane = TOP_LANES; lane < TOP_LANES + Game.HEIGHT; lane++)
+    {
+      GRID_LANES[lane / LANES_PER_WORD] |= 1L << ((lane % LANES_PER_WORD) * LANE_BITS + LANE_BITS - 1);
+    }
+  }
+
+  private final long[] words;
+  private final int capacity;
+
+  /**
+   * Inits a batch of empty boards.
+   *
+   * @param capacity Count of boards.
+   */
+  public BoardBatch(int capacity)
+  {
+    this.capacity = capacity;
+    words = new long[capacity * WORDS_PER_BOARD];
+    for(int board = 0; board < capacity; board++)
+    {
+      clear(board);
+    }
+  }
+
+  /**
+   * Returns the count of boards.
+   * @return The count of boards.
+   */
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Empties one board.
+   *
+   * @param board Board index.
+   */
+  public void clear(int board)
+  {
+    int base = board * WORDS_PER_BOARD;
+    for(int lane = 0; lane < WORDS_PER_BOARD * LANES_PER_WORD; lane++)
+    {
+      boolean wall = lane < TOP_LANES || lane >= TOP_LANES + Game.HEIGHT;
+      setLane(base, lane, wall ? BitGrid.FULL_ROW : BitGrid.EMPTY_ROW);
+    }
+  }
+
+  /**
+   * Copies those locked cells into one board.
+   *
+   * @param board Board index.
+   * @param source Locked cells, e.g. a Game.
+   */
+  public void load(int board, LockedRows source)
+  {
+    int base = board * WORDS_PER_BOARD;
+    for(int row = 0; row < Game.HEIGHT; row++)
+    {
+      setLane(base, TOP_LANES + row, source.getRowMask(row));
+    }
+  }
+
+  /**
+   * Returns the bitmask of a row of one board.
+   *
+   * @param board Board index.
+   * @param row Row in the grid.
+   * @return The bitmask of that row.
+   */
+  public int getRowMask(int board, int row)
+  {
+    int lane = TOP_LANES + row;
+    return (int)((words[board * WORDS_PER_BOARD + lane / LANES_PER_WORD] >>> ((lane % LANES_PER_WORD) * LANE_BITS)) & LANE_MASK);
+  }
+
+  /**
+   * Tests one placement on every board at once.
+   *
+   * @param type Tetromino type.
+   * @param state Orientation state.
+   * @param col Col of the reference point.
+   * @param row Row of the reference point.
+   * @param fits Set to whether the placement fits on each board; capacity long.
+   */
+  public void fits(TetrominoType type, int state, int col, int row, boolean[] fits)
+  {
+    if( !TetrominoInfo.isInBounds(type, state, col) || row < MIN_ROW || row > MAX_ROW )
+    {
+      for(int board = 0; board < capacity; board++)
+      {
+        fits[board] = false;
+      }
+      return;
+    }
+    long piece = 0;
+    for(int dy = 0; dy < TetrominoInfo.LAYOUT_SIZE; dy++)
+    {
+      piece |= (long)TetrominoInfo.getRowMask(type, state, col, dy) << (dy * LANE_BITS);
+    }
+    int lane = TOP_LANES + row;
+    int word = lane / LANES_PER_WORD;
+    int shift = (lane % LANES_PER_WORD) * LANE_BITS;
+    if(shift == 0)
+    {
+      for(int board = 0, index = word; board < capacity; board++, index += WORDS_PER_BOARD)
+      {
+        fits[board] = (words[index] & piece) == 0;
+      }
+      return;
+    }
+    for(int board = 0, index = word; board < capacity; board++, index += WORDS_PER_BOARD)
+    {
+      // the four lanes from the piece's top row, out of two neighbouring words
+      long window = (words[index] >>> shift) | (words[index + 1] << (Long.SIZE - shift));
+      fits[board] = (window & piece) == 0;
+    }
+  }
+
+  /**
+   * Counts the full rows of every board.
+   *
+   * @param counts Set to the count of full rows of each board; capacity long.
+   */
+  public void countFullRows(int[] counts)
+  {
+    int firstWord = TOP_LANES / LANES_PER_WORD;
+    int lastWord = (TOP_LANES + Game.HEIGHT - 1) / LANES_PER_WORD;
+    for(int board = 0, base = 0; board < capacity; board++, base += WORDS_PER_BOARD)
+    {
+      int count = 0;
+      for(int word = firstWord; word <= lastWord; word++)
+      {
+        count += Long.bitCount( fullLanes(words[base + word]) & GRID_LANES[word] );
+      }
+      counts[board] = count;
+    }
+  }
+
+  /**
+   * Returns the full rows of one board, bit r set if row r is full.
+   *
+   * @param board Board index.
+   * @return Bitmask of the full rows.
+   */
+  public int getFullRows(int board)
+  {
+    int base = board * WORDS_PER_BOARD;
+    int fullRows = 0;
+    for(int word = TOP_LANES / LANES_PER_WORD; word <= (TOP_LANES + Game.HEIGHT - 1) / LANES_PER_WORD; word++)
+    {
+      for(long bits = fullLanes(words[base + word]) & GRID_LANES[word]; bits != 0; bits &= bits - 1)
+      {
+        int lane = word * LANES_PER_WORD + Long.numberOfTrailingZeros(bits) / LANE_BITS;
+        fullRows |= 1 << (lane - TOP_LANES);
+      }
+    }
+    return fullRows;
+  }
+
+  /**
+   * Locks a Tetromino on one board and clears the full rows.
+   * Unlike Game there is no defeat check; callers that need one look at
+   * row Game.HEIGHT_WAITING - 1 before the rows clear, i.e. with fits and getRowMask.
+   * Precondition: the placement fits.
+   *
+   * @param board Board index.
+   * @param type Tetromino type.
+   * @param state Orientation state.
+   * @param col Col of the reference point.
+   * @param row Row of the reference point.
+   * @return Count of cleared rows.
+   */
+  public int place(int board, TetrominoType type, int state, int col, int row)
+  {
+    int base = board * WORDS_PER_BOARD;
+    for(int dy = 0; dy < TetrominoInfo.LAYOUT_SIZE; dy++)
+    {
+      int rowMask = TetrominoInfo.getRowMask(type, state, col, dy);
+      if(rowMask != 0)
+      {
+        int lane = TOP_LANES + row + dy;
+        words[base + lane / LANES_PER_WORD] |= (long)rowMask << ((lane % LANES_PER_WORD) * LANE_BITS);
+      }
+    }
+    int fullRows = getFullRows(board);
+    if(fullRows == 0)
+    {
+      return 0;
+    }
+    // one bottom-up pass, each surviving row moves at most once
+    int writeRow = Game.HEIGHT - 1;
+    for(int readRow = Game.HEIGHT - 1; readRow >= 0; readRow--)
+    {
+      if( (fullRows & (1 << readRow)) != 0 )
+      {
+        continue;
+      }
+      if(writeRow != readRow)
+      {
+        setLane(base, TOP_LANES + writeRow, getRowMask(board, readRow));
+      }
+      writeRow--;
+    }
+    for(; writeRow >= 0; writeRow--)
+    {
+      setLane(base, TOP_LANES + writeRow, BitGrid.EMPTY_ROW);
+    }
+    return Integer.bitCount(fullRows);
+  }
+
+  /**
+   * Finds the col heights of every board, counted up from the floor, 0 for an empty col.
+   *
+   * @param heights Set to the heights, Game.WIDTH per board; capacity * Game.WIDTH long.
+   */
+  public void columnHeights(int[] heights)
+  {
+    for(int board = 0; board < capacity; board++)
+    {
+      int base = board * WORDS_PER_BOARD;
+      int out = board * Game.WIDTH;
+      int seen = 0;
+      for(int row = 0; row < Game.HEIGHT && seen != BitGrid.FULL_ROW; row++)
+      {
+        int lane = TOP_LANES + row;
+        int rowMask = (int)((words[base + lane / LANES_PER_WORD] >>> ((lane % LANES_PER_WORD) * LANE_BITS)) & LANE_MASK);
+        for(int bits = rowMask & ~seen; bits != 0; bits &= bits - 1)
+        {
+          heights[out + Integer.numberOfTrailingZeros(bits)] = Game.HEIGHT - row;
+        }
+        seen |= rowMask;
+      }
+      for(int bits = ~seen & BitGrid.FULL_ROW; bits != 0; bits &= bits - 1)
+      {
+        heights[out + Integer.numberOfTrailingZeros(bits)] = 0;
+      }
+    }
+  }
+
+  // the top bit of each lane equal to FULL_ROW; lanes never reach that bit, so adding LOW_FILL cannot carry across
+  private static long fullLanes(long word)
+  {
+    return ~((word ^ FULL_LANES) + LOW_FILL) & HIGH_BITS;
+  }
+
+  private void setLane(int base, int lane, int rowMask)
+  {
+    int index = base + lane / LANES_PER_WORD;
+    int shift = (lane % LANES_PER_WORD) * LANE_BITS;
+    words[index] = (words[index] & ~(LANE_MASK << shift)) | ((long)rowMask << shift);
+  }
+
+}
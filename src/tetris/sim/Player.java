@@ -0,0 +1,20 @@
+package tetris.sim;
+
+import tetris.Game;
+
+/**
+ * Drives a headless Game in place of the keyboard.
+ *
+ * @author Daniel Rolandi
+ */
+public interface Player
+{
+  /**
+   * Makes this player's next moves and advances the Game's clock.
+   * Called until the game is lost; each turn must make progress
+   * (step the Game or drop a Tetromino) so the game eventually ends.
+   *
+   * @param game Game being played.
+   */
+  void takeTurn(Game game);
+}
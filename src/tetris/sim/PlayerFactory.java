@@ -0,0 +1,17 @@
+package tetris.sim;
+
+/**
+ * Makes one Player per simulated game, so no two threads share one.
+ *
+ * @author Daniel Rolandi
+ */
+public interface PlayerFactory
+{
+  /**
+   * Returns a new Player for one game.
+   *
+   * @param seed Seed for any randomness in the Player, derived from the game's seed.
+   * @return A new Player.
+   */
+  Player createPlayer(long seed);
+}
@@ -0,0 +1,61 @@
+package tetris.sim;
+
+import tetris.Action;
+import tetris.Game;
+import tetris.SplitMix64;
+
+/**
+ * Plays a seeded random input stream: each turn is one Action
+ * or a pause of a few logic steps.
+ *
+ * @author Daniel Rolandi
+ */
+public class ScriptedPlayer implements Player
+{
+  private static final Action[] ACTIONS = Action.values();
+  private static final int PAUSE_CHOICES = 2; // weight of pausing against one Action
+  private static final int PAUSE_STEPS = 10;
+
+  private final SplitMix64 random;
+
+  /**
+   * Inits a player whose inputs follow that seed.
+   *
+   * @param seed Seed of the input stream.
+   */
+  public ScriptedPlayer(long seed)
+  {
+    random = new SplitMix64(seed);
+  }
+
+  @Override
+  public void takeTurn(Game game)
+  {
+    int choice = random.nextInt(ACTIONS.length + PAUSE_CHOICES);
+    if(choice < ACTIONS.length)
+    {
+      game.perform( ACTIONS[choice] );
+    }
+    else
+    {
+      game.step(PAUSE_STEPS);
+    }
+  }
+
+  /**
+   * Returns a factory of ScriptedPlayers.
+   * @return A factory of ScriptedPlayers.
+   */
+  public static PlayerFactory factory()
+  {
+    return new PlayerFactory()
+    {
+      @Override
+      public Player createPlayer(long seed)
+      {
+        return new ScriptedPlayer(seed);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,65 @@
+package tetris.sim;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Command-line weight tuning: runs WeightTuner generations headlessly on every core,
+ * resuming from the checkpoint file if there is one.
+ *
+ * Usage: java -cp Tetris.jar tetris.sim.TunerMain [checkpoint] [generations] [threads] [seed] [gamesPerCandidate]
+ *
+ * @author Daniel Rolandi
+ */
+public class TunerMain
+{
+  private static final String DEFAULT_CHECKPOINT = "tuner.txt";
+  private static final int DEFAULT_GENERATIONS = 20;
+  private static final long DEFAULT_SEED = 1L;
+  private static final int DEFAULT_GAMES_PER_CANDIDATE = 200;
+  private static final int POPULATION_SIZE = 40;
+  private static final int ELITE_COUNT = 8;
+  // greedy one-piece player: fast, and tuned weights carry over to deeper searches
+  private static final int BEAM_WIDTH = 1;
+  private static final int MAX_DEPTH = 1;
+  private static final long MAX_STEPS = 60000L; // 10 minutes of game time
+
+  /**
+   * Application method.
+   *
+   * @param args Command-line arguments.
+   * @throws IOException if the checkpoint cannot be read or written.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    Path checkpoint = Paths.get( (args.length > 0) ? args[0] : DEFAULT_CHECKPOINT );
+    int generations = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_GENERATIONS;
+    int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+    long seed = (args.length > 3) ? Long.parseLong(args[3]) : DEFAULT_SEED;
+    int games = (args.length > 4) ? Integer.parseInt(args[4]) : DEFAULT_GAMES_PER_CANDIDATE;
+
+    // the runner's own factory is unused; each candidate brings its own
+    BatchRunner runner = new BatchRunner(threads, ScriptedPlayer.factory(), MAX_STEPS);
+    WeightTuner tuner = new WeightTuner(runner, checkpoint, POPULATION_SIZE, ELITE_COUNT,
+        games, BEAM_WIDTH, MAX_DEPTH, seed);
+    try
+    {
+      for(int count = 0; count < generations; count++)
+      {
+        long startTime = System.nanoTime();
+        tuner.runGeneration();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println(String.format("generation %d  best %.1f  %s  mean %s  (%.1f s)",
+            tuner.getGeneration(), tuner.getBestFitness(), Arrays.toString( tuner.getBestWeights() ),
+            Arrays.toString( tuner.getMean() ), seconds));
+      }
+    }
+    finally
+    {
+      runner.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,332 @@
+package tetris.sim;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import tetris.SplitMix64;
+import tetris.bot.HeuristicEvaluator;
+
+/**
+ * Tunes HeuristicEvaluator weights with the cross-entropy method.
+ * Each generation samples candidates around a mean, plays the same seeded
+ * headless games with every candidate on a BatchRunner, and moves the mean
+ * towards the best candidates. Fitness is the mean game score, as counted
+ * by the Game's own ScoreKeeper.
+ *
+ * The population and every fitness found so far are checkpointed after each
+ * candidate, so a stopped run resumes where it was.
+ *
+ * @author Daniel Rolandi
+ */
+public class WeightTuner
+{
+  private static final int WEIGHT_COUNT = HeuristicEvaluator.WEIGHT_COUNT;
+  private static final double INITIAL_SIGMA = 0.5;
+  // extra spread that fades over the generations, so the search does not collapse early
+  private static final double NOISE = 0.1;
+  // keeps generation seeds apart; not GOLDEN_GAMMA, whose multiples would overlap streams
+  private static final long GENERATION_STRIDE = 0xd1b54a32d192ed03L;
+
+  private final BatchRunner runner;
+  private final Path checkpoint;
+  private final int populationSize;
+  private final int eliteCount;
+  private final int gamesPerCandidate;
+  private final int beamWidth;
+  private final int maxDepth;
+  private final long seed;
+
+  private int generation;
+  private final double[] mean;
+  private final double[] sigma;
+  private final float[][] population;
+  private final double[] fitness; // NaN until played
+  private float[] bestWeights;
+  private double bestFitness = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Inits a tuner that starts from the default weights,
+   * or from that checkpoint if it exists.
+   *
+   * @param runner Plays the games of each candidate.
+   * @param checkpoint File the tuner state is saved to after each candidate.
+   * @param populationSize Count of candidates per generation.
+   * @param eliteCount Count of best candidates the next mean is taken from.
+   * @param gamesPerCandidate Count of games each candidate plays.
+   * @param beamWidth BeamSearchPlayer beam width.
+   * @param maxDepth BeamSearchPlayer depth.
+   * @param seed Master seed of the samples and games.
+   * @throws IOException if the checkpoint exists but cannot be read.
+   */
+  public WeightTuner(BatchRunner runner, Path checkpoint, int populationSize, int eliteCount,
+      int gamesPerCandidate, int beamWidth, int maxDepth, long seed) throws IOException
+  {
+    if(eliteCount < 1 || eliteCount > populationSize)
+    {
+      throw new IllegalArgumentException("WeightTuner: eliteCount must be in [1, populationSize]");
+    }
+    this.runner = runner;
+    this.checkpoint = checkpoint;
+    this.populationSize = populationSize;
+    this.eliteCount = eliteCount;
+    this.gamesPerCandidate = gamesPerCandidate;
+    this.beamWidth = beamWidth;
+    this.maxDepth = maxDepth;
+    this.seed = seed;
+
+    mean = new double[WEIGHT_COUNT];
+    sigma = new double[WEIGHT_COUNT];
+    population = new float[populationSize][WEIGHT_COUNT];
+    fitness = new double[populationSize];
+    if( Files.exists(checkpoint) )
+    {
+      load();
+    }
+    else
+    {
+      float[] weights = HeuristicEvaluator.getDefaultWeights();
+      for(int index = 0; index < WEIGHT_COUNT; index++)
+      {
+        mean[index] = weights[index];
+        sigma[index] = INITIAL_SIGMA;
+      }
+      samplePopulation();
+    }
+  }
+
+  /**
+   * Plays every candidate of the current generation not played yet,
+   * then moves on to the next generation.
+   *
+   * @throws IOException if the checkpoint cannot be written.
+   */
+  public void runGeneration() throws IOException
+  {
+    long gameSeed = new SplitMix64(seed + generation * GENERATION_STRIDE).nextLong();
+    for(int index = 0; index < populationSize; index++)
+    {
+      if( !Double.isNaN(fitness[index]) )
+      {
+        continue; // played before a resume
+      }
+      // every candidate gets the same games, so they are compared on equal terms
+      PlayerFactory players = BeamSearchPlayer.factory(population[index], beamWidth, maxDepth);
+      fitness[index] = runner.run(gamesPerCandidate, gameSeed, players).getMeanScore();
+      if(fitness[index] > bestFitness)
+      {
+        bestFitness = fitness[index];
+        bestWeights = population[index].clone();
+      }
+      save();
+    }
+    updateDistribution();
+    generation++;
+    samplePopulation();
+    save();
+  }
+
+  /**
+   * Returns the index of the generation to be played next.
+   * @return The current generation.
+   */
+  public int getGeneration()
+  {
+    return generation;
+  }
+
+  /**
+   * Returns the best weights found so far, or null if nothing was played yet.
+   * @return A copy of the best weights.
+   */
+  public float[] getBestWeights()
+  {
+    return (bestWeights == null) ? null : bestWeights.clone();
+  }
+
+  /**
+   * Returns the mean score of the best weights found so far.
+   * @return The best fitness.
+   */
+  public double getBestFitness()
+  {
+    return bestFitness;
+  }
+
+  /**
+   * Returns a copy of the current sampling mean.
+   * @return The current sampling mean.
+   */
+  public float[] getMean()
+  {
+    float[] weights = new float[WEIGHT_COUNT];
+    for(int index = 0; index < WEIGHT_COUNT; index++)
+    {
+      weights[index] = (float)mean[index];
+    }
+    return weights;
+  }
+
+  // refits the mean and spread to the eliteCount best candidates
+  private void updateDistribution()
+  {
+    Integer[] order = new Integer[populationSize];
+    for(int index = 0; index < populationSize; index++)
+    {
+      order[index] = index;
+    }
+    Arrays.sort(order, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer left, Integer right)
+      {
+        return Double.compare(fitness[right], fitness[left]);
+      }
+    });
+    double noise = NOISE / (generation + 1);
+    for(int weight = 0; weight < WEIGHT_COUNT; weight++)
+    {
+      double sum = 0;
+      for(int rank = 0; rank < eliteCount; rank++)
+      {
+        sum += population[ order[rank] ][weight];
+      }
+      double eliteMean = sum / eliteCount;
+      double squares = 0;
+      for(int rank = 0; rank < eliteCount; rank++)
+      {
+        double delta = population[ order[rank] ][weight] - eliteMean;
+        squares += delta * delta;
+      }
+      mean[weight] = eliteMean;
+      sigma[weight] = Math.sqrt(squares / eliteCount + noise);
+    }
+  }
+
+  private void samplePopulation()
+  {
+    SplitMix64 random = new SplitMix64(seed + generation * GENERATION_STRIDE);
+    random.nextLong(); // that one seeds the games
+    for(int index = 0; index < populationSize; index++)
+    {
+      for(int weight = 0; weight < WEIGHT_COUNT; weight++)
+      {
+        population[index][weight] = (float)(mean[weight] + sigma[weight] * nextGaussian(random));
+      }
+      fitness[index] = Double.NaN;
+    }
+  }
+
+  // Box-Muller; SplitMix64 only gives uniform bits
+  private static double nextGaussian(SplitMix64 random)
+  {
+    double uniform1 = ((random.nextLong() >>> 11) + 1) * 0x1.0p-53; // (0, 1]
+    double uniform2 = (random.nextLong() >>> 11) * 0x1.0p-53;
+    return Math.sqrt(-2 * Math.log(uniform1)) * Math.cos(2 * Math.PI * uniform2);
+  }
+
+  // written to a side file and moved over, so a crash never leaves half a checkpoint
+  private void save() throws IOException
+  {
+    Path partial = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+    try(BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8))
+    {
+      writer.write("generation " + generation + "\n");
+      writer.write("bestFitness " + bestFitness + "\n");
+      if(bestWeights != null)
+      {
+        writer.write("best " + join(bestWeights) + "\n");
+      }
+      writer.write("mean " + join(mean) + "\n");
+      writer.write("sigma " + join(sigma) + "\n");
+      for(int index = 0; index < populationSize; index++)
+      {
+        writer.write("candidate " + fitness[index] + " " + join(population[index]) + "\n");
+      }
+    }
+    Files.move(partial, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void load() throws IOException
+  {
+    int candidate = 0;
+    try(BufferedReader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8))
+    {
+      String line;
+      while( (line = reader.readLine()) != null )
+      {
+        String[] fields = line.trim().split(" ");
+        switch(fields[0])
+        {
+          case "generation": generation = Integer.parseInt(fields[1]); break;
+          case "bestFitness": bestFitness = Double.parseDouble(fields[1]); break;
+          case "best":
+            bestWeights = new float[WEIGHT_COUNT];
+            for(int index = 0; index < WEIGHT_COUNT; index++)
+            {
+              bestWeights[index] = Float.parseFloat(fields[1 + index]);
+            }
+            break;
+          case "mean": parse(fields, 1, mean); break;
+          case "sigma": parse(fields, 1, sigma); break;
+          case "candidate":
+            if(candidate == populationSize)
+            {
+              throw new IOException("WeightTuner: checkpoint has more candidates than populationSize");
+            }
+            fitness[candidate] = Double.parseDouble(fields[1]);
+            for(int index = 0; index < WEIGHT_COUNT; index++)
+            {
+              population[candidate][index] = Float.parseFloat(fields[2 + index]);
+            }
+            candidate++;
+            break;
+          default: throw new IOException("WeightTuner: bad checkpoint line: " + line);
+        }
+      }
+    }
+    catch(NumberFormatException | ArrayIndexOutOfBoundsException e)
+    {
+      throw new IOException("WeightTuner: bad checkpoint " + checkpoint, e);
+    }
+    if(candidate != populationSize)
+    {
+      throw new IOException("WeightTuner: checkpoint has " + candidate + " candidates, expected " + populationSize);
+    }
+  }
+
+  private static void parse(String[] fields, int from, double[] values)
+  {
+    for(int index = 0; index < values.length; index++)
+    {
+      values[index] = Double.parseDouble(fields[from + index]);
+    }
+  }
+
+  private static String join(float[] values)
+  {
+    StringBuilder builder = new StringBuilder();
+    for(int index = 0; index < values.length; index++)
+    {
+      builder.append( (index == 0) ? "" : " " ).append( values[index] );
+    }
+    return builder.toString();
+  }
+
+  private static String join(double[] values)
+  {
+    StringBuilder builder = new StringBuilder();
+    for(int index = 0; index < values.length; index++)
+    {
+      builder.append( (index == 0) ? "" : " " ).append( values[index] );
+    }
+    return builder.toString();
+  }
+
+}